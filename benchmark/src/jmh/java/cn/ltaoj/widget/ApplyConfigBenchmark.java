@@ -0,0 +1,71 @@
+package cn.ltaoj.widget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * FacePreview切换界面配置
+ * computeGeometries：配置集合或者Surface大小改变时计算所有配置的几何信息
+ * applyConfig：发布快照之后绘制线程直接切换，包括局部重绘缓存图层以及重绘新旧矩形框所在区域
+ * transitionFrame：绘制线程处理过渡动画的一帧，最后一帧之后发布下一个配置
+ * 通过HeadlessPreview驱动FacePreview使用的PreviewRenderLoop，Surface大小为1080x1920
+ */
+@State(Scope.Thread)
+public class ApplyConfigBenchmark {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final float[][] SIZES = {{720, 720}, {600, 900}, {540, 540}, {900, 600}};
+    private static final String[] TIPS = {"ALIGN FACE", "HOLD STILL", "BLINK", null};
+
+    private PreviewGeometry[] geometries;
+    private HeadlessPreview instant;
+    private HeadlessPreview animated;
+    private int instantIndex;
+    private int animatedIndex;
+
+    @Setup
+    public void setUp() {
+        instant = new HeadlessPreview(WIDTH, HEIGHT, 0);
+        animated = new HeadlessPreview(WIDTH, HEIGHT, 12);
+        geometries = computeGeometries();
+        for (HeadlessPreview preview : new HeadlessPreview[]{instant, animated}) {
+            preview.applyConfig(0, geometries[0]);
+            preview.render(RenderScheduler.CMD_DRAW_BACKGROUND | RenderScheduler.CMD_DRAW_TIP);
+        }
+    }
+
+    @Benchmark
+    public PreviewGeometry[] computeGeometries() {
+        PreviewGeometry[] result = new PreviewGeometry[SIZES.length];
+        for (int i = 0;i < result.length;i++) {
+            result[i] = instant.geometry(SIZES[i][0], SIZES[i][1], TIPS[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return 写入缓存图层以及Surface的像素数
+     */
+    @Benchmark
+    public long applyConfig() {
+        instantIndex = (instantIndex + 1) % geometries.length;
+        instant.applyConfig(instantIndex, geometries[instantIndex]);
+        instant.render(RenderScheduler.CMD_APPLY_CONFIG | RenderScheduler.CMD_DRAW_TIP);
+        return instant.getLastOverlayPixelsWritten() + instant.getLastPixelsWritten();
+    }
+
+    /**
+     * @return 写入缓存图层以及Surface的像素数
+     */
+    @Benchmark
+    public long transitionFrame() {
+        if (!animated.getTransition().isRunning()) {
+            animatedIndex = (animatedIndex + 1) % geometries.length;
+            animated.applyConfig(animatedIndex, geometries[animatedIndex]);
+        }
+        animated.render(RenderScheduler.CMD_STEP_TRANSITION);
+        return animated.getLastOverlayPixelsWritten() + animated.getLastPixelsWritten();
+    }
+}
@@ -0,0 +1,72 @@
+package cn.ltaoj.widget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * FacePreview每帧的绘制：扫描帧由PreviewRenderLoop计算需要更新的区域，只从缓存图层拷贝扫描线经过的区域并绘制渐变椭圆，
+ * Surface重新创建时从缓存图层重绘整个Surface，颜色或者大小改变时重绘整个缓存图层
+ * HeadlessPreview驱动FacePreview使用的PreviewRenderLoop，绘制到RasterCanvas，Surface大小为1080x1920
+ */
+@State(Scope.Thread)
+public class ScanFrameBenchmark {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    // 扫描线走完一次的帧数
+    private static final int SCAN_FRAMES = 180;
+
+    private HeadlessPreview preview;
+    private int frame;
+
+    private PreviewPainter painter;
+    private RasterCanvas overlay;
+    private RenderSnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        preview = new HeadlessPreview(WIDTH, HEIGHT, 0);
+        PreviewGeometry geometry = preview.geometry(720, 720, "ALIGN FACE");
+        preview.applyConfig(0, geometry);
+        preview.render(RenderScheduler.CMD_DRAW_BACKGROUND | RenderScheduler.CMD_DRAW_TIP);
+        preview.setState(FacePreview.PreviewState.DETECTING);
+
+        painter = preview.getPainter();
+        overlay = new RasterCanvas(WIDTH, HEIGHT, HeadlessPreview.GLYPHS);
+        snapshot = new RenderSnapshot(0, geometry, HeadlessPreview.MASK_COLOR, HeadlessPreview.CORNER_COLOR,
+                HeadlessPreview.TEXT_COLOR, FacePreview.PreviewState.DETECTING);
+    }
+
+    /**
+     * PreviewRenderLoop.renderFrame处理CMD_DRAW_SCAN，以及重绘合并后的区域
+     * @return 本帧写入的像素数
+     */
+    @Benchmark
+    public long scanFrame() {
+        frame = (frame + 1) % SCAN_FRAMES;
+        preview.scanTo((float) frame / SCAN_FRAMES);
+        return preview.getLastPixelsWritten();
+    }
+
+    /**
+     * PreviewRenderLoop处理CMD_DRAW_BACKGROUND，从缓存图层重绘整个Surface
+     * @return 写入的像素数
+     */
+    @Benchmark
+    public long backgroundFrame() {
+        preview.render(RenderScheduler.CMD_DRAW_BACKGROUND);
+        return preview.getLastPixelsWritten();
+    }
+
+    /**
+     * 重绘整个缓存图层，与PreviewRenderLoop在颜色或者大小改变时调用的PreviewPainter.paintOverlay相同
+     * @return 写入的像素数
+     */
+    @Benchmark
+    public long overlayDraw() {
+        overlay.resetCounters();
+        painter.paintOverlay(overlay, snapshot);
+        return overlay.getPixelsWritten();
+    }
+}
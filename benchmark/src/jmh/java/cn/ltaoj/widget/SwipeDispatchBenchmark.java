@@ -0,0 +1,49 @@
+package cn.ltaoj.widget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * SwipeLayout拖动时每帧不依赖View的处理：
+ * dispatchEvent中SwipeStateTracker.update计算状态以及事件，之后进度回调按照getOpenFraction()以及SwipeProgressThrottle过滤
+ * SwipeLayout本身继承FrameLayout，不能在JVM上创建，这里调用的是SwipeLayout使用的同一个对象
+ * 前置布局两边都有菜单，在左右两边完全打开之间来回拖动，包括经过关闭位置以及两端的状态变化
+ */
+@State(Scope.Thread)
+public class SwipeDispatchBenchmark {
+    private static final int LEFT_RANGE = 200;
+    private static final int RIGHT_RANGE = 300;
+    private static final int STEP = 7;
+
+    private final SwipeStateTracker tracker = new SwipeStateTracker();
+    private final SwipeProgressThrottle throttle = new SwipeProgressThrottle();
+    private int left;
+    private int dx = -STEP;
+
+    @Setup
+    public void setUp() {
+        throttle.setPolicy(SwipeLayout.ProgressPolicy.ON_CHANGE);
+    }
+
+    @Benchmark
+    public void dragFrame(Blackhole blackhole) {
+        // 与clampViewPositionHorizontal相同，限制在可拖动范围内
+        left += dx;
+        if (left <= -RIGHT_RANGE) {
+            left = -RIGHT_RANGE;
+            dx = STEP;
+        } else if (left >= LEFT_RANGE) {
+            left = LEFT_RANGE;
+            dx = -STEP;
+        }
+        int event = tracker.update(left, LEFT_RANGE, RIGHT_RANGE);
+        // 监听器总是收到onSwiping，状态改变时还会收到对应的事件
+        blackhole.consume(event);
+        // 与mProgressDispatcher相同，按照getOpenFraction()的进度过滤
+        float fraction = SwipeStateTracker.resolveOpenFraction(left, LEFT_RANGE, RIGHT_RANGE);
+        blackhole.consume(throttle.shouldDeliver(fraction, tracker.getState()));
+    }
+}
@@ -0,0 +1,241 @@
+package cn.ltaoj.widget;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * 比较README中的Adapter写法与SwipeCoordinator绑定10000次条目的耗时以及分配的对象数
+ * README的写法每次绑定创建4个监听器，SwipeCoordinator每次绑定不分配内存
+ * 结果输出到logcat，tag为SwipeCoordinatorBind
+ */
+@RunWith(AndroidJUnit4.class)
+public class SwipeCoordinatorBindTest {
+    private static final String TAG = "SwipeCoordinatorBind";
+    private static final int BINDS = 10000;
+    private static final int WARMUP_BINDS = 1000;
+    // 屏幕上以及缓存中的条目数
+    private static final int HOLDERS = 12;
+    private static final int ITEM_COUNT = 100;
+
+    private Instrumentation instrumentation;
+    private Context context;
+
+    @Before
+    public void setUp() throws Exception {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = InstrumentationRegistry.getTargetContext();
+    }
+
+    @Test
+    public void bind_coordinatorAllocatesNothing() throws Exception {
+        final long[] readme = new long[2];
+        final long[] coordinated = new long[2];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                measure(new ReadmeAdapter(), readme);
+
+                SwipeCoordinator coordinator = new SwipeCoordinator();
+                RecyclerView recyclerView = new RecyclerView(context);
+                recyclerView.setLayoutManager(new LinearLayoutManager(context));
+                CoordinatedAdapter adapter = new CoordinatedAdapter(coordinator);
+                recyclerView.setAdapter(adapter);
+                coordinator.attachToRecyclerView(recyclerView);
+                measure(adapter, coordinated);
+            }
+        });
+        Log.i(TAG, String.format("readme: %d us, %d allocations; coordinator: %d us, %d allocations (%d binds)",
+                readme[0] / 1000, readme[1], coordinated[0] / 1000, coordinated[1], BINDS));
+
+        // 不支持分配计数的运行时只输出耗时
+        assumeTrue(readme[1] > 0);
+        assertTrue(readme[1] >= 4L * BINDS);
+        assertTrue("coordinator allocated " + coordinated[1], coordinated[1] < BINDS / 100);
+    }
+
+    /**
+     * @param adapter
+     * @param result 耗时(ns)以及分配的对象数
+     */
+    private void measure(RecyclerView.Adapter<RowHolder> adapter, long[] result) {
+        FrameLayout parent = new FrameLayout(context);
+        RowHolder[] holders = new RowHolder[HOLDERS];
+        for (int i = 0;i < HOLDERS;i++) {
+            holders[i] = adapter.onCreateViewHolder(parent, 0);
+        }
+        for (int i = 0;i < WARMUP_BINDS;i++) {
+            adapter.onBindViewHolder(holders[i % HOLDERS], i % ITEM_COUNT);
+        }
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        long start = System.nanoTime();
+        for (int i = 0;i < BINDS;i++) {
+            adapter.onBindViewHolder(holders[i % HOLDERS], i % ITEM_COUNT);
+        }
+        result[0] = System.nanoTime() - start;
+        result[1] = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+    }
+
+    private static class RowHolder extends RecyclerView.ViewHolder {
+        final SwipeLayout swipeLayout;
+        final FrameLayout frontLayout;
+        final TextView delete;
+
+        RowHolder(SwipeLayout swipeLayout, FrameLayout frontLayout, TextView delete) {
+            super(swipeLayout);
+            this.swipeLayout = swipeLayout;
+            this.frontLayout = frontLayout;
+            this.delete = delete;
+        }
+
+        static RowHolder create(Context context) {
+            SwipeLayout swipeLayout = new SwipeLayout(context);
+            FrameLayout backLayout = new FrameLayout(context);
+            TextView delete = new TextView(context);
+            backLayout.addView(delete);
+            FrameLayout frontLayout = new FrameLayout(context);
+            swipeLayout.addView(backLayout, new FrameLayout.LayoutParams(
+                    ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT));
+            swipeLayout.addView(frontLayout, new FrameLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+            swipeLayout.onFinishInflate();
+            return new RowHolder(swipeLayout, frontLayout, delete);
+        }
+    }
+
+    /**
+     * README中的写法，省略了条目内容以及日志
+     */
+    private class ReadmeAdapter extends RecyclerView.Adapter<RowHolder> {
+        private SwipeLayout preLayout;
+
+        @Override
+        public RowHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return RowHolder.create(context);
+        }
+
+        @Override
+        public void onBindViewHolder(final RowHolder holder, final int position) {
+            holder.swipeLayout.setOnSwipeChangeLintener(new SwipeLayout.OnSwipeChangeLintener() {
+                @Override
+                public void onStartOpen(SwipeLayout swipeLayout) {
+                    if (preLayout != null && preLayout != swipeLayout) {
+                        preLayout.close();
+                    }
+                }
+
+                @Override
+                public void onOpen(SwipeLayout swipeLayout) {
+                    preLayout = swipeLayout;
+                }
+
+                @Override
+                public void onStartClose(SwipeLayout swipeLayout) {
+                    preLayout = null;
+                }
+
+                @Override
+                public void onClose(SwipeLayout swipeLayout) {
+                    if (preLayout == swipeLayout) {
+                        preLayout = null;
+                    }
+                }
+
+                @Override
+                public void onSwiping(SwipeLayout swipeLayout) {
+                }
+            });
+
+            holder.frontLayout.setOnTouchListener(new View.OnTouchListener() {
+                @Override
+                public boolean onTouch(View v, MotionEvent event) {
+                    return false;
+                }
+            });
+
+            holder.frontLayout.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    if (preLayout != null) {
+                        preLayout.close();
+                    } else if (holder.swipeLayout.getSwipState() == SwipeLayout.SwipeState.OPEN) {
+                        holder.swipeLayout.close();
+                    }
+                }
+            });
+
+            holder.delete.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    Log.i(TAG, "onDelete: " + position);
+                }
+            });
+        }
+
+        @Override
+        public int getItemCount() {
+            return ITEM_COUNT;
+        }
+    }
+
+    /**
+     * 使用SwipeCoordinator，点击监听器在创建条目时设置一次，点击时通过getAdapterPosition()取得位置
+     */
+    private class CoordinatedAdapter extends RecyclerView.Adapter<RowHolder> {
+        private final SwipeCoordinator coordinator;
+
+        CoordinatedAdapter(SwipeCoordinator coordinator) {
+            this.coordinator = coordinator;
+        }
+
+        @Override
+        public RowHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            final RowHolder holder = RowHolder.create(context);
+            holder.frontLayout.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    if (!coordinator.closeOpenItem(true)) {
+                        Log.i(TAG, "onFrontLayout: " + holder.getAdapterPosition());
+                    }
+                }
+            });
+            holder.delete.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    Log.i(TAG, "onDelete: " + holder.getAdapterPosition());
+                }
+            });
+            return holder;
+        }
+
+        @Override
+        public void onBindViewHolder(RowHolder holder, int position) {
+            coordinator.bind(holder.swipeLayout, position);
+        }
+
+        @Override
+        public int getItemCount() {
+            return ITEM_COUNT;
+        }
+    }
+}
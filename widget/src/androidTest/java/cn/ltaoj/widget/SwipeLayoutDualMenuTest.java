@@ -0,0 +1,143 @@
+package cn.ltaoj.widget;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 左边菜单以及右边菜单同时存在时的布局、拖动以及状态
+ */
+@RunWith(AndroidJUnit4.class)
+public class SwipeLayoutDualMenuTest {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 120;
+    private static final int LEFT_RANGE = 200;
+    private static final int RIGHT_RANGE = 300;
+
+    private Instrumentation instrumentation;
+    private SwipeLayout layout;
+    private FrameLayout left;
+    private FrameLayout right;
+    private FrameLayout front;
+
+    @Before
+    public void setUp() throws Exception {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                layout = new SwipeLayout(context);
+                left = new FrameLayout(context);
+                right = new FrameLayout(context);
+                front = new FrameLayout(context);
+                FrameLayout.LayoutParams leftParams = new FrameLayout.LayoutParams(LEFT_RANGE, ViewGroup.LayoutParams.MATCH_PARENT);
+                leftParams.gravity = Gravity.START;
+                FrameLayout.LayoutParams rightParams = new FrameLayout.LayoutParams(RIGHT_RANGE, ViewGroup.LayoutParams.MATCH_PARENT);
+                rightParams.gravity = Gravity.END;
+                layout.addView(left, leftParams);
+                layout.addView(right, rightParams);
+                layout.addView(front, new FrameLayout.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+                layout.onFinishInflate();
+                measureAndLayout();
+            }
+        });
+    }
+
+    @Test
+    public void menus_hugFrontLayout() throws Exception {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(0, front.getLeft());
+                assertEquals(-LEFT_RANGE, left.getLeft());
+                assertEquals(WIDTH, right.getLeft());
+                assertEquals(SwipeLayout.SwipeState.CLOSE, layout.getSwipState());
+            }
+        });
+    }
+
+    @Test
+    public void openEachSide_withoutAnimation() throws Exception {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                layout.openLeft(false);
+                assertEquals(LEFT_RANGE, front.getLeft());
+                assertEquals(0, left.getLeft());
+                assertEquals(SwipeLayout.SwipeState.OPEN_LEFT, layout.getSwipState());
+                assertEquals(1f, layout.getOpenFraction(), 0);
+
+                layout.requestLayout();
+                measureAndLayout();
+                assertEquals(LEFT_RANGE, front.getLeft());
+
+                layout.open(false);
+                assertEquals(-RIGHT_RANGE, front.getLeft());
+                assertEquals(WIDTH - RIGHT_RANGE, right.getLeft());
+                assertEquals(SwipeLayout.SwipeState.OPEN, layout.getSwipState());
+            }
+        });
+    }
+
+    @Test
+    public void dragRight_revealsLeftMenuWithinRange() throws Exception {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                long downTime = SystemClock.uptimeMillis();
+                dispatch(downTime, downTime, MotionEvent.ACTION_DOWN, 100);
+                dispatch(downTime, downTime + 16, MotionEvent.ACTION_MOVE, 140);
+                dispatch(downTime, downTime + 32, MotionEvent.ACTION_MOVE, 600);
+                assertEquals(LEFT_RANGE, front.getLeft());
+                assertEquals(front.getLeft(), left.getRight());
+                assertEquals(front.getRight(), right.getLeft());
+                assertEquals(SwipeLayout.SwipeState.OPEN_LEFT, layout.getSwipState());
+            }
+        });
+    }
+
+    @Test
+    public void bindState_restoresOpenSide() throws Exception {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                SwipeStateStore store = new SwipeStateStore();
+                layout.bindState(store, 3);
+                layout.openLeft(false);
+                layout.bindState(store, 4);
+                assertEquals(0, front.getLeft());
+
+                layout.bindState(store, 3);
+                assertEquals(LEFT_RANGE, front.getLeft());
+                assertEquals(SwipeLayout.SwipeState.OPEN_LEFT, layout.getSwipState());
+            }
+        });
+    }
+
+    private void measureAndLayout() {
+        layout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        layout.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private void dispatch(long downTime, long eventTime, int action, float x) {
+        MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, x, HEIGHT / 2f, 0);
+        layout.dispatchTouchEvent(event);
+        event.recycle();
+    }
+}
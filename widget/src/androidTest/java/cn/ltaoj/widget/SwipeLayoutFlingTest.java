@@ -0,0 +1,137 @@
+package cn.ltaoj.widget;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 通过ViewDragHelper处理合成的触摸事件，检查松手之后SwipeLayout的最终状态
+ * 触摸点每16ms一个，时间由事件给出，与设备速度无关；第一个移动点超过touch slop，ViewDragHelper从这个点开始拖动
+ */
+@RunWith(AndroidJUnit4.class)
+public class SwipeLayoutFlingTest {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 120;
+    private static final int RANGE = 300;
+    private static final float MIN_FLING = 1000;
+    private static final long FRAME_MILLIS = 16;
+    private static final long SETTLE_TIMEOUT = 2000;
+
+    private Instrumentation instrumentation;
+    private SwipeLayout layout;
+
+    @Before
+    public void setUp() throws Exception {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                layout = new SwipeLayout(context);
+                // 后边菜单有两个按钮，只按照位置决定时需要拖动超过RANGE / 3
+                FrameLayout back = new FrameLayout(context);
+                back.addView(new View(context));
+                back.addView(new View(context));
+                layout.addView(back, new FrameLayout.LayoutParams(RANGE, ViewGroup.LayoutParams.MATCH_PARENT));
+                layout.addView(new FrameLayout(context), new FrameLayout.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+                layout.onFinishInflate();
+                layout.setMinFlingVelocity(MIN_FLING);
+                layout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+                layout.layout(0, 0, WIDTH, HEIGHT);
+            }
+        });
+    }
+
+    @Test
+    public void shortQuickFlick_opens() throws Exception {
+        swipe(FRAME_MILLIS, 700, 660, 640, 620);
+        assertEquals(SwipeLayout.SwipeState.OPEN, settle());
+    }
+
+    @Test
+    public void shortSlowDrag_closes() throws Exception {
+        swipe(200, 700, 660, 650, 650);
+        assertEquals(SwipeLayout.SwipeState.CLOSE, settle());
+    }
+
+    @Test
+    public void longSlowDrag_opens() throws Exception {
+        swipe(200, 700, 660, 600, 560, 560);
+        assertEquals(SwipeLayout.SwipeState.OPEN, settle());
+    }
+
+    @Test
+    public void quickFlickBack_closesFromOpen() throws Exception {
+        swipe(FRAME_MILLIS, 700, 660, 500, 400, 380);
+        assertEquals(SwipeLayout.SwipeState.OPEN, settle());
+        // 前置条目左边界为-RANGE，从它的中间开始向右快速滑动
+        swipe(FRAME_MILLIS, 200, 240, 260, 280);
+        assertEquals(SwipeLayout.SwipeState.CLOSE, settle());
+    }
+
+    /**
+     * 按下、移动到各个点之后在最后一个点抬起
+     * @param stepMillis 相邻两个移动点之间的时间
+     * @param xs 第一个为按下的位置
+     */
+    private void swipe(final long stepMillis, final float... xs) {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                long downTime = SystemClock.uptimeMillis();
+                long eventTime = downTime;
+                float y = HEIGHT / 2f;
+                dispatch(downTime, eventTime, MotionEvent.ACTION_DOWN, xs[0], y);
+                for (int i = 1;i < xs.length;i++) {
+                    eventTime += stepMillis;
+                    dispatch(downTime, eventTime, MotionEvent.ACTION_MOVE, xs[i], y);
+                }
+                dispatch(downTime, eventTime, MotionEvent.ACTION_UP, xs[xs.length - 1], y);
+            }
+        });
+    }
+
+    private void dispatch(long downTime, long eventTime, int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, x, y, 0);
+        layout.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    /**
+     * 驱动松手之后的动画，直到停在打开或者关闭的位置
+     * @return 最终状态
+     */
+    private SwipeLayout.SwipeState settle() throws Exception {
+        final SwipeLayout.SwipeState[] state = new SwipeLayout.SwipeState[1];
+        long deadline = SystemClock.uptimeMillis() + SETTLE_TIMEOUT;
+        while (SystemClock.uptimeMillis() < deadline) {
+            instrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    layout.computeScroll();
+                    state[0] = layout.getSwipState();
+                }
+            });
+            if (state[0] != SwipeLayout.SwipeState.SWIPING) {
+                return state[0];
+            }
+            Thread.sleep(FRAME_MILLIS);
+        }
+        fail("SwipeLayout did not settle, open fraction " + layout.getOpenFraction());
+        return null;
+    }
+}
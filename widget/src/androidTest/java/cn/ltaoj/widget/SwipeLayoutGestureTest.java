@@ -0,0 +1,136 @@
+package cn.ltaoj.widget;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 纵向手势交给父View，确认水平拖动之后才请求父View不要截断
+ */
+@RunWith(AndroidJUnit4.class)
+public class SwipeLayoutGestureTest {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 400;
+    private static final int RANGE = 300;
+
+    private Instrumentation instrumentation;
+    private RecordingParent parent;
+    private SwipeLayout layout;
+    private FrameLayout front;
+    private int touchSlop;
+
+    @Before
+    public void setUp() throws Exception {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+                parent = new RecordingParent(context);
+                layout = new SwipeLayout(context);
+                front = new FrameLayout(context);
+                layout.addView(new FrameLayout(context), new FrameLayout.LayoutParams(RANGE, ViewGroup.LayoutParams.MATCH_PARENT));
+                layout.addView(front, new FrameLayout.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+                layout.onFinishInflate();
+                parent.addView(layout, new FrameLayout.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+                parent.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+                parent.layout(0, 0, WIDTH, HEIGHT);
+            }
+        });
+    }
+
+    @Test
+    public void verticalGesture_isPassedWithoutDisallow() throws Exception {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                gesture(700, 100, 0, 4 * touchSlop);
+                assertEquals(0, parent.disallowRequests);
+                assertEquals(0, front.getLeft());
+                assertEquals(0, layout.getSwipeEventCount());
+                assertEquals(5, layout.getPassedEventCount());
+            }
+        });
+    }
+
+    @Test
+    public void horizontalGesture_disallowsOnceAfterSlop() throws Exception {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                gesture(700, 100, -4 * touchSlop, 0);
+                assertEquals(1, parent.disallowRequests);
+                assertTrue(front.getLeft() < 0);
+                assertTrue(layout.getSwipeEventCount() > 0);
+                assertEquals(5, layout.getSwipeEventCount() + layout.getPassedEventCount());
+            }
+        });
+    }
+
+    @Test
+    public void steepDiagonal_isPassed() throws Exception {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                gesture(700, 100, -2 * touchSlop, 3 * touchSlop);
+                assertEquals(0, parent.disallowRequests);
+                assertEquals(0, front.getLeft());
+                assertEquals(0, layout.getSwipeEventCount());
+            }
+        });
+    }
+
+    /**
+     * 按下之后分5步移动(dx, dy)，然后抬起
+     */
+    private void gesture(float x, float y, float dx, float dy) {
+        long downTime = SystemClock.uptimeMillis();
+        dispatch(downTime, downTime, MotionEvent.ACTION_DOWN, x, y);
+        for (int i = 1;i <= 5;i++) {
+            dispatch(downTime, downTime + 16 * i, MotionEvent.ACTION_MOVE, x + dx * i / 5, y + dy * i / 5);
+        }
+        dispatch(downTime, downTime + 96, MotionEvent.ACTION_UP, x + dx, y + dy);
+    }
+
+    private void dispatch(long downTime, long eventTime, int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, x, y, 0);
+        parent.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    /**
+     * 记录子View请求不要截断的次数
+     */
+    private static class RecordingParent extends FrameLayout {
+        int disallowRequests;
+
+        RecordingParent(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+            if (disallowIntercept) {
+                disallowRequests++;
+            }
+            super.requestDisallowInterceptTouchEvent(disallowIntercept);
+        }
+    }
+}
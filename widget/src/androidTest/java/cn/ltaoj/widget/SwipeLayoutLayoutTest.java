@@ -0,0 +1,186 @@
+package cn.ltaoj.widget;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * SwipeLayout的布局次数以及重新布局之后的拖动位置
+ * 每次measure + layout相当于一帧中的一次布局
+ */
+@RunWith(AndroidJUnit4.class)
+public class SwipeLayoutLayoutTest {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 120;
+    private static final int RANGE = 300;
+
+    private Instrumentation instrumentation;
+    private SwipeLayout layout;
+    private CountingLayout back;
+    private CountingLayout front;
+
+    @Before
+    public void setUp() throws Exception {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                layout = new SwipeLayout(context);
+                back = new CountingLayout(context);
+                front = new CountingLayout(context);
+                layout.addView(back, new FrameLayout.LayoutParams(RANGE, ViewGroup.LayoutParams.MATCH_PARENT));
+                layout.addView(front, new FrameLayout.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+                layout.onFinishInflate();
+                measureAndLayout();
+            }
+        });
+    }
+
+    @Test
+    public void layoutPass_doesNotRequestAnotherLayout() throws Exception {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(1, layout.getLayoutPassCount());
+                assertFalse(layout.isLayoutRequested());
+                assertSame(front, layout.getChildAt(layout.getChildCount() - 1));
+            }
+        });
+    }
+
+    @Test
+    public void unchangedRelayout_skipsChildren() throws Exception {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                int frontLayouts = front.layouts;
+                int backLayouts = back.layouts;
+                layout.requestLayout();
+                measureAndLayout();
+
+                assertEquals(2, layout.getLayoutPassCount());
+                assertEquals(frontLayouts, front.layouts);
+                assertEquals(backLayouts, back.layouts);
+
+                // 子View自己请求布局时仍然需要布局
+                front.requestLayout();
+                measureAndLayout();
+                assertEquals(frontLayouts + 1, front.layouts);
+                assertEquals(backLayouts, back.layouts);
+            }
+        });
+    }
+
+    @Test
+    public void relayout_preservesDragOffset() throws Exception {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                // 拖动到一半，没有松手
+                long downTime = SystemClock.uptimeMillis();
+                dispatch(downTime, downTime, MotionEvent.ACTION_DOWN, 700);
+                dispatch(downTime, downTime + 16, MotionEvent.ACTION_MOVE, 660);
+                dispatch(downTime, downTime + 32, MotionEvent.ACTION_MOVE, 580);
+                int left = front.getLeft();
+                assertTrue(left < 0 && left > -RANGE);
+
+                layout.requestLayout();
+                measureAndLayout();
+                assertEquals(left, front.getLeft());
+                assertEquals(front.getRight(), back.getLeft());
+                assertEquals(SwipeLayout.SwipeState.SWIPING, layout.getSwipState());
+            }
+        });
+    }
+
+    @Test
+    public void open_survivesRelayoutAndFollowsMenuWidth() throws Exception {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                layout.open(false);
+                assertEquals(-RANGE, front.getLeft());
+                assertEquals(SwipeLayout.SwipeState.OPEN, layout.getSwipState());
+
+                layout.requestLayout();
+                measureAndLayout();
+                assertEquals(-RANGE, front.getLeft());
+
+                // 菜单变窄，打开的条目停在新的范围内
+                back.getLayoutParams().width = RANGE - 100;
+                back.requestLayout();
+                measureAndLayout();
+                assertEquals(-(RANGE - 100), front.getLeft());
+                assertEquals(WIDTH - (RANGE - 100), back.getLeft());
+                assertEquals(1f, layout.getOpenFraction(), 0);
+            }
+        });
+    }
+
+    @Test
+    public void bindState_followsItemInsteadOfView() throws Exception {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                SwipeStateStore store = new SwipeStateStore();
+                layout.bindState(store, 7);
+                layout.open(false);
+                assertEquals(1, store.size());
+
+                // 复用给另一个条目，直接关闭，store保留第7个条目的状态
+                layout.bindState(store, 8);
+                assertEquals(0, front.getLeft());
+                assertEquals(SwipeLayout.SwipeState.CLOSE, layout.getSwipState());
+                assertEquals(1, store.size());
+
+                layout.bindState(store, 7);
+                assertEquals(-RANGE, front.getLeft());
+                layout.close(false);
+                assertEquals(0, store.size());
+            }
+        });
+    }
+
+    private void measureAndLayout() {
+        layout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        layout.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private void dispatch(long downTime, long eventTime, int action, float x) {
+        MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, x, HEIGHT / 2f, 0);
+        layout.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    /**
+     * 统计布局次数
+     */
+    private static class CountingLayout extends FrameLayout {
+        int layouts;
+
+        CountingLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+            layouts++;
+            super.onLayout(changed, left, top, right, bottom);
+        }
+    }
+}
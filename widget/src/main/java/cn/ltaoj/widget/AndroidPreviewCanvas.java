@@ -0,0 +1,156 @@
+package cn.ltaoj.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.RadialGradient;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+/**
+ * 把PreviewCanvas的绘图操作转发给Canvas
+ * 同一个对象先后用于缓存图层以及锁定的Surface，每次绘制之前通过setCanvas()切换，不分配内存
+ * 只在绘制线程访问
+ */
+
+final class AndroidPreviewCanvas implements PreviewCanvas {
+    private Canvas mCanvas;
+    // 缓存图层
+    private Bitmap mLayer;
+
+    // 透明窗口
+    private final Paint mClearPaint;
+    // 边角以及检测结果
+    private final Paint mShapePaint;
+    // 不与原有内容混合的覆盖以及拷贝，拷贝缓存图层的画笔不能设置颜色，否则透明度会影响拷贝结果
+    private final Paint mSrcPaint;
+    private final Paint mLayerPaint;
+    private final Paint mScanPaint;
+    // 提示文字以及标签，与FacePreview测量文字的画笔相同
+    private final Paint mTextPaint;
+    private final Paint mLabelPaint;
+
+    // 扫描线形状，以原点为中心
+    private final RectF mScanOval = new RectF();
+    // 当前扫描线渐变对应的半径
+    private float mScanRadius = -1;
+    private float mScanShortAxis = -1;
+    private final Rect mLayerRect = new Rect();
+
+    AndroidPreviewCanvas(Paint textPaint, Paint labelPaint) {
+        mTextPaint = textPaint;
+        mLabelPaint = labelPaint;
+
+        mClearPaint = new Paint();
+        mClearPaint.setStyle(Paint.Style.FILL);
+        mClearPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+
+        mShapePaint = new Paint();
+        mShapePaint.setAntiAlias(true);
+        mShapePaint.setDither(true);
+
+        mSrcPaint = new Paint();
+        mSrcPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+
+        mLayerPaint = new Paint();
+        mLayerPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+
+        mScanPaint = new Paint();
+        mScanPaint.setAntiAlias(true);
+        mScanPaint.setDither(true);
+    }
+
+    /**
+     * 切换绘制目标
+     * @param canvas
+     */
+    void setCanvas(Canvas canvas) {
+        mCanvas = canvas;
+    }
+
+    /**
+     * 设置drawLayer()拷贝的缓存图层
+     * @param layer
+     */
+    void setLayer(Bitmap layer) {
+        mLayer = layer;
+    }
+
+    @Override
+    public void drawColor(int color) {
+        mCanvas.drawColor(color, PorterDuff.Mode.SRC);
+    }
+
+    @Override
+    public void clearRect(float left, float top, float right, float bottom) {
+        mCanvas.drawRect(left, top, right, bottom, mClearPaint);
+    }
+
+    @Override
+    public void fillRect(int left, int top, int right, int bottom, int color) {
+        mSrcPaint.setColor(color);
+        mCanvas.drawRect(left, top, right, bottom, mSrcPaint);
+    }
+
+    @Override
+    public void strokeRect(float left, float top, float right, float bottom, int color, float strokeWidth) {
+        mShapePaint.setStyle(Paint.Style.STROKE);
+        mShapePaint.setColor(color);
+        mShapePaint.setStrokeWidth(strokeWidth);
+        mCanvas.drawRect(left, top, right, bottom, mShapePaint);
+    }
+
+    @Override
+    public void drawLines(float[] points, int color, float strokeWidth) {
+        mShapePaint.setStyle(Paint.Style.STROKE);
+        mShapePaint.setColor(color);
+        mShapePaint.setStrokeWidth(strokeWidth);
+        mCanvas.drawLines(points, mShapePaint);
+    }
+
+    @Override
+    public void fillCircle(float centerX, float centerY, float radius, int color) {
+        mShapePaint.setStyle(Paint.Style.FILL);
+        mShapePaint.setColor(color);
+        mCanvas.drawCircle(centerX, centerY, radius, mShapePaint);
+    }
+
+    @Override
+    public void drawTipText(String text, float x, float baseline, int color) {
+        mTextPaint.setColor(color);
+        mCanvas.drawText(text, x, baseline, mTextPaint);
+    }
+
+    @Override
+    public void drawLabel(String text, float x, float baseline, int color) {
+        mLabelPaint.setColor(color);
+        mCanvas.drawText(text, x, baseline, mLabelPaint);
+    }
+
+    @Override
+    public void drawScanLine(float centerX, float centerY, float radius, float shortAxis) {
+        // 渐变以原点为中心，通过平移画布移动扫描线，只有大小改变时才创建新的Shader
+        if (radius != mScanRadius || shortAxis != mScanShortAxis) {
+            mScanRadius = radius;
+            mScanShortAxis = shortAxis;
+            mScanOval.set(-radius, -shortAxis, radius, shortAxis);
+            mScanPaint.setShader(new RadialGradient(0, 0, radius,
+                    Color.argb(200, 0, 255, 0), Color.argb(0, 0, 255, 0),
+                    Shader.TileMode.REPEAT));
+        }
+        mCanvas.save();
+        mCanvas.translate(centerX, centerY);
+        mCanvas.drawOval(mScanOval, mScanPaint);
+        mCanvas.restore();
+    }
+
+    @Override
+    public void drawLayer(int left, int top, int right, int bottom) {
+        mLayerRect.set(left, top, right, bottom);
+        mCanvas.drawBitmap(mLayer, mLayerRect, mLayerRect, mLayerPaint);
+    }
+}
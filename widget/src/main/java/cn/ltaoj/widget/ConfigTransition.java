@@ -0,0 +1,138 @@
+package cn.ltaoj.widget;
+
+/**
+ * 两个界面配置之间的过渡动画
+ * 矩形框、边角以及提示文字在若干帧内从当前显示的几何信息移动到目标几何信息，每帧只重绘相邻两帧之间变化的区域
+ * 过渡过程中发布新的配置时，从当前显示的位置转向新的目标，连续多次applyConfig只产生一次过渡
+ * 除isRunning()以及帧数设置之外只在绘制线程访问
+ */
+
+final class ConfigTransition {
+    // 过渡帧数，为0时直接切换
+    private volatile int mFrames;
+    // 是否正在过渡，主线程据此决定是否继续请求垂直同步
+    private volatile boolean isRunning;
+
+    // 起点、目标以及已经执行的帧数
+    private PreviewGeometry mFrom;
+    private PreviewGeometry mTo;
+    private int mFrame;
+
+    // 开始的过渡次数，以及在过渡过程中转向新目标的次数
+    private long mStarted;
+    private long mRetargeted;
+
+    ConfigTransition(int frames) {
+        setFrames(frames);
+    }
+
+    /**
+     * 设置过渡帧数，在下一次过渡开始时生效
+     * @param frames 为0时直接切换到新的配置
+     */
+    void setFrames(int frames) {
+        if (frames < 0) {
+            throw new IllegalArgumentException("frames must not be negative!");
+        }
+        mFrames = frames;
+    }
+
+    int getFrames() {
+        return mFrames;
+    }
+
+    /**
+     * 以当前显示的几何信息为起点过渡到新的目标
+     * 没有起点、Surface大小改变或者帧数为0时直接切换
+     * @param current 当前显示的几何信息，可能是上一次过渡的中间帧
+     * @param target
+     * @return 第一帧的几何信息
+     */
+    PreviewGeometry start(PreviewGeometry current, PreviewGeometry target) {
+        int frames = mFrames;
+        boolean running = isRunning;
+        mTo = target;
+        if (current == null || frames == 0 || current.surfaceWidth != target.surfaceWidth
+                || current.surfaceHeight != target.surfaceHeight) {
+            mFrom = null;
+            mFrame = 0;
+            isRunning = false;
+            return target;
+        }
+
+        if (running) {
+            mRetargeted++;
+        } else {
+            mStarted++;
+        }
+        mFrom = current;
+        mFrame = 0;
+        isRunning = true;
+        return step(frames);
+    }
+
+    /**
+     * 前进一帧
+     * @return 本帧的几何信息，过渡结束后总是返回目标
+     */
+    PreviewGeometry step() {
+        return step(mFrames);
+    }
+
+    private PreviewGeometry step(int frames) {
+        if (!isRunning) {
+            return mTo;
+        }
+        mFrame++;
+        if (mFrame >= frames) {
+            isRunning = false;
+            mFrom = null;
+            return mTo;
+        }
+        return PreviewGeometry.interpolate(mFrom, mTo, interpolation((float) mFrame / frames));
+    }
+
+    /**
+     * 减速插值，开始时移动较快，接近目标时逐渐停下
+     * @param t
+     * @return
+     */
+    static float interpolation(float t) {
+        float remaining = 1 - t;
+        return 1 - remaining * remaining;
+    }
+
+    /**
+     * 放弃正在进行的过渡，下一次发布的配置直接切换
+     * 在Surface重新创建、绘制线程开启之前调用
+     */
+    void reset() {
+        mFrom = null;
+        mTo = null;
+        mFrame = 0;
+        isRunning = false;
+    }
+
+    /**
+     * 可以在任意线程调用
+     * @return 是否正在过渡
+     */
+    boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * @return 最近一次过渡的目标，还没有开始过时为null
+     */
+    PreviewGeometry getTarget() {
+        return mTo;
+    }
+
+    long getStartedCount() {
+        return mStarted;
+    }
+
+    long getRetargetedCount() {
+        return mRetargeted;
+    }
+}
@@ -0,0 +1,148 @@
+package cn.ltaoj.widget;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一帧图像所有检测器的结果
+ * 按注册顺序保存每个检测器的结果、耗时、是否超时以及异常
+ */
+
+public final class DetectionResult {
+    private final Detector[] mDetectors;
+    private final Object[] mResults;
+    private final Throwable[] mErrors;
+    private final long[] mLatencyNanos;
+    private final boolean[] isDone;
+    private final boolean[] isTimedOut;
+    private final long mFrameTimestampNanos;
+    // 结束之后不再接收超时检测器的结果
+    private boolean isSealed;
+
+    DetectionResult(Detector[] detectors, long frameTimestampNanos) {
+        int count = detectors.length;
+        mDetectors = detectors;
+        mResults = new Object[count];
+        mErrors = new Throwable[count];
+        mLatencyNanos = new long[count];
+        isDone = new boolean[count];
+        isTimedOut = new boolean[count];
+        mFrameTimestampNanos = frameTimestampNanos;
+    }
+
+    synchronized void setResult(int index, Object result, long latencyNanos) {
+        if (isSealed) {
+            return;
+        }
+        mResults[index] = result;
+        mLatencyNanos[index] = latencyNanos;
+        isDone[index] = true;
+        notifyAll();
+    }
+
+    synchronized void setError(int index, Throwable error, long latencyNanos) {
+        if (isSealed) {
+            return;
+        }
+        mErrors[index] = error;
+        mLatencyNanos[index] = latencyNanos;
+        isDone[index] = true;
+        notifyAll();
+    }
+
+    /**
+     * 等待所有检测器完成，每个检测器最多等待到各自的超时时间
+     * @param timeoutNanos 每个检测器的超时时间
+     * @param startNanos 开始检测的时间
+     * @return 所有检测器是否都已经完成
+     */
+    synchronized boolean await(long[] timeoutNanos, long startNanos) throws InterruptedException {
+        while (true) {
+            long deadline = Long.MIN_VALUE;
+            boolean pending = false;
+            for (int i = 0;i < mDetectors.length;i++) {
+                if (!isDone[i]) {
+                    pending = true;
+                    deadline = Math.max(deadline, startNanos + timeoutNanos[i]);
+                }
+            }
+            if (!pending) {
+                return true;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+    }
+
+    /**
+     * 结束收集结果，没有完成或者耗时超过各自超时时间的检测器标记为超时，结果置空
+     * @param timeoutNanos 每个检测器的超时时间
+     * @param elapsedNanos 从开始检测到现在的时间
+     */
+    synchronized void seal(long[] timeoutNanos, long elapsedNanos) {
+        for (int i = 0;i < mDetectors.length;i++) {
+            if (!isDone[i]) {
+                isTimedOut[i] = true;
+                mLatencyNanos[i] = elapsedNanos;
+            } else if (mLatencyNanos[i] > timeoutNanos[i]) {
+                isTimedOut[i] = true;
+                mResults[i] = null;
+            }
+        }
+        isSealed = true;
+    }
+
+    public int size() {
+        return mDetectors.length;
+    }
+
+    public Detector getDetector(int index) {
+        return mDetectors[index];
+    }
+
+    /**
+     * @param index
+     * @return 检测结果，超时或者失败时为null
+     */
+    public synchronized Object getResult(int index) {
+        return mResults[index];
+    }
+
+    /**
+     * @param detector
+     * @return 指定检测器的结果，没有注册、超时或者失败时为null
+     */
+    public synchronized Object getResult(Detector detector) {
+        for (int i = 0;i < mDetectors.length;i++) {
+            if (mDetectors[i] == detector) {
+                return mResults[i];
+            }
+        }
+        return null;
+    }
+
+    public synchronized Throwable getError(int index) {
+        return mErrors[index];
+    }
+
+    /**
+     * @param index
+     * @return 检测耗时，超时时为等待的时间
+     */
+    public synchronized long getLatencyNanos(int index) {
+        return mLatencyNanos[index];
+    }
+
+    public synchronized boolean isTimedOut(int index) {
+        return isTimedOut[index];
+    }
+
+    /**
+     * @return 这一帧提交到FacePreview时的System.nanoTime()
+     */
+    public long getFrameTimestampNanos() {
+        return mFrameTimestampNanos;
+    }
+}
@@ -0,0 +1,23 @@
+package cn.ltaoj.widget;
+
+/**
+ * 检测器接口，例如人脸检测、活体检测、清晰度评分
+ * 通过FacePreview.addDetector()注册，每一帧矩形框区域会同时交给所有检测器
+ */
+
+public interface Detector {
+
+    /**
+     * @return 检测器名称，用于区分结果以及统计
+     */
+    String getName();
+
+    /**
+     * 检测一帧图像，在检测线程池中调用，多个检测器并行执行
+     * 只读访问frame，返回之后不要再保存frame或者它的数据
+     * @param frame 矩形框区域的视图
+     * @return 检测结果，类型由检测器自己定义
+     * @throws Exception 检测失败时抛出，会通过DetectionResult.getError()返回
+     */
+    Object detect(PreviewFrame frame) throws Exception;
+}
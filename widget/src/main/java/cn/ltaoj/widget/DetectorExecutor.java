@@ -0,0 +1,154 @@
+package cn.ltaoj.widget;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 把每一帧同时交给所有检测器，在有界的线程池中并行执行
+ * 分析线程等待所有检测器完成或者超时，然后通过callbackExecutor(FacePreview中为主线程)回调结果
+ * 超时的检测器不会阻塞之后的帧，它的结果会被丢弃
+ */
+
+final class DetectorExecutor {
+    private static final String TAG = "DetectorExecutor";
+
+    // 线程空闲多久之后退出
+    private static final long KEEP_ALIVE_SECONDS = 5;
+
+    private static final class Entry {
+        final Detector detector;
+        final long timeoutNanos;
+
+        Entry(Detector detector, long timeoutNanos) {
+            this.detector = detector;
+            this.timeoutNanos = timeoutNanos;
+        }
+    }
+
+    private final CopyOnWriteArrayList<Entry> mEntries = new CopyOnWriteArrayList<Entry>();
+    private final ThreadPoolExecutor mWorkers;
+    private final Executor mCallbackExecutor;
+    private volatile FacePreview.OnDetectListener mListener;
+
+    /**
+     * @param maxThreads 最多同时执行的检测器个数
+     * @param callbackExecutor 回调结果的线程
+     */
+    DetectorExecutor(int maxThreads, Executor callbackExecutor) {
+        mCallbackExecutor = callbackExecutor;
+        mWorkers = new ThreadPoolExecutor(maxThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(maxThreads * 2), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, TAG + "-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mWorkers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 注册检测器
+     * @param detector
+     * @param timeoutMillis 单个检测器的超时时间
+     */
+    void addDetector(Detector detector, long timeoutMillis) {
+        if (detector == null) {
+            throw new IllegalArgumentException("detector must not be null!");
+        }
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("timeout must be positive!");
+        }
+        removeDetector(detector);
+        mEntries.add(new Entry(detector, TimeUnit.MILLISECONDS.toNanos(timeoutMillis)));
+    }
+
+    void removeDetector(Detector detector) {
+        for (Entry entry : mEntries) {
+            if (entry.detector == detector) {
+                mEntries.remove(entry);
+            }
+        }
+    }
+
+    int getDetectorCount() {
+        return mEntries.size();
+    }
+
+    void setListener(FacePreview.OnDetectListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 在分析线程调用，阻塞直到所有检测器完成或者超时
+     * @param frame
+     * @return 所有检测器是否都已经结束，为false时仍有检测器在读取frame
+     */
+    boolean execute(final PreviewFrame frame) {
+        Object[] entries = mEntries.toArray();
+        int count = entries.length;
+        if (count == 0) {
+            return true;
+        }
+
+        Detector[] detectors = new Detector[count];
+        long[] timeouts = new long[count];
+        for (int i = 0;i < count;i++) {
+            Entry entry = (Entry) entries[i];
+            detectors[i] = entry.detector;
+            timeouts[i] = entry.timeoutNanos;
+        }
+
+        final DetectionResult result = new DetectionResult(detectors, frame.getTimestampNanos());
+        long start = System.nanoTime();
+        for (int i = 0;i < count;i++) {
+            final int index = i;
+            final Detector detector = detectors[i];
+            try {
+                mWorkers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        long begin = System.nanoTime();
+                        try {
+                            result.setResult(index, detector.detect(frame), System.nanoTime() - begin);
+                        } catch (Throwable e) {
+                            result.setError(index, e, System.nanoTime() - begin);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // 线程池被超时的检测器占满
+                result.setError(index, e, 0);
+            }
+        }
+
+        boolean finished;
+        try {
+            finished = result.await(timeouts, start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finished = false;
+        }
+        result.seal(timeouts, System.nanoTime() - start);
+
+        final FacePreview.OnDetectListener listener = mListener;
+        if (listener != null) {
+            mCallbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onDetected(result);
+                }
+            });
+        }
+        return finished;
+    }
+}
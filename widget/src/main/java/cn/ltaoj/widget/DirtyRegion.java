@@ -0,0 +1,76 @@
+package cn.ltaoj.widget;
+
+/**
+ * 需要重绘的矩形区域
+ * 只保存四条边，合并区域时不分配内存
+ */
+
+final class DirtyRegion {
+    private int mLeft;
+    private int mTop;
+    private int mRight;
+    private int mBottom;
+
+    int getLeft() {
+        return mLeft;
+    }
+
+    int getTop() {
+        return mTop;
+    }
+
+    int getRight() {
+        return mRight;
+    }
+
+    int getBottom() {
+        return mBottom;
+    }
+
+    boolean isEmpty() {
+        return mLeft >= mRight || mTop >= mBottom;
+    }
+
+    void setEmpty() {
+        mLeft = mTop = mRight = mBottom = 0;
+    }
+
+    void set(int left, int top, int right, int bottom) {
+        mLeft = left;
+        mTop = top;
+        mRight = right;
+        mBottom = bottom;
+    }
+
+    /**
+     * 合并区域，空区域不参与合并
+     */
+    void union(int left, int top, int right, int bottom) {
+        if (left >= right || top >= bottom) {
+            return;
+        }
+        if (isEmpty()) {
+            set(left, top, right, bottom);
+            return;
+        }
+        if (left < mLeft) mLeft = left;
+        if (top < mTop) mTop = top;
+        if (right > mRight) mRight = right;
+        if (bottom > mBottom) mBottom = bottom;
+    }
+
+    void union(DirtyRegion region) {
+        union(region.mLeft, region.mTop, region.mRight, region.mBottom);
+    }
+
+    boolean intersects(int left, int top, int right, int bottom) {
+        return !isEmpty() && mLeft < right && left < mRight && mTop < bottom && top < mBottom;
+    }
+
+    /**
+     * @return 区域包含的像素个数
+     */
+    long area() {
+        return isEmpty() ? 0 : (long) (mRight - mLeft) * (mBottom - mTop);
+    }
+}
@@ -1,32 +1,28 @@
 package cn.ltaoj.widget;
 
-import android.animation.PropertyValuesHolder;
-import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.PixelFormat;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffXfermode;
-import android.graphics.RadialGradient;
 import android.graphics.Rect;
 import android.graphics.RectF;
-import android.graphics.Shader;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Message;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.Choreographer;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
-import android.view.animation.AccelerateDecelerateInterpolator;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Created by ltaoj on 2018/3/18 1:23.
@@ -60,9 +56,17 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
     // 默认边角线长度
     private static final float DEFAULT_CORNER_LENGTH = 50F;
 
+    // 遮罩颜色
+    private static final int DEFAULT_MASK_COLOR = Color.argb(200, 0, 0, 0);
+
+    // 检测结果线宽、关键点半径以及标签文字大小
+    private static final float DEFAULT_RESULT_STROKE = 2F;
+    private static final float DEFAULT_RESULT_POINT_RADIUS = 3F;
+    private static final float DEFAULT_RESULT_TEXT_SIZE = 12F;
+
     // 矩形框形状
     private RectF mArea;
-    // 矩形框在屏幕实际位置
+    // 矩形框在屏幕实际位置，只在UI线程访问，绘制线程使用快照中的位置
     private RectF mRect;
     // 矩形框与屏幕放缩比例
     private float maxScale = 0.6f;
@@ -74,7 +78,7 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
     // 矩形边框颜色
     private int mBdColor;
 
-    // 屏幕宽高密度
+    // Surface宽高，surfaceChanged之前使用屏幕大小，以及屏幕密度
     private int screenWidth;
     private int screenHeight;
     private float density;
@@ -87,8 +91,9 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
     private int mTipTextColor;
     // 提示文字顶部与矩形区域底部的距离
     private int textMarginRect = 50;
-    // 文字实际大小
-    private Rect textBounds;
+    // UI线程测量提示文字的画笔，与绘制线程的画笔分开
+    private Paint mMeasurePaint;
+    private final Rect mMeasureBounds = new Rect();
 
     // 是否显示提示文字
     private boolean mShowTip;
@@ -97,44 +102,242 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
     private List<PreviewConfig> mConfigs;
     // 当前界面配置
     private int curConfig;
+    // 每个界面配置在当前Surface大小下的几何信息，配置集合或者Surface大小改变时重新计算
+    private PreviewGeometry[] mGeometries;
 
     // 界面状态
     private PreviewState mPreviewState;
 
+    // UI线程发布的最新界面快照，绘制线程以及摄像头线程只通过快照读取界面状态
+    private final AtomicReference<RenderSnapshot> mSnapshot = new AtomicReference<RenderSnapshot>();
+
     // 界面状态变化监听接口
     private OnPreviewChangeListener mChangeListener;
 
+    // 检测器默认超时时间
+    private static final long DEFAULT_DETECT_TIMEOUT = 200;
+    // 检测线程池大小，至少保留一个核给绘制线程
+    private static final int DETECTOR_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    // 摄像头帧分析器
+    private volatile FrameAnalyzer mFrameAnalyzer;
+    // 预览帧缓冲区复用池
+    private final FrameBufferPool mFramePool = new FrameBufferPool(4);
+    // 摄像头与分析器之间的有界队列，分析在单独的线程进行
+    private final FramePipeline mFramePipeline = new FramePipeline(mFramePool, new FramePipeline.Sink() {
+        @Override
+        public void onFrame(PreviewFrame frame) {
+            FrameAnalyzer analyzer = mFrameAnalyzer;
+            if (analyzer != null) {
+                analyzer.analyze(frame);
+            }
+            if (!mDetectorExecutor.execute(frame)) {
+                // 超时的检测器仍在读取这一帧
+                frame.detach();
+            }
+        }
+    });
+    // 多个检测器并行执行，结果在主线程回调
+    private final DetectorExecutor mDetectorExecutor = new DetectorExecutor(DETECTOR_THREADS, new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mHandler.post(command);
+        }
+    });
+    // 矩形框映射结果，submitFrame可能在不同的线程调用
+    private final ThreadLocal<int[]> mRoiOut = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[4];
+        }
+    };
+
     private SurfaceHolder mHolder;
+    // 设置的绘制后端
+    private RenderBackend mRenderBackend = RenderBackend.AUTO;
+    // 实际使用的绘制后端，创建Surface时选择，GPU后端失败时由绘制线程替换为软件后端
+    private volatile PreviewRenderer mRenderer;
 
-    // 画布
-    private Canvas mCanvas;
-    // 矩形框绘制画笔
-    private Paint mRectPaint;
-    // 边角绘制画笔
-    private Paint mCrnPaint;
-    // 扫描线绘制画笔
-    private Paint mScanPaint;
     // 提示文字绘制画笔
     private Paint mTextPaint;
+    // 绘制逻辑，只通过PreviewCanvas绘图
+    private PreviewPainter mPainter;
+    // 把绘图操作转发给缓存图层或者锁定的Surface
+    private AndroidPreviewCanvas mPreviewCanvas;
+
+    // 遮罩、边角以及提示文字的缓存图层
+    private final OverlayLayer mOverlay = new OverlayLayer();
+
+    // 检测结果三缓冲
+    private final ResultOverlay mResultOverlay = new ResultOverlay();
+    // 计算标签区域
+    private final Rect mLabelBounds = new Rect();
+    // 检测结果标签画笔
+    private Paint mResultTextPaint;
+
+    // 绘制线程的循环以及每帧的逻辑，与单元测试共用
+    private PreviewRenderLoop mRenderLoop;
+    // 默认配置过渡帧数
+    private static final int DEFAULT_TRANSITION_FRAMES = 12;
+    // 配置之间的过渡动画
+    private final ConfigTransition mConfigTransition = new ConfigTransition(DEFAULT_TRANSITION_FRAMES);
+    // 主线程还需要请求的过渡帧数，覆盖绘制线程开始过渡之前的几帧
+    private int mTransitionTicks;
+    // 实际锁定的区域，lockCanvas可能会扩大这个区域
+    private final Rect mLockDirty = new Rect();
+    // 提交到Surface的像素总数以及提交次数
+    private volatile long mPushedPixels;
+    private volatile long mPushedFrames;
 
     // 绘制线程
     private Thread mDrawTread;
+    // surfaceDestroyed中等待绘制线程结束的最长时间
+    private static final long DRAW_THREAD_JOIN_TIMEOUT = 1000;
     // 表示线程运行状态
-    private boolean isDrawRun;
+    private volatile boolean isDrawRun;
+    // 绘制线程调度器，没有绘制命令时绘制线程挂起，检测线程发布结果时也会读取
+    private volatile RenderScheduler mScheduler;
 
-    // 表示第一次绘制背景
-    private boolean firstDrawBg;
-    // 表示是否需要重新绘制背景
-    private boolean shouldRedrawBg;
-    // 表示上次提示文字时候擦除
-    private boolean hasSweepTip;
+    // 默认扫描线运动一次的时间
+    private static final long DEFAULT_SCAN_DURATION = 3000;
+    // 提示文字显示时间
+    private static final long TIP_SHOW_DURATION = 10000;
 
-    // 扫描动画
-    private ValueAnimator mScanAnimator;
+    // 扫描线时间轴，由垂直同步时间计算扫描线位置
+    private volatile ScanTimeline mScanTimeline;
     // 动画执行状态
     private boolean isAnimatorRun;
-    // 表示是否更新Animator的ProperHolder
-    private boolean needChangeAnimator;
+    // 最近一次垂直同步时间，由主线程写入，绘制线程读取
+    private volatile long mFrameTimeNanos;
+    // 当前目标帧率下扫描帧的间隔，由主线程与mFrameTimeNanos一起写入，用于计算丢失的扫描帧
+    private volatile long mScanIntervalNanos;
+    // 绘制统计，关闭时绘制线程不读取时间
+    private volatile boolean isMetricsEnabled;
+    private final RenderMetrics mRenderMetrics = new RenderMetrics();
+    // 回调给监听器的统计结果，只在主线程写入
+    private final RenderMetrics mMetricsReport = new RenderMetrics();
+    private volatile OnRenderMetricsListener mMetricsListener;
+    private volatile long mMetricsReportIntervalNanos;
+    // 绘制线程上一次请求回调的时间
+    private long mLastMetricsReportNanos;
+    private volatile boolean isMetricsReportPending;
+    // 在主线程拷贝统计结果并回调监听器，重复使用同一个Runnable
+    private final Runnable mMetricsReporter = new Runnable() {
+        @Override
+        public void run() {
+            isMetricsReportPending = false;
+            OnRenderMetricsListener listener = mMetricsListener;
+            if (listener == null) {
+                return;
+            }
+            mRenderMetrics.copyTo(mMetricsReport);
+            listener.onRenderMetrics(mMetricsReport);
+        }
+    };
+    // 扫描线椭圆短轴
+    private static final float SCAN_SHORT_AXIS = 5;
+    // 扫描线与矩形框上下边的距离
+    private static final float SCAN_INSET = 5;
+
+    private Choreographer mChoreographer;
+    // 主线程只负责记录垂直同步时间并通知绘制线程，锁定Surface以及绘制都在绘制线程进行
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!isAnimatorRun || mScheduler == null) {
+                return;
+            }
+            // 按目标帧率跳过部分垂直同步信号
+            if (mFrameRateGovernor.shouldRender(frameTimeNanos)) {
+                mScanIntervalNanos = 1000000000L / mFrameRateGovernor.getTargetFps();
+                mFrameTimeNanos = frameTimeNanos;
+                mScheduler.post(RenderScheduler.CMD_DRAW_SCAN);
+            }
+            // 温度或者电量改变了目标帧率，与设置帧率相同，重置帧间隔统计并按新的帧率重新注册回调
+            if (mFrameRateGovernor.consumeTargetChange()) {
+                onFrameRateChanged();
+                return;
+            }
+            if (mFrameRateGovernor.getTargetFps() > 0) {
+                mChoreographer.postFrameCallback(this);
+            }
+        }
+    };
+    // 配置过渡期间每个垂直同步信号通知绘制线程前进一帧，不受扫描帧率限制
+    private final Choreographer.FrameCallback mTransitionCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            RenderScheduler scheduler = mScheduler;
+            if (scheduler == null) {
+                mTransitionTicks = 0;
+                return;
+            }
+            scheduler.post(RenderScheduler.CMD_STEP_TRANSITION);
+            if (mTransitionTicks > 0) {
+                mTransitionTicks--;
+            }
+            // 绘制线程落后时命令会合并，因此以过渡是否结束为准，而不是固定的帧数
+            if (mTransitionTicks > 0 || mConfigTransition.isRunning()) {
+                mChoreographer.postFrameCallback(this);
+            }
+        }
+    };
+    // 按照界面状态以及功耗调节扫描帧率
+    private final FrameRateGovernor mFrameRateGovernor = new FrameRateGovernor();
+    // 绘制循环需要的快照、时间、缓存图层以及Surface，除getMetrics()之外都在绘制线程调用
+    private final PreviewRenderLoop.Host mRenderHost = new PreviewRenderLoop.Host() {
+        @Override
+        public RenderSnapshot getSnapshot() {
+            return mSnapshot.get();
+        }
+
+        @Override
+        public boolean isScanning() {
+            return mScanTimeline != null;
+        }
+
+        @Override
+        public float getScanFraction(long frameTimeNanos) {
+            ScanTimeline timeline = mScanTimeline;
+            return timeline == null ? -1 : timeline.getFraction(frameTimeNanos);
+        }
+
+        @Override
+        public long getFrameTimeNanos() {
+            return mFrameTimeNanos;
+        }
+
+        @Override
+        public long getScanIntervalNanos() {
+            return mScanIntervalNanos;
+        }
+
+        @Override
+        public RenderMetrics getMetrics() {
+            return isMetricsEnabled ? mRenderMetrics : null;
+        }
+
+        @Override
+        public PreviewCanvas beginLayer(int width, int height, int left, int top, int right, int bottom) {
+            mPreviewCanvas.setCanvas(mOverlay.begin(width, height, left, top, right, bottom));
+            return mPreviewCanvas;
+        }
+
+        @Override
+        public void endLayer() {
+            mOverlay.end();
+        }
+
+        @Override
+        public void render(DirtyRegion dirty, RenderSnapshot snapshot, RenderMetrics metrics) {
+            renderDirtyRegion(dirty, snapshot, metrics);
+        }
+
+        @Override
+        public void onLoopRecorded(long nowNanos) {
+            requestMetricsReport(nowNanos);
+        }
+    };
 
     private static final int MSG_CREATE = 0;
     private static final int MSG_PAUSE = 1;
@@ -150,12 +353,10 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
                     show();
                     break;
                 case MSG_PAUSE:
-                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                        mScanAnimator.pause();
-                    }
+                    pauseScan();
                     break;
                 case MSG_RESTART:
-                    mScanAnimator.start();
+                    resumeScan();
                     break;
                 case MSG_DESTROY:
                     stop();
@@ -164,6 +365,18 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
             return true;
         }
     });
+    /**
+     * 绘制后端
+     * AUTO: API 23以上使用GPU绘制，否则使用软件绘制
+     * SOFTWARE: 通过lockCanvas软件绘制，只重绘需要更新的区域
+     * HARDWARE: 通过lockHardwareCanvas由GPU绘制，API版本不支持时退回软件绘制
+     */
+    public enum RenderBackend {
+        AUTO,
+        SOFTWARE,
+        HARDWARE
+    }
+
     /**
      * 就绪状态：预览区域显示完毕，但是没有连接图像
      * 检测状态：预览区域出现状态，并且伴随检测一些动画提示
@@ -203,6 +416,30 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
         void onComplete();
     }
 
+    /**
+     * 监听检测器结果
+     */
+    public interface OnDetectListener {
+
+        /**
+         * 一帧图像所有检测器完成或者超时，在主线程回调
+         * @param result 按注册顺序保存每个检测器的结果
+         */
+        void onDetected(DetectionResult result);
+    }
+
+    /**
+     * 监听绘制统计
+     */
+    public interface OnRenderMetricsListener {
+
+        /**
+         * 按照设置的间隔在主线程回调
+         * @param metrics 开启统计以来的累计结果，只在回调期间有效，需要保存时通过FacePreview.getRenderMetrics()读取
+         */
+        void onRenderMetrics(RenderMetrics metrics);
+    }
+
     /**
      * 显示区域属性配置类,静态内部类
      */
@@ -277,9 +514,8 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
         if (mCrnWidth < 0) {
             mCrnWidth = DEFAULT_CORNER_WIDTH;
         }
-        // 计算矩形框在屏幕的实际位置
+        // 矩形框在屏幕的实际位置，应用配置时计算
         mRect = new RectF();
-        computeRect(mArea.width(), mArea.height());
 
         mBdColor = a.getColor(R.styleable.FacePreview_border_color, -1);
         if (mBdColor < 0) {
@@ -305,11 +541,9 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
      * 默认组件配置
      */
     private void initPreview() {
-        if (mConfigs == null) {
-            mConfigs = new ArrayList<PreviewConfig>();
-            mConfigs.add(new PreviewConfig(0f, 0f, "将方框对准人脸，即可自动识别", true, null));
-            applyConfig(0);
-        }
+        mPreviewState = PreviewState.READY;
+
+        mChoreographer = Choreographer.getInstance();
 
         mHolder = getHolder();
         mHolder.addCallback(this);
@@ -317,24 +551,6 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
         mHolder.setFormat(PixelFormat.TRANSPARENT);
         setZOrderOnTop(true);
 
-        mRectPaint  = new Paint();
-        mRectPaint.setAntiAlias(true);
-        mRectPaint.setDither(true);
-        mRectPaint.setColor(mBdColor);
-        mRectPaint.setStyle(Paint.Style.FILL_AND_STROKE);
-        mRectPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
-
-        mCrnPaint = new Paint();
-        mCrnPaint.setAntiAlias(true);
-        mCrnPaint.setDither(true);
-        mCrnPaint.setColor(mCrnColor);
-        mCrnPaint.setStrokeWidth(mCrnWidth);
-
-        mScanPaint = new Paint();
-        mScanPaint.setAntiAlias(true);
-        mScanPaint.setDither(true);
-        // to do
-
         mTextPaint = new Paint();
         mTextPaint.setAntiAlias(true);
         mTextPaint.setDither(true);
@@ -342,22 +558,84 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
         mTextPaint.setColor(mTipTextColor);
         mTextPaint.setTextAlign(Paint.Align.CENTER);
 
-        mPreviewState = PreviewState.READY;
-        mShowTip = true;
-        hasSweepTip = true;
+        mResultTextPaint = new Paint();
+        mResultTextPaint.setAntiAlias(true);
+        mResultTextPaint.setTextSize(DEFAULT_RESULT_TEXT_SIZE * density);
+
+        mMeasurePaint = new Paint(mTextPaint);
+
+        mPainter = new PreviewPainter(mCrnWidth, DEFAULT_RESULT_STROKE * density, DEFAULT_RESULT_POINT_RADIUS * density);
+        mPreviewCanvas = new AndroidPreviewCanvas(mTextPaint, mResultTextPaint);
+        mRenderLoop = new PreviewRenderLoop(mRenderHost, mPainter, mConfigTransition, mResultOverlay,
+                new PreviewGeometry.TextMeasurer() {
+                    @Override
+                    public float measure(String text, int[] bounds) {
+                        mResultTextPaint.getTextBounds(text, 0, text.length(), mLabelBounds);
+                        bounds[0] = mLabelBounds.left;
+                        bounds[1] = mLabelBounds.top;
+                        bounds[2] = mLabelBounds.right;
+                        bounds[3] = mLabelBounds.bottom;
+                        return mLabelBounds.width();
+                    }
+                }, SCAN_SHORT_AXIS, TIP_SHOW_DURATION);
+
         setKeepScreenOn(true);
+
+        // 几何信息需要测量提示文字，因此在初始化画笔之后应用默认配置
+        if (mConfigs == null) {
+            mConfigs = new ArrayList<PreviewConfig>();
+            mConfigs.add(new PreviewConfig(0f, 0f, "将方框对准人脸，即可自动识别", true, null));
+            applyConfig(0);
+        }
+    }
+
+    /**
+     * 发布新的界面快照，同时更新UI线程使用的矩形框位置
+     * @param snapshot
+     */
+    private void publishSnapshot(RenderSnapshot snapshot) {
+        mSnapshot.set(snapshot);
+        PreviewGeometry geometry = snapshot.geometry;
+        mRect.set(geometry.rectLeft, geometry.rectTop, geometry.rectRight, geometry.rectBottom);
     }
 
     /**
-     * 通过设置的组件大小，计算在屏幕中的位置
-     * @param previewWidth
-     * @param previewHeight
+     * 按照当前Surface大小预先计算所有界面配置的几何信息
+     * 只在配置集合或者Surface大小改变时执行，applyConfig只需要取出对应的结果
      */
-    private void computeRect(float previewWidth, float previewHeight) {
-        mRect.left = (screenWidth - previewWidth) / 2;
-        mRect.right = (screenWidth + previewWidth) / 2;
-        mRect.top = (screenHeight - previewHeight) / 2;
-        mRect.bottom = (screenHeight + previewHeight) / 2;
+    private void computeGeometries() {
+        PreviewGeometry.TextMeasurer measurer = new PreviewGeometry.TextMeasurer() {
+            @Override
+            public float measure(String text, int[] bounds) {
+                mMeasurePaint.getTextBounds(text, 0, text.length(), mMeasureBounds);
+                bounds[0] = mMeasureBounds.left;
+                bounds[1] = mMeasureBounds.top;
+                bounds[2] = mMeasureBounds.right;
+                bounds[3] = mMeasureBounds.bottom;
+                return mMeasurePaint.measureText(text);
+            }
+        };
+
+        PreviewGeometry[] geometries = new PreviewGeometry[mConfigs.size()];
+        for (int i = 0;i < geometries.length;i++) {
+            PreviewConfig config = mConfigs.get(i);
+            float pWidth = config.previewWidth, pHeight = config.previewHeight;
+            if (pWidth <= 0) {
+                pWidth = DEFAULT_PREVIEW_WIDTH * density;
+            } else {
+                pWidth = Math.min(pWidth * density, screenWidth * maxScale);
+            }
+
+            if (pHeight <= 0) {
+                pHeight = DEFAULT_PREVIEW_HEIGHT * density;
+            } else {
+                pHeight = Math.min(pHeight * density, screenHeight * maxScale);
+            }
+            geometries[i] = PreviewGeometry.compute(screenWidth, screenHeight, pWidth, pHeight,
+                    DEFAULT_CORNER_LENGTH, mCrnWidth, SCAN_INSET,
+                    config.showTip ? config.tipText : null, textMarginRect, measurer);
+        }
+        mGeometries = geometries;
     }
 
     /**
@@ -368,6 +646,7 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
     public void setPreviewConfigs(List<PreviewConfig> configs) {
         if (configs != null && configs.size() > 0) {
             mConfigs = configs;
+            mGeometries = null;
             applyConfig(0);
         }
     }
@@ -378,314 +657,463 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
      * 设置内容包括矩形框大小
      * 提示文字内容、是否显示
      * 状态监听
+     * 几何信息已经预先计算，只需要发布对应的快照
      * @param index
      */
     public void applyConfig(int index) {
         if (index < 0 || index >= mConfigs.size()) {
             return;
         }
-
-        PreviewConfig config = mConfigs.get(index);
-        float pWidth = config.previewWidth, pHeight = config.previewHeight;
-        if (pWidth <= 0) {
-            pWidth = DEFAULT_PREVIEW_WIDTH * density;
-        } else {
-            pWidth = Math.min(pWidth * density, screenWidth * maxScale);
-        }
-
-        if (pHeight <= 0) {
-            pHeight = DEFAULT_PREVIEW_HEIGHT * density;
-        } else {
-            pHeight = Math.min(pHeight * density, screenHeight * maxScale);
+        if (mGeometries == null || mGeometries.length != mConfigs.size()) {
+            computeGeometries();
         }
-        computeRect(pWidth, pHeight);
 
+        PreviewConfig config = mConfigs.get(index);
         if (config.listener != null) {
             mChangeListener = config.listener;
         }
 
         mTipText = config.tipText;
+        mShowTip = config.showTip;
         curConfig = index;
 
+        // 矩形框、颜色以及提示文字作为一个整体发布，绘制线程不会看到一半新一半旧的配置
+        publishSnapshot(new RenderSnapshot(index, mGeometries[index],
+                DEFAULT_MASK_COLOR, mCrnColor, mTipTextColor, mPreviewState));
+
         // 通知改变
         if (mDrawTread != null) {
             // 如果不是初始化，那么才会通知改变
-            // 重新绘制背景
-            // 重新设置动画属性
-            // 顺序为1、绘制背景 2、绘制提示文字 3、更新扫描动画属性
-            shouldRedrawBg = true;
-            mShowTip = config.showTip;
-            needChangeAnimator = true;
+            // 绘制线程从当前显示的矩形框过渡到新的矩形框，每帧只重绘相邻两帧之间变化的区域
+            int commands = RenderScheduler.CMD_APPLY_CONFIG;
+            if (mShowTip) {
+                commands |= RenderScheduler.CMD_DRAW_TIP;
+            }
+            mScheduler.post(commands);
+            scheduleTransitionFrames();
         }
     }
 
-    @Override
-    public final void run() {
-        Timer timer = null;
-        while (isDrawRun) {
-            if (!firstDrawBg || shouldRedrawBg) { // 当SurfaceView创建成功时或者收到重新绘制指令时
-                // 只负责绘制双缓冲背景
-                drawBackground();
-            }
+    /**
+     * 请求过渡动画需要的垂直同步信号，连续多次调用只会保留一个回调
+     */
+    private void scheduleTransitionFrames() {
+        int frames = mConfigTransition.getFrames();
+        if (frames == 0 || mChoreographer == null) {
+            return;
+        }
+        mTransitionTicks = frames;
+        mChoreographer.removeFrameCallback(mTransitionCallback);
+        mChoreographer.postFrameCallback(mTransitionCallback);
+    }
 
-            // 绘制提示文字,如果扫描动画没有加载，那么即使设置提示文字也无效
-            if (mShowTip && mScanAnimator != null) {
-                // 擦除上次绘制的提示文字
-                if (!hasSweepTip) {
-                    sweepTipText();
-                }
+    /**
+     * 组件提供的外部接口，在主线程调用
+     * 设置切换界面配置时过渡动画的帧数，默认为12
+     * @param frames 为0时直接切换
+     */
+    public void setConfigTransitionFrames(int frames) {
+        mConfigTransition.setFrames(frames);
+    }
 
-                drawTipText();
-                if (timer != null) {
-                    timer.cancel(); // 取消之前的定时任务
-                }
-                // 启动定时任务，10s后将提示文字擦除
-                timer = new Timer();
-                timer.schedule(new TimerTask() {
-                    @Override
-                    public void run() {
-                        sweepTipText();
-                    }
-                }, 10000);
-            }
+    public int getConfigTransitionFrames() {
+        return mConfigTransition.getFrames();
+    }
 
-            if (needChangeAnimator) {
-                changeAnimatorProperty();
-            }
+    @Override
+    public final void run() {
+        // 循环以及每帧的逻辑见PreviewRenderLoop，平台相关的部分由mRenderHost提供
+        mRenderLoop.run(mScheduler);
+    }
+
+    /**
+     * 距离上次回调超过设置的间隔时，通知主线程回调监听器
+     * @param now
+     */
+    private void requestMetricsReport(long now) {
+        if (mMetricsListener == null || isMetricsReportPending
+                || now - mLastMetricsReportNanos < mMetricsReportIntervalNanos) {
+            return;
         }
+        mLastMetricsReportNanos = now;
+        isMetricsReportPending = true;
+        mHandler.post(mMetricsReporter);
     }
 
     @Override
     public void surfaceCreated(SurfaceHolder holder) {
+        // 上一个Surface销毁后还没有处理的停止消息先执行，不能停止本次开启的动画以及分析线程
+        if (mHandler.hasMessages(MSG_DESTROY)) {
+            mHandler.removeMessages(MSG_DESTROY);
+            stop();
+        }
+
         // 创建并开启绘制线程
         if (mDrawTread == null) {
             isDrawRun = true;
+            mRenderLoop.reset();
+            mRenderer = PreviewRenderers.create(PreviewRenderers.resolve(mRenderBackend, Build.VERSION.SDK_INT), mHolder);
+            mScheduler = new RenderScheduler();
+            // 第一次绘制背景、提示文字以及停止之前发布的检测结果
+            int commands = RenderScheduler.CMD_DRAW_BACKGROUND | RenderScheduler.CMD_DRAW_RESULTS;
+            if (mShowTip) {
+                commands |= RenderScheduler.CMD_DRAW_TIP;
+            }
+            mScheduler.post(commands);
             mDrawTread = new Thread(this);
             mDrawTread.start();
         }
 
+        // 开启分析线程
+        mFramePipeline.start();
+
         // 发送创建消息，开始扫描动画
         show();
     }
 
     @Override
     public final void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
-
+        if (width == screenWidth && height == screenHeight) {
+            return;
+        }
+        // 按照Surface的实际大小重新布局，多窗口或者嵌入在其他布局中时与屏幕大小不同
+        screenWidth = width;
+        screenHeight = height;
+        mGeometries = null;
+        applyConfig(curConfig);
     }
 
     @Override
     public final void surfaceDestroyed(SurfaceHolder holder) {
+        // 返回之后Surface不再可用，绘制线程必须在返回之前停止
+        stopDrawThread();
+
+        // 动画、分析线程以及检测结果在主线程的消息中停止
         Message msg = new Message();
         msg.what = MSG_DESTROY;
         mHandler.sendMessage(msg);
     }
 
-    /**
-     * 初始化扫描动画
-     */
-    private void initScanAnimator() {
-        float left = mRect.left + DEFAULT_CORNER_LENGTH / 2;
-        float right = mRect.right - DEFAULT_CORNER_LENGTH / 2;
-        final RectF oval = new RectF(left, 0, right, 0);
-        final int shortAxis = 5;
-
-        PropertyValuesHolder lineValues = PropertyValuesHolder.ofFloat("down", mRect.top + 5, mRect.bottom - 5);
-        mScanAnimator = ValueAnimator.ofPropertyValuesHolder(lineValues);
-        mScanAnimator.setDuration(3000);
-        mScanAnimator.setRepeatMode(ValueAnimator.RESTART);
-        mScanAnimator.setRepeatCount(ValueAnimator.INFINITE);
-        mScanAnimator.setInterpolator(new AccelerateDecelerateInterpolator());
-        mScanAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float centerY = obj2Float(animation.getAnimatedValue("down"));
-                oval.top = centerY - shortAxis;
-                oval.bottom = centerY + shortAxis;
-                // 此处只锁定矩形框的绘制区域即可，否则会有轻微闪烁
-                try {
-                    mCanvas = mHolder.lockCanvas(new Rect((int) mRect.left, (int) mRect.top, (int) mRect.right,(int) mRect.bottom));
-//                mCanvas = mHolder.lockCanvas();
-                    if (mCanvas != null) {
-                        drawRectACrn();
-                        mScanPaint.setShader(new RadialGradient(oval.centerX(), oval.centerY(), oval.width() / 2,
-                                Color.argb(200, 0, 255, 0), Color.argb(0, 0, 255, 0),
-                                Shader.TileMode.REPEAT));
-                        mCanvas.drawOval(oval, mScanPaint);
-                        mHolder.unlockCanvasAndPost(mCanvas);
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        });
-    }
-
     /**
      * 创建显示扫描动画
      */
     private void show() {
         // 创建并开启扫描动画
-        if (mScanAnimator == null) {
-            initScanAnimator();
+        if (mScanTimeline == null) {
+            mScanTimeline = new ScanTimeline(DEFAULT_SCAN_DURATION);
             isAnimatorRun = true;
             updatePreviewState();
-            mScanAnimator.start();
+            scheduleScanFrames();
         }
     }
 
     /**
-     * 停止绘制线程以及动画
+     * 暂停扫描动画，扫描线停留在当前位置
      */
-    private void stop() {
+    private void pauseScan() {
+        if (mScanTimeline == null || !isAnimatorRun) {
+            return;
+        }
+        isAnimatorRun = false;
+        mChoreographer.removeFrameCallback(mFrameCallback);
+        mScanTimeline.pause(System.nanoTime());
+        // 暂停期间不计入帧间隔
+        mScheduler.post(RenderScheduler.CMD_RESET_FRAME_CLOCK);
+    }
+
+    /**
+     * 从暂停位置继续扫描动画
+     */
+    private void resumeScan() {
+        if (mScanTimeline == null || isAnimatorRun) {
+            return;
+        }
+        mScanTimeline.resume(System.nanoTime());
+        isAnimatorRun = true;
+        mFrameRateGovernor.reset();
+        scheduleScanFrames();
+    }
+
+    /**
+     * 按照当前目标帧率重新注册垂直同步回调，目标帧率为0时不再绘制扫描帧
+     * 先移除再注册，避免同一个回调在一帧中执行两次
+     */
+    private void scheduleScanFrames() {
+        mChoreographer.removeFrameCallback(mFrameCallback);
+        if (isAnimatorRun && mFrameRateGovernor.getTargetFps() > 0) {
+            mChoreographer.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /**
+     * 目标帧率改变，不需要重新创建Surface
+     */
+    private void onFrameRateChanged() {
+        RenderScheduler scheduler = mScheduler;
+        if (scheduler != null) {
+            // 帧率改变前后的帧间隔不能放在一起统计
+            scheduler.post(RenderScheduler.CMD_RESET_FRAME_CLOCK);
+        }
+        scheduleScanFrames();
+    }
+
+    /**
+     * 组件提供的外部接口，在主线程调用
+     * 设置某个状态下扫描动画的帧率，默认检测状态为60，暂停以及完成状态为0
+     * @param state
+     * @param fps 为0时该状态不绘制扫描帧
+     */
+    public void setFrameRate(PreviewState state, int fps) {
+        if (mFrameRateGovernor.setStateFps(state, fps)) {
+            onFrameRateChanged();
+        }
+    }
+
+    /**
+     * 组件提供的外部接口，在主线程调用
+     * 设置低功耗模式、过热或者电量低时的帧率，默认为15
+     * @param fps 至少为1
+     */
+    public void setLowPowerFrameRate(int fps) {
+        if (mFrameRateGovernor.setLowPowerFps(fps)) {
+            onFrameRateChanged();
+        }
+    }
+
+    /**
+     * 组件提供的外部接口，在主线程调用
+     * 开启或关闭低功耗模式
+     * @param lowPowerMode
+     */
+    public void setLowPowerMode(boolean lowPowerMode) {
+        if (mFrameRateGovernor.setLowPowerMode(lowPowerMode)) {
+            onFrameRateChanged();
+        }
+    }
+
+    /**
+     * 组件提供的外部接口，在主线程调用
+     * 设置温度状态来源，过热时降低到低功耗帧率
+     * @param provider 为null时不再检查温度
+     */
+    public void setThermalProvider(FrameRateGovernor.ThermalProvider provider) {
+        mFrameRateGovernor.setThermalProvider(provider);
+    }
+
+    /**
+     * 组件提供的外部接口，在主线程调用
+     * 设置电池状态来源，电量低时降低到低功耗帧率
+     * @param provider 为null时不再检查电量
+     */
+    public void setBatteryProvider(FrameRateGovernor.BatteryProvider provider) {
+        mFrameRateGovernor.setBatteryProvider(provider);
+    }
+
+    /**
+     * 返回帧率调节器，可以读取当前目标帧率
+     * @return
+     */
+    public FrameRateGovernor getFrameRateGovernor() {
+        return mFrameRateGovernor;
+    }
+
+    /**
+     * 停止绘制线程并等待它退出，在surfaceDestroyed中调用
+     * 绘制线程可能正在锁定或者提交画布，最多等待DRAW_THREAD_JOIN_TIMEOUT
+     */
+    private void stopDrawThread() {
+        Thread drawThread = mDrawTread;
+        if (drawThread == null) {
+            return;
+        }
+        isDrawRun = false;
+        mScheduler.quit();
+        mDrawTread = null;
         try {
-            // 停止背景绘制线程
-            isDrawRun = false;
-            mDrawTread.interrupt();
-            mDrawTread = null;
+            drawThread.join(DRAW_THREAD_JOIN_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (drawThread.isAlive()) {
+            Log.w(TAG, "draw thread did not stop within " + DRAW_THREAD_JOIN_TIMEOUT + "ms");
+        }
+    }
 
-            // 停止扫描动画
+    /**
+     * 停止动画、分析线程并清除检测结果，绘制线程已经在surfaceDestroyed中停止
+     */
+    private void stop() {
+        try {
+            // 停止扫描动画以及配置过渡
+            mChoreographer.removeFrameCallback(mFrameCallback);
+            mChoreographer.removeFrameCallback(mTransitionCallback);
+            mTransitionTicks = 0;
             isAnimatorRun = false;
             updatePreviewState();
-            mScanAnimator.end();
-            mScanAnimator = null;
+            mScanTimeline = null;
 
-            // 设置下次启动时，重新绘制背景
-            shouldRedrawBg = true;
+            // 停止分析线程，清除检测结果
+            mFramePipeline.quit();
+            mResultOverlay.publish(mResultOverlay.obtain());
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * 负责更新扫描动画属性
+     * 返回扫描帧间隔的统计结果
+     * @return 调用时刻统计结果的拷贝
      */
-    private void changeAnimatorProperty() {
-        PropertyValuesHolder values = PropertyValuesHolder.ofFloat("down", mRect.top + 5, mRect.bottom - 5);
-        mScanAnimator.setValues(values);
-
-        // 更新标志位
-        needChangeAnimator = false;
+    public FrameTimeHistogram getFrameTimeHistogram() {
+        return mRenderLoop.getFrameHistogram().snapshot();
     }
 
     /**
-     * 负责绘制背景
+     * 组件提供的外部接口
+     * 开启或关闭绘制统计，关闭时保留已有的统计结果
+     * @param enabled
      */
-    private void drawBackground() {
-        // 绘制矩形以及边角,因为双缓冲，所以绘制两次背景
-        for (int i = 0;i < 2;i++) {
-            try {
-                mCanvas = mHolder.lockCanvas();
-                if (mCanvas != null) {
-//                    clearCanvas(mCanvas);
-                    // 绘制整个Canvas的背景色
-                    mCanvas.drawARGB(200, 0, 0, 0);
-                    mHolder.unlockCanvasAndPost(mCanvas);
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+    public void setRenderMetricsEnabled(boolean enabled) {
+        isMetricsEnabled = enabled;
+    }
 
-        // 绘制成功后将重置相关标志位
-        firstDrawBg = true;
-        shouldRedrawBg = false;
+    public boolean isRenderMetricsEnabled() {
+        return isMetricsEnabled;
     }
 
-    // 清空画布操作,参数为锁定的画布
-    private void clearCanvas(Canvas canvas) {
-        Paint paint = new Paint();
-        paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
-        canvas.drawPaint(paint);
+    /**
+     * 返回开启统计以来的绘制统计
+     * @return 调用时刻统计结果的拷贝
+     */
+    public RenderMetrics getRenderMetrics() {
+        return mRenderMetrics.snapshot();
     }
 
     /**
-     * 负责绘制提示文字
-     * 在绘制文字之前确保mRect已经更新
+     * 清零绘制统计
      */
-    private void drawTipText() {
-        textBounds = new Rect();
-        mTextPaint.getTextBounds(mTipText, 0, mTipText.length(), textBounds);
-        for (int i = 0;i < 2;i++) {
-            try {
-                mCanvas = mHolder.lockCanvas();
-                // 绘制时bug，y为baseline坐标
-                if (mCanvas != null) {
-                    mCanvas.drawText(mTipText, mRect.centerX(), mRect.bottom + textMarginRect + textBounds.height(), mTextPaint);
-                    mHolder.unlockCanvasAndPost(mCanvas);
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+    public void resetRenderMetrics() {
+        mRenderMetrics.reset();
+    }
+
+    /**
+     * 组件提供的外部接口
+     * 设置绘制统计监听器，开启统计时按照间隔在主线程回调，回调时不分配内存
+     * @param listener 为null时不再回调
+     * @param intervalMillis 两次回调之间的最小间隔
+     */
+    public void setOnRenderMetricsListener(OnRenderMetricsListener listener, long intervalMillis) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("intervalMillis must not be negative!");
         }
+        mMetricsReportIntervalNanos = intervalMillis * 1000000L;
+        mMetricsListener = listener;
+    }
 
-        // 更新相关标志位
-        mShowTip = false;
-        hasSweepTip = false;
+    /**
+     * 返回缓存图层占用的内存大小
+     * @return 字节数，图层还没有绘制时为0
+     */
+    public int getOverlayCacheBytes() {
+        return mOverlay.getByteCount();
     }
 
     /**
-     * 负责擦除文字
-     * 擦出文字的区域是根据mRect以及旧的文字算出来，所以在重新设置新的提示文字之前，应该先擦除提示文字
+     * 锁定并重绘本次需要更新的区域
+     * SurfaceView是双缓冲的，后台缓冲区的内容可能比当前显示的旧一帧。lockCanvas会尽量从前台缓冲区拷贝
+     * 未锁定的部分，无法拷贝时会把锁定区域扩大，因此这里以lockCanvas返回的区域为准重绘，
+     * 而不是像之前那样把所有内容绘制两次
+     * GPU后端不保留上一帧的内容，每次都重绘整个Surface
+     * @param frameDirty 本帧需要更新的区域
+     * @param snapshot
+     * @param metrics 没有开启统计时为null
      */
-    private void sweepTipText() {
-        // 由于精度转换，可能边框显示未擦除
-        Rect rect = new Rect((int)(mRect.centerX() - textBounds.width() / 2.0f),(int)(mRect.bottom + textMarginRect),
-                (int)(mRect.centerX() + textBounds.width() / 2.0f),(int)(mRect.bottom + textMarginRect + textBounds.height() + 5));
-        for (int i = 0;i < 2;i++) {
-            try {
-                mCanvas = mHolder.lockCanvas(rect);
-                if (mCanvas != null) {
-                    mCanvas.drawPaint(mRectPaint);
-                    mCanvas.drawARGB(200, 0, 0, 0);
-                    mHolder.unlockCanvasAndPost(mCanvas);
+    private void renderDirtyRegion(DirtyRegion frameDirty, RenderSnapshot snapshot, RenderMetrics metrics) {
+        PreviewRenderer renderer = mRenderer;
+        if (renderer.supportsPartialUpdate()) {
+            mLockDirty.set(frameDirty.getLeft(), frameDirty.getTop(), frameDirty.getRight(), frameDirty.getBottom());
+        } else {
+            mLockDirty.set(0, 0, snapshot.geometry.surfaceWidth, snapshot.geometry.surfaceHeight);
+        }
+        Canvas canvas = null;
+        try {
+            long lockStart = metrics != null ? System.nanoTime() : 0;
+            canvas = renderer.lockCanvas(mLockDirty);
+            if (canvas != null) {
+                long drawStart = metrics != null ? System.nanoTime() : 0;
+                drawRegion(canvas, mLockDirty);
+                long unlockStart = metrics != null ? System.nanoTime() : 0;
+                renderer.unlockCanvasAndPost(canvas);
+                mPushedPixels += (long) mLockDirty.width() * mLockDirty.height();
+                mPushedFrames++;
+                if (metrics != null) {
+                    metrics.recordFrame(drawStart - lockStart, unlockStart - drawStart, System.nanoTime() - unlockStart);
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
+            } else if (metrics != null) {
+                metrics.recordLockFailure();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            if (canvas == null && metrics != null) {
+                metrics.recordLockFailure();
+            }
+            if (renderer.isHardwareAccelerated()) {
+                // GPU后端不可用时退回软件绘制，重绘整个Surface
+                mRenderer = new SoftwarePreviewRenderer(mHolder);
+                mScheduler.post(RenderScheduler.CMD_DRAW_BACKGROUND);
             }
         }
-
-        // 更新标志位
-        hasSweepTip = true;
     }
 
     /**
-     * 负责绘制矩形区域以及边角
-     * 需要确保已经获取锁定的Canvas
-     * 此方法用在lockCanvas和UnlockCanvas之间
+     * 按照本帧的状态绘制指定区域
+     * @param canvas 已经锁定的画布
+     * @param dirty 需要绘制的区域
      */
-    private void drawRectACrn() {
-        if (mCanvas != null) {
-            // 绘制矩形框
-            mCanvas.drawRect(mRect, mRectPaint);
+    private void drawRegion(Canvas canvas, Rect dirty) {
+        mPreviewCanvas.setCanvas(canvas);
+        mPreviewCanvas.setLayer(mOverlay.getBitmap());
+        mRenderLoop.paintRegion(mPreviewCanvas, dirty.left, dirty.top, dirty.right, dirty.bottom);
+    }
 
-            /**
-             * |----左上角
-             * |
-             */
-            mCanvas.drawLine(mRect.left, mRect.top + DEFAULT_CORNER_LENGTH, mRect.left, mRect.top, mCrnPaint);
-            mCanvas.drawLine(mRect.left, mRect.top, mRect.left + DEFAULT_CORNER_LENGTH, mRect.top, mCrnPaint);
+    /**
+     * 组件提供的外部接口
+     * 设置绘制后端，下次创建Surface时生效
+     * @param backend
+     */
+    public void setRenderBackend(RenderBackend backend) {
+        if (backend == null) {
+            throw new IllegalArgumentException("backend must not be null!");
+        }
+        mRenderBackend = backend;
+    }
 
-            /**
-             * -----| 右上角
-             *      |
-             */
-            mCanvas.drawLine(mRect.right - DEFAULT_CORNER_LENGTH, mRect.top, mRect.right, mRect.top, mCrnPaint);
-            mCanvas.drawLine(mRect.right, mRect.top, mRect.right, mRect.top + DEFAULT_CORNER_LENGTH, mCrnPaint);
+    /**
+     * 返回实际使用的绘制后端
+     * @return Surface没有创建时按照当前设置以及API版本返回将要使用的后端
+     */
+    public RenderBackend getRenderBackend() {
+        PreviewRenderer renderer = mRenderer;
+        if (renderer == null) {
+            return PreviewRenderers.resolve(mRenderBackend, Build.VERSION.SDK_INT);
+        }
+        return renderer.isHardwareAccelerated() ? RenderBackend.HARDWARE : RenderBackend.SOFTWARE;
+    }
 
-            /**
-             *      | 右下角
-             * -----|
-             */
-            mCanvas.drawLine(mRect.right, mRect.bottom - DEFAULT_CORNER_LENGTH, mRect.right, mRect.bottom, mCrnPaint);
-            mCanvas.drawLine(mRect.right, mRect.bottom, mRect.right - DEFAULT_CORNER_LENGTH, mRect.bottom, mCrnPaint);
+    /**
+     * 返回提交到Surface的像素总数，用于评估每帧的绘制量
+     * @return
+     */
+    public long getPushedPixelCount() {
+        return mPushedPixels;
+    }
 
-            /**
-             * |      左下角
-             * |-----
-             */
-            mCanvas.drawLine(mRect.left + DEFAULT_CORNER_LENGTH, mRect.bottom, mRect.left, mRect.bottom, mCrnPaint);
-            mCanvas.drawLine(mRect.left, mRect.bottom, mRect.left, mRect.bottom - DEFAULT_CORNER_LENGTH, mCrnPaint);
-        }
+    /**
+     * 返回提交到Surface的次数
+     * @return
+     */
+    public long getPushedFrameCount() {
+        return mPushedFrames;
     }
 
 //    private void drawScan() {
@@ -727,10 +1155,6 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
 //        }
 //    }
 
-    private float obj2Float(Object o) {
-        return ((Number) o).floatValue();
-    }
-
     public void setChangeListener(OnPreviewChangeListener changeListener) {
         this.mChangeListener = changeListener;
     }
@@ -738,6 +1162,7 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
     private void setPreviewState(PreviewState previewState) {
         if (mPreviewState != previewState) {
             mPreviewState = previewState;
+            onPreviewStateChanged();
             Message msg = null;
             switch (previewState) {
                 case READY:
@@ -746,7 +1171,7 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
                 case DETECTING:
 //                    mChangeListener.onDetecting();
                     msg = new Message();
-                    if (mScanAnimator == null) {
+                    if (mScanTimeline == null) {
                         msg.what = MSG_CREATE;
                     } else {
                         msg.what = MSG_RESTART;
@@ -790,6 +1215,177 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
         return mRect;
     }
 
+    /**
+     * 组件提供的外部接口
+     * 设置摄像头帧分析器，之后通过submitFrame提交的预览帧只会把矩形框区域交给分析器
+     * @param analyzer 为null时不再分析
+     */
+    public void setFrameAnalyzer(FrameAnalyzer analyzer) {
+        mFrameAnalyzer = analyzer;
+    }
+
+    /**
+     * 组件提供的外部接口
+     * 注册检测器，每一帧矩形框区域会在检测线程池中同时交给所有检测器
+     * @param detector 重复注册时更新超时时间
+     * @param timeoutMillis 超过这个时间没有完成的结果会被丢弃，并标记为超时
+     */
+    public void addDetector(Detector detector, long timeoutMillis) {
+        mDetectorExecutor.addDetector(detector, timeoutMillis);
+    }
+
+    /**
+     * 组件提供的外部接口
+     * 以默认超时时间注册检测器
+     * @param detector
+     */
+    public void addDetector(Detector detector) {
+        addDetector(detector, DEFAULT_DETECT_TIMEOUT);
+    }
+
+    public void removeDetector(Detector detector) {
+        mDetectorExecutor.removeDetector(detector);
+    }
+
+    /**
+     * 组件提供的外部接口
+     * 设置检测结果监听器，每一帧所有检测器完成或者超时后在主线程回调
+     * @param listener
+     */
+    public void setOnDetectListener(OnDetectListener listener) {
+        mDetectorExecutor.setListener(listener);
+    }
+
+    /**
+     * 组件提供的外部接口
+     * 取得一个空的检测结果批次，可以在任意线程调用
+     * @return 填充之后通过publishResults发布
+     */
+    public ResultBatch obtainResultBatch() {
+        return mResultOverlay.obtain();
+    }
+
+    /**
+     * 组件提供的外部接口
+     * 发布一批检测结果，替换之前显示的结果，不会阻塞调用线程
+     * 绘制线程在下一帧取走最新发布的批次，两帧之间发布的其他批次直接丢弃
+     * @param batch 由obtainResultBatch取得，发布之后不能再修改，发布空的批次可以清除结果
+     */
+    public void publishResults(ResultBatch batch) {
+        mResultOverlay.publish(batch);
+        RenderScheduler scheduler = mScheduler;
+        if (scheduler != null) {
+            scheduler.post(RenderScheduler.CMD_DRAW_RESULTS);
+        }
+    }
+
+    /**
+     * 组件提供的外部接口
+     * 清除显示的检测结果
+     */
+    public void clearResults() {
+        publishResults(obtainResultBatch());
+    }
+
+    /**
+     * 从复用池中取得预览帧缓冲区，可以直接交给Camera.addCallbackBuffer
+     * 通过submitFrame提交的byte[]在分析完成后会回到复用池
+     * @param size 缓冲区大小，NV21格式为width * height * 3 / 2
+     * @return
+     */
+    public byte[] obtainFrameBuffer(int size) {
+        return mFramePool.acquireBuffer(size);
+    }
+
+    /**
+     * 组件提供的外部接口
+     * 提交一帧摄像头预览数据，矩形框区域进入分析队列后立即返回
+     * 队列满、暂停或者Surface没有创建时该帧会被丢弃
+     * @param data 预览帧数据，分析完成后回到复用池
+     * @param width 传感器图像宽度
+     * @param height 传感器图像高度
+     * @param rotation 图像需要顺时针旋转多少度才能与预览画面方向一致，只能是0、90、180、270
+     * @param format ImageFormat中的格式常量，例如ImageFormat.NV21
+     */
+    public void submitFrame(byte[] data, int width, int height, int rotation, int format) {
+        if (data == null) {
+            throw new IllegalArgumentException("data must not be null!");
+        }
+        submitFrame(data, null, width, 1, width, height, rotation, format);
+    }
+
+    /**
+     * 组件提供的外部接口
+     * 与submitFrame(byte[], int, int, int, int)相同，用于Camera2等以ByteBuffer提供亮度平面的情况
+     * 矩形框区域在返回之前拷贝到复用的缓冲区中，返回之后可以立即关闭Image或者复用data
+     * @param data 亮度平面数据，从position开始是第一行第一个像素，position不会改变
+     * @param width 传感器图像宽度
+     * @param height 传感器图像高度
+     * @param rowStride 每行的字节数，即Image.Plane.getRowStride()，可以大于width
+     * @param pixelStride 相邻像素之间的字节数，即Image.Plane.getPixelStride()
+     * @param rotation 图像需要顺时针旋转多少度才能与预览画面方向一致，只能是0、90、180、270
+     * @param format ImageFormat中的格式常量，例如ImageFormat.YUV_420_888
+     * @throws IllegalArgumentException 步长不合法或者data剩余的字节数不足一帧时
+     */
+    public void submitFrame(ByteBuffer data, int width, int height, int rowStride, int pixelStride,
+                            int rotation, int format) {
+        if (data == null) {
+            throw new IllegalArgumentException("data must not be null!");
+        }
+        PreviewFrame.checkPlane(data, width, height, rowStride, pixelStride);
+        submitFrame(null, data, rowStride, pixelStride, width, height, rotation, format);
+    }
+
+    private void submitFrame(byte[] data, ByteBuffer buffer, int rowStride, int pixelStride,
+                             int width, int height, int rotation, int format) {
+        FrameAnalyzer analyzer = mFrameAnalyzer;
+        if (analyzer == null && mDetectorExecutor.getDetectorCount() == 0) {
+            mFramePool.releaseBuffer(data);
+            return;
+        }
+
+        PreviewFrame frame = mFramePool.obtainFrame();
+        frame.set(data, width, height, rotation, format, System.nanoTime());
+        mapRoi(frame);
+        if (buffer != null) {
+            // 调用方在返回之后会关闭或者复用ByteBuffer，分析线程只能读取拷贝
+            frame.copyRoi(buffer, rowStride, pixelStride,
+                    mFramePool.acquireBuffer(frame.getRoiWidth() * frame.getRoiHeight()));
+        }
+        mFramePipeline.offer(frame);
+    }
+
+    /**
+     * 组件提供的外部接口
+     * 设置分析队列的深度以及丢帧策略，默认深度为2，丢弃最早的帧
+     * @param depth 至少为1
+     * @param policy
+     */
+    public void setFramePipelinePolicy(int depth, FramePipeline.DropPolicy policy) {
+        mFramePipeline.configure(depth, policy);
+    }
+
+    /**
+     * 返回分析队列，可以读取接收、丢弃、分析的帧数以及延迟
+     * @return
+     */
+    public FramePipeline getFramePipeline() {
+        return mFramePipeline;
+    }
+
+    /**
+     * 把矩形框从视图坐标映射到预览帧的传感器坐标
+     * @param frame
+     */
+    private void mapRoi(PreviewFrame frame) {
+        int[] roi = mRoiOut.get();
+        PreviewGeometry geometry = mSnapshot.get().geometry;
+        RoiMapper.map(geometry.surfaceWidth, geometry.surfaceHeight,
+                geometry.rectLeft, geometry.rectTop, geometry.rectRight, geometry.rectBottom,
+                frame.getWidth(), frame.getHeight(), frame.getRotation(), roi);
+        frame.setRoi(roi[0], roi[1], roi[2], roi[3]);
+    }
+
     private void updatePreviewState() {
         if (isAnimatorRun) {
             switch (mPreviewState) {
@@ -808,5 +1404,29 @@ public class FacePreview extends SurfaceView implements SurfaceHolder.Callback,
                         mChangeListener.onPause();
             }
         }
+        onPreviewStateChanged();
+    }
+
+    /**
+     * 暂停以及完成状态下不再分析摄像头帧，同时按照新的状态调整帧率
+     */
+    private void onPreviewStateChanged() {
+        // 只替换快照中的状态，其他线程可能同时发布新的配置
+        while (true) {
+            RenderSnapshot current = mSnapshot.get();
+            RenderSnapshot next = current.withState(mPreviewState);
+            if (next == current || mSnapshot.compareAndSet(current, next)) {
+                break;
+            }
+        }
+
+        boolean suspended = mPreviewState == PreviewState.PAUSE || mPreviewState == PreviewState.COMPLETE;
+        mFramePipeline.setSuspended(suspended);
+        if (mFrameRateGovernor.setState(mPreviewState)) {
+            onFrameRateChanged();
+        }
+        if (suspended) {
+            clearResults();
+        }
     }
 }
@@ -0,0 +1,16 @@
+package cn.ltaoj.widget;
+
+/**
+ * 摄像头帧分析接口
+ * 通过FacePreview.setFrameAnalyzer()设置，每一帧只会收到矩形框对应的区域
+ */
+
+public interface FrameAnalyzer {
+
+    /**
+     * 分析一帧图像，在FacePreview的分析线程调用
+     * 返回之后frame会被回收，不要在方法外保存frame或者它的数据
+     * @param frame 矩形框区域的视图，与摄像头数据共享同一块内存
+     */
+    void analyze(PreviewFrame frame);
+}
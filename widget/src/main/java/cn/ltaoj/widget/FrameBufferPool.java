@@ -0,0 +1,78 @@
+package cn.ltaoj.widget;
+
+import java.util.ArrayDeque;
+
+/**
+ * 预览帧数据缓冲区以及PreviewFrame对象的复用池
+ * 摄像头回调线程、分析线程都会访问，所有方法都是同步的
+ */
+
+final class FrameBufferPool {
+    private final int mMaxPooled;
+    private final ArrayDeque<byte[]> mBuffers = new ArrayDeque<byte[]>();
+    private final ArrayDeque<PreviewFrame> mFrames = new ArrayDeque<PreviewFrame>();
+
+    /**
+     * @param maxPooled 最多保留的空闲缓冲区个数
+     */
+    FrameBufferPool(int maxPooled) {
+        mMaxPooled = maxPooled;
+    }
+
+    /**
+     * 取得一个不小于size的缓冲区，没有合适的空闲缓冲区时新建
+     * @param size
+     * @return
+     */
+    synchronized byte[] acquireBuffer(int size) {
+        int count = mBuffers.size();
+        for (int i = 0;i < count;i++) {
+            byte[] buffer = mBuffers.pollFirst();
+            if (buffer.length >= size) {
+                return buffer;
+            }
+            // 大小不合适的缓冲区直接丢弃，预览尺寸改变后旧的缓冲区不会再被使用
+        }
+        return new byte[size];
+    }
+
+    synchronized void releaseBuffer(byte[] buffer) {
+        if (buffer != null && mBuffers.size() < mMaxPooled && !containsBuffer(buffer)) {
+            mBuffers.addLast(buffer);
+        }
+    }
+
+    synchronized PreviewFrame obtainFrame() {
+        PreviewFrame frame = mFrames.pollFirst();
+        return frame != null ? frame : new PreviewFrame();
+    }
+
+    /**
+     * 回收PreviewFrame，同时回收它持有的byte[]缓冲区
+     * 已经detach的帧交给GC，不再复用
+     * @param frame
+     */
+    synchronized void recycleFrame(PreviewFrame frame) {
+        if (frame.isDetached()) {
+            return;
+        }
+        releaseBuffer(frame.getData());
+        frame.clear();
+        if (mFrames.size() < mMaxPooled) {
+            mFrames.addLast(frame);
+        }
+    }
+
+    synchronized int getPooledBufferCount() {
+        return mBuffers.size();
+    }
+
+    private boolean containsBuffer(byte[] buffer) {
+        for (byte[] pooled : mBuffers) {
+            if (pooled == buffer) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
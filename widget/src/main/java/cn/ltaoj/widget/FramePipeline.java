@@ -0,0 +1,265 @@
+package cn.ltaoj.widget;
+
+/**
+ * 摄像头与检测器之间的有界帧队列
+ * 摄像头线程通过offer()提交预览帧，分析线程按顺序取出交给Sink
+ * 队列满时按照DropPolicy丢弃帧，因此无论检测器多慢，一帧从提交到分析完成的延迟都不会超过(depth + 1)次分析的时间
+ */
+
+public final class FramePipeline implements Runnable {
+    private static final String TAG = "FramePipeline";
+
+    /**
+     * DROP_OLDEST: 队列满时丢弃最早进入队列的帧
+     * KEEP_LATEST: 每次提交都丢弃队列中所有等待的帧，分析线程总是拿到最新的一帧
+     */
+    public enum DropPolicy {
+        DROP_OLDEST,
+        KEEP_LATEST
+    }
+
+    /**
+     * 分析线程取出帧之后的处理
+     */
+    interface Sink {
+        void onFrame(PreviewFrame frame);
+    }
+
+    private final FrameBufferPool mPool;
+    private final Sink mSink;
+
+    private final Object mLock = new Object();
+    // 环形队列
+    private PreviewFrame[] mQueue;
+    private int mHead;
+    private int mCount;
+    private DropPolicy mPolicy = DropPolicy.DROP_OLDEST;
+
+    // 暂停或完成状态时不接收新的帧
+    private boolean isSuspended;
+    private Thread mWorker;
+
+    // 统计
+    private long mReceived;
+    private long mDropped;
+    private long mAnalyzed;
+    private long mLastLatencyNanos;
+    private long mMaxLatencyNanos;
+
+    FramePipeline(FrameBufferPool pool, Sink sink) {
+        mPool = pool;
+        mSink = sink;
+        mQueue = new PreviewFrame[2];
+    }
+
+    /**
+     * 设置队列深度以及丢帧策略，队列中超出新深度的帧会被丢弃
+     * @param depth 至少为1
+     * @param policy
+     */
+    void configure(int depth, DropPolicy policy) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth must be at least 1!");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("policy must not be null!");
+        }
+        synchronized (mLock) {
+            while (mCount > depth) {
+                dropOldestLocked();
+            }
+            PreviewFrame[] queue = new PreviewFrame[depth];
+            for (int i = 0;i < mCount;i++) {
+                queue[i] = mQueue[(mHead + i) % mQueue.length];
+            }
+            mQueue = queue;
+            mHead = 0;
+            mPolicy = policy;
+        }
+    }
+
+    /**
+     * 开启分析线程
+     */
+    void start() {
+        synchronized (mLock) {
+            if (mWorker != null) {
+                return;
+            }
+            mWorker = new Thread(this, TAG);
+            mWorker.start();
+        }
+    }
+
+    /**
+     * 停止分析线程，丢弃队列中等待的帧
+     * 正在分析的帧会在分析完成后回收
+     */
+    void quit() {
+        synchronized (mLock) {
+            mWorker = null;
+            while (mCount > 0) {
+                dropOldestLocked();
+            }
+            mLock.notifyAll();
+        }
+    }
+
+    /**
+     * 暂停时丢弃队列中等待的帧，之后提交的帧直接丢弃
+     * @param suspended
+     */
+    void setSuspended(boolean suspended) {
+        synchronized (mLock) {
+            isSuspended = suspended;
+            if (suspended) {
+                while (mCount > 0) {
+                    dropOldestLocked();
+                }
+            }
+        }
+    }
+
+    /**
+     * 提交一帧，不会阻塞调用线程
+     * 被丢弃的帧会立即回收
+     * @param frame
+     * @return 是否进入队列
+     */
+    boolean offer(PreviewFrame frame) {
+        synchronized (mLock) {
+            mReceived++;
+            if (isSuspended || mWorker == null) {
+                mDropped++;
+                mPool.recycleFrame(frame);
+                return false;
+            }
+
+            if (mPolicy == DropPolicy.KEEP_LATEST) {
+                while (mCount > 0) {
+                    dropOldestLocked();
+                }
+            } else if (mCount == mQueue.length) {
+                dropOldestLocked();
+            }
+
+            mQueue[(mHead + mCount) % mQueue.length] = frame;
+            mCount++;
+            mLock.notifyAll();
+            return true;
+        }
+    }
+
+    @Override
+    public void run() {
+        Thread self = Thread.currentThread();
+        while (true) {
+            PreviewFrame frame;
+            synchronized (mLock) {
+                while (mCount == 0 && mWorker == self) {
+                    try {
+                        mLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (mWorker != self) {
+                    return;
+                }
+                frame = mQueue[mHead];
+                mQueue[mHead] = null;
+                mHead = (mHead + 1) % mQueue.length;
+                mCount--;
+            }
+
+            try {
+                mSink.onFrame(frame);
+            } finally {
+                long latency = System.nanoTime() - frame.getTimestampNanos();
+                mPool.recycleFrame(frame);
+                synchronized (mLock) {
+                    mAnalyzed++;
+                    mLastLatencyNanos = latency;
+                    if (latency > mMaxLatencyNanos) {
+                        mMaxLatencyNanos = latency;
+                    }
+                }
+            }
+        }
+    }
+
+    private void dropOldestLocked() {
+        PreviewFrame frame = mQueue[mHead];
+        mQueue[mHead] = null;
+        mHead = (mHead + 1) % mQueue.length;
+        mCount--;
+        mDropped++;
+        mPool.recycleFrame(frame);
+    }
+
+    /**
+     * @return 提交的帧数
+     */
+    public long getReceivedCount() {
+        synchronized (mLock) {
+            return mReceived;
+        }
+    }
+
+    /**
+     * @return 因队列满、暂停或者没有开启而丢弃的帧数
+     */
+    public long getDroppedCount() {
+        synchronized (mLock) {
+            return mDropped;
+        }
+    }
+
+    /**
+     * @return 分析完成的帧数
+     */
+    public long getAnalyzedCount() {
+        synchronized (mLock) {
+            return mAnalyzed;
+        }
+    }
+
+    /**
+     * @return 队列中等待分析的帧数
+     */
+    public int getQueuedCount() {
+        synchronized (mLock) {
+            return mCount;
+        }
+    }
+
+    /**
+     * @return 最近一帧从提交到分析完成的时间
+     */
+    public long getLastLatencyNanos() {
+        synchronized (mLock) {
+            return mLastLatencyNanos;
+        }
+    }
+
+    /**
+     * @return 从提交到分析完成的最长时间
+     */
+    public long getMaxLatencyNanos() {
+        synchronized (mLock) {
+            return mMaxLatencyNanos;
+        }
+    }
+
+    public int getDepth() {
+        synchronized (mLock) {
+            return mQueue.length;
+        }
+    }
+
+    public DropPolicy getPolicy() {
+        synchronized (mLock) {
+            return mPolicy;
+        }
+    }
+}
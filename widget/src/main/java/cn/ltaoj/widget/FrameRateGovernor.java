@@ -0,0 +1,205 @@
+package cn.ltaoj.widget;
+
+/**
+ * FacePreview扫描动画的帧率调节
+ * 按照PreviewState选择目标帧率，低功耗模式、设备过热或者电量低时降低到低功耗帧率
+ * 通过跳过垂直同步信号达到目标帧率，不需要重新创建Surface
+ * 只在主线程访问
+ */
+
+public final class FrameRateGovernor {
+    // 默认检测状态帧率
+    static final int DEFAULT_DETECTING_FPS = 60;
+    // 默认低功耗帧率
+    static final int DEFAULT_LOW_POWER_FPS = 15;
+    // 查询温度以及电量的间隔
+    static final long PROVIDER_POLL_NANOS = 1000000000L;
+    // 垂直同步时间的抖动容差
+    private static final long VSYNC_SLACK_NANOS = 2000000L;
+
+    /**
+     * 设备温度状态，例如由PowerManager.getCurrentThermalStatus()实现
+     * 在主线程调用，需要能够快速返回
+     */
+    public interface ThermalProvider {
+
+        /**
+         * @return 设备是否过热需要降低负载
+         */
+        boolean isThrottling();
+    }
+
+    /**
+     * 电池状态，例如由PowerManager.isPowerSaveMode()或者电量广播实现
+     * 在主线程调用，需要能够快速返回
+     */
+    public interface BatteryProvider {
+
+        /**
+         * @return 是否电量低或者处于省电模式
+         */
+        boolean isLowBattery();
+    }
+
+    // 每个状态的帧率，按PreviewState.ordinal()保存
+    private final int[] mStateFps = new int[FacePreview.PreviewState.values().length];
+    private int mLowPowerFps = DEFAULT_LOW_POWER_FPS;
+    private boolean isLowPowerMode;
+
+    private ThermalProvider mThermalProvider;
+    private BatteryProvider mBatteryProvider;
+    // 最近一次查询的结果
+    private boolean isThrottling;
+    private boolean isLowBattery;
+    private long mLastPollNanos = Long.MIN_VALUE;
+    // 查询温度以及电量之后目标帧率是否改变，由consumeTargetChange()取走
+    private boolean isPolledTargetChanged;
+
+    private FacePreview.PreviewState mState = FacePreview.PreviewState.READY;
+    private int mTargetFps;
+    // 上一次渲染的垂直同步时间，0表示需要立即渲染
+    private long mLastRenderNanos;
+
+    FrameRateGovernor() {
+        mStateFps[FacePreview.PreviewState.READY.ordinal()] = DEFAULT_DETECTING_FPS;
+        mStateFps[FacePreview.PreviewState.DETECTING.ordinal()] = DEFAULT_DETECTING_FPS;
+        mStateFps[FacePreview.PreviewState.PAUSE.ordinal()] = 0;
+        mStateFps[FacePreview.PreviewState.COMPLETE.ordinal()] = 0;
+        updateTarget();
+    }
+
+    /**
+     * 设置某个状态的帧率
+     * @param state
+     * @param fps 为0时该状态不绘制扫描帧
+     * @return 目标帧率是否改变
+     */
+    boolean setStateFps(FacePreview.PreviewState state, int fps) {
+        if (state == null) {
+            throw new IllegalArgumentException("state must not be null!");
+        }
+        if (fps < 0) {
+            throw new IllegalArgumentException("fps must not be negative!");
+        }
+        mStateFps[state.ordinal()] = fps;
+        return updateTarget();
+    }
+
+    /**
+     * 设置低功耗帧率
+     * @param fps 至少为1
+     * @return 目标帧率是否改变
+     */
+    boolean setLowPowerFps(int fps) {
+        if (fps < 1) {
+            throw new IllegalArgumentException("fps must be at least 1!");
+        }
+        mLowPowerFps = fps;
+        return updateTarget();
+    }
+
+    /**
+     * @return 目标帧率是否改变
+     */
+    boolean setLowPowerMode(boolean lowPowerMode) {
+        isLowPowerMode = lowPowerMode;
+        return updateTarget();
+    }
+
+    /**
+     * @return 目标帧率是否改变
+     */
+    boolean setState(FacePreview.PreviewState state) {
+        mState = state;
+        return updateTarget();
+    }
+
+    void setThermalProvider(ThermalProvider provider) {
+        mThermalProvider = provider;
+        mLastPollNanos = Long.MIN_VALUE;
+    }
+
+    void setBatteryProvider(BatteryProvider provider) {
+        mBatteryProvider = provider;
+        mLastPollNanos = Long.MIN_VALUE;
+    }
+
+    /**
+     * 每个垂直同步信号调用一次，决定这一帧是否绘制
+     * 每隔PROVIDER_POLL_NANOS查询一次温度以及电量，目标帧率因此改变时通过consumeTargetChange()通知调用者
+     * @param frameTimeNanos 垂直同步时间
+     * @return 是否绘制这一帧
+     */
+    boolean shouldRender(long frameTimeNanos) {
+        if (mLastPollNanos == Long.MIN_VALUE || frameTimeNanos - mLastPollNanos >= PROVIDER_POLL_NANOS) {
+            mLastPollNanos = frameTimeNanos;
+            isThrottling = mThermalProvider != null && mThermalProvider.isThrottling();
+            isLowBattery = mBatteryProvider != null && mBatteryProvider.isLowBattery();
+            if (updateTarget()) {
+                isPolledTargetChanged = true;
+            }
+        }
+
+        if (mTargetFps <= 0) {
+            return false;
+        }
+        long interval = 1000000000L / mTargetFps;
+        if (mLastRenderNanos == 0 || frameTimeNanos - mLastRenderNanos + VSYNC_SLACK_NANOS >= interval) {
+            mLastRenderNanos = frameTimeNanos;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 在shouldRender()之后调用
+     * @return 上一次取走之后，目标帧率是否因为温度或者电量改变
+     */
+    boolean consumeTargetChange() {
+        boolean changed = isPolledTargetChanged;
+        isPolledTargetChanged = false;
+        return changed;
+    }
+
+    /**
+     * 动画暂停之后重新开始时调用，下一个垂直同步信号立即绘制
+     */
+    void reset() {
+        mLastRenderNanos = 0;
+    }
+
+    private boolean updateTarget() {
+        int fps = mStateFps[mState.ordinal()];
+        if (fps > 0 && isLowPower()) {
+            fps = Math.min(fps, mLowPowerFps);
+        }
+        if (fps == mTargetFps) {
+            return false;
+        }
+        mTargetFps = fps;
+        mLastRenderNanos = 0;
+        return true;
+    }
+
+    /**
+     * @return 当前目标帧率，0表示不绘制扫描帧
+     */
+    public int getTargetFps() {
+        return mTargetFps;
+    }
+
+    /**
+     * @return 是否因为低功耗模式、过热或者电量低而降低帧率
+     */
+    public boolean isLowPower() {
+        return isLowPowerMode || isThrottling || isLowBattery;
+    }
+
+    public int getStateFps(FacePreview.PreviewState state) {
+        return mStateFps[state.ordinal()];
+    }
+
+    public int getLowPowerFps() {
+        return mLowPowerFps;
+    }
+}
@@ -0,0 +1,200 @@
+package cn.ltaoj.widget;
+
+/**
+ * 帧时间直方图
+ * 默认以1ms为一个区间统计，最后一个区间统计所有不小于(BUCKET_COUNT - 1)ms的帧
+ * 对数区间的直方图用于lockCanvas、绘制等耗时通常不到1ms的阶段：区间0为[0, 1us)，
+ * 之后每个2的幂次微秒分为4个区间，最后一个区间统计所有不小于2^16us(约65ms)的样本
+ * 记录时不分配内存，读取时通过snapshot()得到一份拷贝
+ */
+
+public final class FrameTimeHistogram {
+    // 区间个数
+    public static final int BUCKET_COUNT = 65;
+    // 对数区间每个2的幂次分成的区间个数，以2为底的对数
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final long MICROS = 1000L;
+
+    // 是否使用对数区间
+    private final boolean isLogScale;
+
+    private final long[] mCounts = new long[BUCKET_COUNT];
+    private long mTotalCount;
+    private long mTotalNanos;
+    private long mMaxNanos;
+
+    FrameTimeHistogram() {
+        this(false);
+    }
+
+    /**
+     * @param logScale 为true时使用微秒对数区间，否则使用1ms区间
+     */
+    FrameTimeHistogram(boolean logScale) {
+        isLogScale = logScale;
+    }
+
+    /**
+     * 记录一帧的时间
+     * @param durationNanos
+     */
+    synchronized void record(long durationNanos) {
+        if (durationNanos < 0) {
+            return;
+        }
+        int bucket = isLogScale ? logBucket(durationNanos) : linearBucket(durationNanos);
+        mCounts[bucket]++;
+        mTotalCount++;
+        mTotalNanos += durationNanos;
+        if (durationNanos > mMaxNanos) {
+            mMaxNanos = durationNanos;
+        }
+    }
+
+    private static int linearBucket(long durationNanos) {
+        long millis = durationNanos / 1000000L;
+        return millis >= BUCKET_COUNT - 1 ? BUCKET_COUNT - 1 : (int) millis;
+    }
+
+    /**
+     * 微秒数最高位所在的幂次决定区间组，其后SUB_BUCKET_BITS位决定组内的区间
+     */
+    private static int logBucket(long durationNanos) {
+        long micros = durationNanos / MICROS;
+        if (micros == 0) {
+            return 0;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (((micros - (1L << exponent)) << SUB_BUCKET_BITS) >> exponent);
+        int bucket = 1 + (exponent << SUB_BUCKET_BITS) + sub;
+        return bucket >= BUCKET_COUNT - 1 ? BUCKET_COUNT - 1 : bucket;
+    }
+
+    synchronized void reset() {
+        for (int i = 0;i < BUCKET_COUNT;i++) {
+            mCounts[i] = 0;
+        }
+        mTotalCount = 0;
+        mTotalNanos = 0;
+        mMaxNanos = 0;
+    }
+
+    /**
+     * 返回当前统计结果的拷贝
+     * @return
+     */
+    synchronized FrameTimeHistogram snapshot() {
+        FrameTimeHistogram copy = new FrameTimeHistogram(isLogScale);
+        copyTo(copy);
+        return copy;
+    }
+
+    /**
+     * 把当前统计结果拷贝到target，不分配内存
+     * @param target 区间与当前直方图相同
+     */
+    synchronized void copyTo(FrameTimeHistogram target) {
+        synchronized (target) {
+            System.arraycopy(mCounts, 0, target.mCounts, 0, BUCKET_COUNT);
+            target.mTotalCount = mTotalCount;
+            target.mTotalNanos = mTotalNanos;
+            target.mMaxNanos = mMaxNanos;
+        }
+    }
+
+    /**
+     * 返回落在[getBucketLowerNanos(bucket), getBucketUpperNanos(bucket))区间的帧数
+     * 1ms区间时即[bucket, bucket + 1)ms
+     * @param bucket
+     * @return
+     */
+    public synchronized long getCount(int bucket) {
+        return mCounts[bucket];
+    }
+
+    public boolean isLogScale() {
+        return isLogScale;
+    }
+
+    /**
+     * @param bucket
+     * @return 区间下界(ns)
+     */
+    public long getBucketLowerNanos(int bucket) {
+        if (!isLogScale) {
+            return bucket * 1000000L;
+        }
+        if (bucket == 0) {
+            return 0;
+        }
+        int exponent = (bucket - 1) >> SUB_BUCKET_BITS;
+        int sub = (bucket - 1) & ((1 << SUB_BUCKET_BITS) - 1);
+        return ((1L << exponent) + (((long) sub << exponent) >> SUB_BUCKET_BITS)) * MICROS;
+    }
+
+    /**
+     * @param bucket
+     * @return 区间上界(ns)，最后一个区间没有上界，返回Long.MAX_VALUE
+     */
+    public long getBucketUpperNanos(int bucket) {
+        return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : getBucketLowerNanos(bucket + 1);
+    }
+
+    public synchronized long getTotalCount() {
+        return mTotalCount;
+    }
+
+    public synchronized long getMaxNanos() {
+        return mMaxNanos;
+    }
+
+    public synchronized long getAverageNanos() {
+        return mTotalCount == 0 ? 0 : mTotalNanos / mTotalCount;
+    }
+
+    /**
+     * 返回百分位对应的区间上界(ms)，对数区间时向上取整
+     * @param percentile 0到100之间
+     * @return 没有记录时返回0
+     */
+    public synchronized int getPercentileMillis(float percentile) {
+        int bucket = percentileBucket(percentile);
+        if (bucket < 0) {
+            return 0;
+        }
+        if (!isLogScale) {
+            return bucket + 1;
+        }
+        // 最后一个区间没有上界，与1ms区间相同返回下界
+        long upper = bucket >= BUCKET_COUNT - 1 ? getBucketLowerNanos(bucket) : getBucketUpperNanos(bucket);
+        return (int) ((upper + 999999L) / 1000000L);
+    }
+
+    /**
+     * 返回百分位对应的区间上界(ns)
+     * @param percentile 0到100之间
+     * @return 没有记录时返回0，落在最后一个区间时返回Long.MAX_VALUE
+     */
+    public synchronized long getPercentileNanos(float percentile) {
+        int bucket = percentileBucket(percentile);
+        return bucket < 0 ? 0 : getBucketUpperNanos(bucket);
+    }
+
+    /**
+     * @return 百分位所在的区间，没有记录时返回-1
+     */
+    private int percentileBucket(float percentile) {
+        if (mTotalCount == 0) {
+            return -1;
+        }
+        long target = (long) Math.ceil(mTotalCount * percentile / 100.0);
+        long count = 0;
+        for (int i = 0;i < BUCKET_COUNT;i++) {
+            count += mCounts[i];
+            if (count >= target) {
+                return i;
+            }
+        }
+        return BUCKET_COUNT - 1;
+    }
+}
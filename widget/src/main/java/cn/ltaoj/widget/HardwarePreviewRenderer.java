@@ -0,0 +1,57 @@
+package cn.ltaoj.widget;
+
+import android.annotation.TargetApi;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Build;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+
+/**
+ * GPU绘制后端，通过Surface.lockHardwareCanvas()取得硬件加速画布，API 23以上可用
+ * 遮罩以及缓存图层由GPU合成，大屏幕上比软件绘制整屏半透明遮罩快很多
+ * 硬件画布不保留上一帧的内容，因此每次都需要重绘整个Surface
+ */
+
+@TargetApi(Build.VERSION_CODES.M)
+final class HardwarePreviewRenderer implements PreviewRenderer {
+    private final SurfaceHolder mHolder;
+    // 锁定画布的Surface，提交时需要使用同一个Surface
+    private Surface mSurface;
+
+    HardwarePreviewRenderer(SurfaceHolder holder) {
+        mHolder = holder;
+    }
+
+    @Override
+    public Canvas lockCanvas(Rect dirty) {
+        Surface surface = mHolder.getSurface();
+        if (surface == null || !surface.isValid()) {
+            return null;
+        }
+        Canvas canvas = surface.lockHardwareCanvas();
+        mSurface = surface;
+        // 整个Surface都需要重绘
+        dirty.set(mHolder.getSurfaceFrame());
+        return canvas;
+    }
+
+    @Override
+    public void unlockCanvasAndPost(Canvas canvas) {
+        Surface surface = mSurface;
+        mSurface = null;
+        if (surface != null) {
+            surface.unlockCanvasAndPost(canvas);
+        }
+    }
+
+    @Override
+    public boolean supportsPartialUpdate() {
+        return false;
+    }
+
+    @Override
+    public boolean isHardwareAccelerated() {
+        return true;
+    }
+}
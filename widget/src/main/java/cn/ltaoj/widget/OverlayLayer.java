@@ -0,0 +1,50 @@
+package cn.ltaoj.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+/**
+ * FacePreview静态遮罩层的缓存
+ * 遮罩、透明窗口、边角以及提示文字只在配置改变后绘制，之后每帧只从缓存中拷贝需要更新的区域
+ * 什么时候重绘以及重绘哪个区域由PreviewRenderLoop决定，这里只负责Bitmap以及裁剪，只在绘制线程访问
+ */
+
+final class OverlayLayer {
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+
+    /**
+     * 开始重绘缓存的一个区域，大小改变时重新创建Bitmap
+     * 区域内的内容由遮罩颜色以SRC模式完全覆盖，不需要先清空
+     * @return 用于绘制缓存的画布，已经裁剪到这个区域
+     */
+    Canvas begin(int width, int height, int left, int top, int right, int bottom) {
+        if (mBitmap == null || mBitmap.getWidth() != Math.max(width, 1) || mBitmap.getHeight() != Math.max(height, 1)) {
+            mBitmap = Bitmap.createBitmap(Math.max(width, 1), Math.max(height, 1), Bitmap.Config.ARGB_8888);
+            mCanvas = new Canvas(mBitmap);
+        }
+        mCanvas.save();
+        mCanvas.clipRect(left, top, right, bottom);
+        return mCanvas;
+    }
+
+    /**
+     * 缓存绘制完成
+     */
+    void end() {
+        mCanvas.restore();
+    }
+
+    Bitmap getBitmap() {
+        return mBitmap;
+    }
+
+    /**
+     * 缓存占用的内存大小，可以在任意线程调用
+     * @return 字节数，没有缓存时为0
+     */
+    int getByteCount() {
+        Bitmap bitmap = mBitmap;
+        return bitmap == null ? 0 : bitmap.getAllocationByteCount();
+    }
+}
@@ -0,0 +1,66 @@
+package cn.ltaoj.widget;
+
+/**
+ * FacePreview绘制路径用到的全部绘图操作
+ * 在设备上由AndroidPreviewCanvas转发给Canvas，单元测试中由纯Java的光栅实现，可以在没有设备的机器上比较绘制结果
+ * 颜色都是ARGB，坐标都是Surface坐标
+ */
+
+interface PreviewCanvas {
+
+    /**
+     * 用颜色覆盖整个画布，不与原有内容混合
+     * @param color
+     */
+    void drawColor(int color);
+
+    /**
+     * 把矩形区域清空为透明
+     */
+    void clearRect(float left, float top, float right, float bottom);
+
+    /**
+     * 用颜色覆盖矩形区域，不与原有内容混合
+     */
+    void fillRect(int left, int top, int right, int bottom, int color);
+
+    /**
+     * 绘制矩形边框
+     */
+    void strokeRect(float left, float top, float right, float bottom, int color, float strokeWidth);
+
+    /**
+     * 绘制多条线段
+     * @param points 每4个值为一条线段的起点以及终点
+     */
+    void drawLines(float[] points, int color, float strokeWidth);
+
+    /**
+     * 绘制实心圆
+     */
+    void fillCircle(float centerX, float centerY, float radius, int color);
+
+    /**
+     * 以x为中心绘制提示文字
+     * @param baseline
+     */
+    void drawTipText(String text, float x, float baseline, int color);
+
+    /**
+     * 从x开始绘制检测结果的标签
+     * @param baseline
+     */
+    void drawLabel(String text, float x, float baseline, int color);
+
+    /**
+     * 绘制扫描线，中心不透明、向长轴两端逐渐透明的椭圆
+     * @param radius 长轴的一半
+     * @param shortAxis 短轴的一半
+     */
+    void drawScanLine(float centerX, float centerY, float radius, float shortAxis);
+
+    /**
+     * 从缓存图层拷贝矩形区域，不与原有内容混合
+     */
+    void drawLayer(int left, int top, int right, int bottom);
+}
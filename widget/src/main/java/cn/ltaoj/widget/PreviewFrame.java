@@ -0,0 +1,209 @@
+package cn.ltaoj.widget;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 摄像头预览帧中矩形框区域的视图
+ * 以byte[]提交时不拷贝图像数据，只记录矩形框在传感器图像中的位置；以ByteBuffer提交时在返回之前把矩形框区域拷贝到复用的byte[]中
+ * 坐标均为传感器坐标，对象以及数据缓冲区由FacePreview复用，只在FrameAnalyzer.analyze()期间有效
+ */
+
+public final class PreviewFrame {
+    private byte[] mData;
+    // 数据中第一个字节对应的传感器坐标以及每行的字节数，拷贝矩形框区域之后不再是整帧
+    private int mDataLeft;
+    private int mDataTop;
+    private int mRowStride;
+
+    private int mWidth;
+    private int mHeight;
+    private int mRotation;
+    private int mFormat;
+    private long mTimestampNanos;
+
+    // 矩形框在传感器图像中的区域
+    private int mRoiLeft;
+    private int mRoiTop;
+    private int mRoiRight;
+    private int mRoiBottom;
+
+    // 仍被超时的检测器读取，不能再回收复用
+    private boolean isDetached;
+
+    PreviewFrame() {
+    }
+
+    void set(byte[] data, int width, int height, int rotation, int format, long timestampNanos) {
+        mData = data;
+        mDataLeft = 0;
+        mDataTop = 0;
+        mRowStride = width;
+        mWidth = width;
+        mHeight = height;
+        mRotation = rotation;
+        mFormat = format;
+        mTimestampNanos = timestampNanos;
+    }
+
+    void setRoi(int left, int top, int right, int bottom) {
+        mRoiLeft = left;
+        mRoiTop = top;
+        mRoiRight = right;
+        mRoiBottom = bottom;
+    }
+
+    /**
+     * 检查亮度平面是否包含整帧
+     * @param buffer 从position开始是第一行第一个像素
+     * @param width
+     * @param height
+     * @param rowStride 每行的字节数，可以大于width
+     * @param pixelStride 相邻像素之间的字节数
+     * @throws IllegalArgumentException 步长不合法或者remaining()不足时
+     */
+    static void checkPlane(ByteBuffer buffer, int width, int height, int rowStride, int pixelStride) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("invalid frame size " + width + "x" + height + "!");
+        }
+        if (pixelStride < 1 || rowStride < (width - 1) * pixelStride + 1) {
+            throw new IllegalArgumentException("invalid strides, rowStride = " + rowStride
+                    + ", pixelStride = " + pixelStride + ", width = " + width + "!");
+        }
+        long required = (long) (height - 1) * rowStride + (long) (width - 1) * pixelStride + 1;
+        if (buffer.remaining() < required) {
+            throw new IllegalArgumentException("plane has " + buffer.remaining() + " bytes, "
+                    + required + " required for " + width + "x" + height + "!");
+        }
+    }
+
+    /**
+     * 把矩形框区域的亮度从调用方的缓冲区拷贝到data中，之后不再访问buffer
+     * 需要先设置矩形框区域，并且通过checkPlane()检查，buffer的position不会改变
+     * @param buffer 亮度平面，从position开始是第一行第一个像素
+     * @param rowStride 每行的字节数
+     * @param pixelStride 相邻像素之间的字节数
+     * @param data 不小于矩形框区域的大小
+     */
+    void copyRoi(ByteBuffer buffer, int rowStride, int pixelStride, byte[] data) {
+        int roiWidth = getRoiWidth();
+        int roiHeight = getRoiHeight();
+        int base = buffer.position();
+        if (pixelStride == 1) {
+            try {
+                for (int y = 0;y < roiHeight;y++) {
+                    buffer.position(base + (mRoiTop + y) * rowStride + mRoiLeft);
+                    buffer.get(data, y * roiWidth, roiWidth);
+                }
+            } finally {
+                buffer.position(base);
+            }
+        } else {
+            // 像素不连续时逐个读取，绝对位置读取不改变position
+            for (int y = 0;y < roiHeight;y++) {
+                int row = base + (mRoiTop + y) * rowStride + mRoiLeft * pixelStride;
+                int offset = y * roiWidth;
+                for (int x = 0;x < roiWidth;x++) {
+                    data[offset + x] = buffer.get(row + x * pixelStride);
+                }
+            }
+        }
+        mData = data;
+        mDataLeft = mRoiLeft;
+        mDataTop = mRoiTop;
+        mRowStride = roiWidth;
+    }
+
+    void clear() {
+        mData = null;
+    }
+
+    void detach() {
+        isDetached = true;
+    }
+
+    boolean isDetached() {
+        return isDetached;
+    }
+
+    /**
+     * @return 预览帧数据，以ByteBuffer提交时只包含矩形框区域的亮度，通过getRowOffset()定位
+     */
+    public byte[] getData() {
+        return mData;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * @return 图像需要顺时针旋转的角度
+     */
+    public int getRotation() {
+        return mRotation;
+    }
+
+    /**
+     * @return ImageFormat中的格式常量
+     */
+    public int getFormat() {
+        return mFormat;
+    }
+
+    /**
+     * @return 提交到FacePreview时的System.nanoTime()
+     */
+    public long getTimestampNanos() {
+        return mTimestampNanos;
+    }
+
+    /**
+     * @return 亮度平面每行的字节数
+     */
+    public int getRowStride() {
+        return mRowStride;
+    }
+
+    public int getRoiLeft() {
+        return mRoiLeft;
+    }
+
+    public int getRoiTop() {
+        return mRoiTop;
+    }
+
+    public int getRoiWidth() {
+        return mRoiRight - mRoiLeft;
+    }
+
+    public int getRoiHeight() {
+        return mRoiBottom - mRoiTop;
+    }
+
+    /**
+     * 返回矩形框区域内某一行在亮度平面中的起始位置
+     * @param y 相对于矩形框顶部的行
+     * @return 在getData()中的下标
+     */
+    public int getRowOffset(int y) {
+        return (mRoiTop - mDataTop + y) * mRowStride + mRoiLeft - mDataLeft;
+    }
+
+    /**
+     * 读取矩形框区域内的亮度值
+     * @param x 相对于矩形框左边
+     * @param y 相对于矩形框顶部
+     * @return 0到255
+     */
+    public int getLuma(int x, int y) {
+        if (x < 0 || y < 0 || x >= getRoiWidth() || y >= getRoiHeight()) {
+            throw new IndexOutOfBoundsException("(" + x + ", " + y + ") is outside the preview rect!");
+        }
+        int index = getRowOffset(y) + x;
+        return mData[index] & 0xFF;
+    }
+}
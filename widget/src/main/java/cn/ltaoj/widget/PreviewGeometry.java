@@ -0,0 +1,206 @@
+package cn.ltaoj.widget;
+
+/**
+ * 一个界面配置在当前Surface大小下的全部几何信息
+ * 包括矩形框、提示文字位置、扫描线范围以及边角线段，在配置或者Surface大小改变时预先计算
+ * 对象不可变，可以在UI线程、绘制线程以及摄像头线程之间共享
+ */
+
+final class PreviewGeometry {
+
+    /**
+     * 测量提示文字，由FacePreview通过Paint实现
+     */
+    interface TextMeasurer {
+
+        /**
+         * @param text
+         * @param bounds 输出文字相对于左对齐baseline起点的区域，依次为left、top、right、bottom
+         * @return 文字宽度
+         */
+        float measure(String text, int[] bounds);
+    }
+
+    // Surface大小
+    final int surfaceWidth;
+    final int surfaceHeight;
+    // 矩形框在Surface中的位置
+    final float rectLeft;
+    final float rectTop;
+    final float rectRight;
+    final float rectBottom;
+    // 矩形框以及边角覆盖的区域，向外取整
+    final int contentLeft;
+    final int contentTop;
+    final int contentRight;
+    final int contentBottom;
+    // 边角线段，每4个值为一条线段的起点以及终点，用于Canvas.drawLines
+    private final float[] mCornerLines;
+    // 提示文字，不显示时为null
+    final String tipText;
+    // 提示文字居中位置以及baseline
+    final float tipX;
+    final float tipBaseline;
+    // 提示文字所在区域，没有提示文字时为空
+    final int tipLeft;
+    final int tipTop;
+    final int tipRight;
+    final int tipBottom;
+    // 扫描线中心移动的范围以及长轴的一半
+    final float scanTop;
+    final float scanBottom;
+    final float scanRadius;
+
+    // 计算时的参数，用于在两个几何信息之间插值
+    private final float mCornerLength;
+    private final float mCornerWidth;
+    private final float mScanInset;
+    private final float mTextMargin;
+    // 提示文字宽度以及相对于左对齐baseline起点的区域
+    private final float mTipWidth;
+    private final int[] mTipMeasure;
+
+    private PreviewGeometry(int surfaceWidth, int surfaceHeight, float previewWidth, float previewHeight,
+                            float cornerLength, float cornerWidth, float scanInset,
+                            String tipText, float textMargin, float tipWidth, int[] tipMeasure) {
+        mCornerLength = cornerLength;
+        mCornerWidth = cornerWidth;
+        mScanInset = scanInset;
+        mTextMargin = textMargin;
+        mTipWidth = tipWidth;
+        mTipMeasure = tipMeasure;
+
+        this.surfaceWidth = surfaceWidth;
+        this.surfaceHeight = surfaceHeight;
+        rectLeft = (surfaceWidth - previewWidth) / 2;
+        rectTop = (surfaceHeight - previewHeight) / 2;
+        rectRight = (surfaceWidth + previewWidth) / 2;
+        rectBottom = (surfaceHeight + previewHeight) / 2;
+
+        // 线宽向两侧扩展，多留出1像素给抗锯齿
+        float stroke = cornerWidth / 2 + 1;
+        contentLeft = (int) Math.floor(rectLeft - stroke);
+        contentTop = (int) Math.floor(rectTop - stroke);
+        contentRight = (int) Math.ceil(rectRight + stroke);
+        contentBottom = (int) Math.ceil(rectBottom + stroke);
+
+        mCornerLines = new float[] {
+                // 左上角
+                rectLeft, rectTop + cornerLength, rectLeft, rectTop,
+                rectLeft, rectTop, rectLeft + cornerLength, rectTop,
+                // 右上角
+                rectRight - cornerLength, rectTop, rectRight, rectTop,
+                rectRight, rectTop, rectRight, rectTop + cornerLength,
+                // 右下角
+                rectRight, rectBottom - cornerLength, rectRight, rectBottom,
+                rectRight, rectBottom, rectRight - cornerLength, rectBottom,
+                // 左下角
+                rectLeft + cornerLength, rectBottom, rectLeft, rectBottom,
+                rectLeft, rectBottom, rectLeft, rectBottom - cornerLength
+        };
+
+        this.tipText = tipText;
+        tipX = (rectLeft + rectRight) / 2;
+        if (tipText != null) {
+            int[] bounds = tipMeasure;
+            float width = tipWidth;
+            // baseline在矩形框下方textMargin加上文字高度处
+            tipBaseline = rectBottom + textMargin + (bounds[3] - bounds[1]);
+            // 文字居中绘制，向外取整并留出1像素给抗锯齿
+            float start = tipX - width / 2;
+            tipLeft = (int) Math.floor(start + bounds[0]) - 1;
+            tipTop = (int) Math.floor(tipBaseline + bounds[1]) - 1;
+            tipRight = (int) Math.ceil(start + bounds[2]) + 1;
+            tipBottom = (int) Math.ceil(tipBaseline + bounds[3]) + 1;
+        } else {
+            tipBaseline = rectBottom + textMargin;
+            tipLeft = 0;
+            tipTop = 0;
+            tipRight = 0;
+            tipBottom = 0;
+        }
+
+        scanTop = rectTop + scanInset;
+        scanBottom = rectBottom - scanInset;
+        scanRadius = Math.max((previewWidth - cornerLength) / 2, 1);
+    }
+
+    /**
+     * 计算矩形框在Surface中居中时的几何信息
+     * @param previewWidth 矩形框宽度
+     * @param previewHeight 矩形框高度
+     * @param cornerLength 边角线长度
+     * @param cornerWidth 边角线宽度
+     * @param scanInset 扫描线与矩形框上下边的距离
+     * @param tipText 提示文字，不显示时为null
+     * @param textMargin 提示文字与矩形框底部的距离
+     * @param measurer 有提示文字时不能为null
+     * @return
+     */
+    static PreviewGeometry compute(int surfaceWidth, int surfaceHeight, float previewWidth, float previewHeight,
+                                   float cornerLength, float cornerWidth, float scanInset,
+                                   String tipText, float textMargin, TextMeasurer measurer) {
+        int[] tipMeasure = null;
+        float tipWidth = 0;
+        if (tipText != null) {
+            tipMeasure = new int[4];
+            tipWidth = measurer.measure(tipText, tipMeasure);
+        }
+        return new PreviewGeometry(surfaceWidth, surfaceHeight, previewWidth, previewHeight,
+                cornerLength, cornerWidth, scanInset, tipText, textMargin, tipWidth, tipMeasure);
+    }
+
+    /**
+     * 计算两个几何信息之间的过渡帧，矩形框始终居中，只需要对宽高插值
+     * 边角、扫描线以及提示文字使用目标的参数，提示文字跟随矩形框移动，不需要重新测量
+     * @param from
+     * @param to 与from的Surface大小相同
+     * @param fraction 0时与from的矩形框相同，1时返回to
+     * @return
+     */
+    static PreviewGeometry interpolate(PreviewGeometry from, PreviewGeometry to, float fraction) {
+        if (fraction >= 1) {
+            return to;
+        }
+        float width = from.rectWidth() + (to.rectWidth() - from.rectWidth()) * fraction;
+        float height = from.rectHeight() + (to.rectHeight() - from.rectHeight()) * fraction;
+        return new PreviewGeometry(to.surfaceWidth, to.surfaceHeight, width, height,
+                to.mCornerLength, to.mCornerWidth, to.mScanInset, to.tipText, to.mTextMargin,
+                to.mTipWidth, to.mTipMeasure);
+    }
+
+    float rectWidth() {
+        return rectRight - rectLeft;
+    }
+
+    float rectHeight() {
+        return rectBottom - rectTop;
+    }
+
+    float rectCenterX() {
+        return (rectLeft + rectRight) / 2;
+    }
+
+    boolean hasTip() {
+        return tipText != null;
+    }
+
+    /**
+     * @return 边角线段，调用者不能修改
+     */
+    float[] getCornerLines() {
+        return mCornerLines;
+    }
+
+    /**
+     * 缓存图层的内容是否相同
+     * @param other
+     * @return
+     */
+    boolean sameLayout(PreviewGeometry other) {
+        return other != null && surfaceWidth == other.surfaceWidth && surfaceHeight == other.surfaceHeight
+                && (int) rectLeft == (int) other.rectLeft && (int) rectTop == (int) other.rectTop
+                && (int) rectRight == (int) other.rectRight && (int) rectBottom == (int) other.rectBottom
+                && (tipText == null ? other.tipText == null : tipText.equals(other.tipText));
+    }
+}
@@ -0,0 +1,110 @@
+package cn.ltaoj.widget;
+
+/**
+ * FacePreview的绘制逻辑，只通过PreviewCanvas绘图，不依赖Android
+ * 缓存图层包括遮罩、透明窗口、边角以及提示文字，Surface上的每个区域由缓存图层、扫描线以及检测结果组成
+ * 只在绘制线程访问
+ */
+
+final class PreviewPainter {
+    // 边角线宽度
+    private final float mCornerWidth;
+    // 检测结果矩形框线宽以及关键点半径
+    private final float mResultStroke;
+    private final float mPointRadius;
+
+    PreviewPainter(float cornerWidth, float resultStroke, float pointRadius) {
+        mCornerWidth = cornerWidth;
+        mResultStroke = resultStroke;
+        mPointRadius = pointRadius;
+    }
+
+    float getResultStroke() {
+        return mResultStroke;
+    }
+
+    float getPointRadius() {
+        return mPointRadius;
+    }
+
+    /**
+     * 按照快照绘制缓存图层
+     * @param canvas 缓存图层的画布
+     * @param snapshot
+     */
+    void paintOverlay(PreviewCanvas canvas, RenderSnapshot snapshot) {
+        PreviewGeometry geometry = snapshot.geometry;
+        // 遮罩
+        canvas.drawColor(snapshot.maskColor);
+        // 透明窗口
+        canvas.clearRect(geometry.rectLeft, geometry.rectTop, geometry.rectRight, geometry.rectBottom);
+        /**
+         * |----  ----|
+         * |          |
+         *
+         * |          |
+         * |----  ----|
+         * 四个边角的线段已经预先计算
+         */
+        canvas.drawLines(geometry.getCornerLines(), snapshot.crnColor, mCornerWidth);
+        // 提示文字，位置已经在UI线程计算好，y为baseline坐标
+        if (geometry.hasTip()) {
+            canvas.drawTipText(geometry.tipText, geometry.tipX, geometry.tipBaseline, snapshot.textColor);
+        }
+    }
+
+    /**
+     * 重绘Surface上的一个区域，画布已经裁剪到这个区域
+     * @param canvas
+     * @param left
+     * @param top
+     * @param right
+     * @param bottom
+     * @param snapshot 本帧的快照
+     * @param tipSwept 提示文字是否已经擦除
+     * @param scanLine 没有扫描动画时为null
+     * @param results 当前显示的检测结果，没有时为null
+     * @param resultBounds 检测结果所在区域
+     */
+    void paintRegion(PreviewCanvas canvas, int left, int top, int right, int bottom, RenderSnapshot snapshot,
+                     boolean tipSwept, ScanLine scanLine, ResultBatch results, DirtyRegion resultBounds) {
+        // 遮罩、矩形框、边角以及提示文字直接从缓存图层拷贝
+        canvas.drawLayer(left, top, right, bottom);
+
+        // 提示文字已经擦除
+        PreviewGeometry geometry = snapshot.geometry;
+        if (tipSwept && geometry.hasTip() && geometry.tipLeft < right && left < geometry.tipRight
+                && geometry.tipTop < bottom && top < geometry.tipBottom) {
+            canvas.fillRect(geometry.tipLeft, geometry.tipTop, geometry.tipRight, geometry.tipBottom, snapshot.maskColor);
+        }
+
+        if (scanLine != null && scanLine.getBand().intersects(left, top, right, bottom)) {
+            canvas.drawScanLine(scanLine.getCenterX(), scanLine.getCenterY(), scanLine.getRadius(), scanLine.getShortAxis());
+        }
+
+        // 检测结果绘制在最上层
+        if (results != null && resultBounds.intersects(left, top, right, bottom)) {
+            paintResults(canvas, results);
+        }
+    }
+
+    /**
+     * 绘制检测结果，每种图形的个数都有上限
+     * @param canvas
+     * @param batch
+     */
+    void paintResults(PreviewCanvas canvas, ResultBatch batch) {
+        float[] rects = batch.getRects();
+        for (int i = 0;i < batch.getRectCount();i++) {
+            int offset = i * 4;
+            canvas.strokeRect(rects[offset], rects[offset + 1], rects[offset + 2], rects[offset + 3],
+                    batch.getRectColor(i), mResultStroke);
+        }
+        for (int i = 0;i < batch.getPointCount();i++) {
+            canvas.fillCircle(batch.getPointX(i), batch.getPointY(i), mPointRadius, batch.getPointColor(i));
+        }
+        for (int i = 0;i < batch.getLabelCount();i++) {
+            canvas.drawLabel(batch.getLabel(i), batch.getLabelX(i), batch.getLabelY(i), batch.getLabelColor(i));
+        }
+    }
+}
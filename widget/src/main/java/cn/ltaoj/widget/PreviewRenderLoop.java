@@ -0,0 +1,516 @@
+package cn.ltaoj.widget;
+
+/**
+ * FacePreview绘制线程的循环以及每帧的逻辑
+ * 没有命令时挂起在RenderScheduler上，收到命令之后依次处理过渡几何信息、缓存图层、背景、提示文字、扫描线以及检测结果，
+ * 把需要更新的区域合并之后只交给Host绘制一次
+ * 锁定Surface、缓存图层的Bitmap以及时间来源由Host提供，这里不依赖Android，单元测试以及HeadlessPreview驱动的也是这份代码
+ * 除构造之外只在绘制线程访问
+ */
+
+final class PreviewRenderLoop {
+
+    /**
+     * 绘制循环依赖的平台相关部分，由FacePreview或者测试实现
+     */
+    interface Host {
+
+        /**
+         * @return 最新发布的快照，每帧只读取一次
+         */
+        RenderSnapshot getSnapshot();
+
+        /**
+         * @return 是否显示扫描线
+         */
+        boolean isScanning();
+
+        /**
+         * @param frameTimeNanos
+         * @return 扫描线在这个垂直同步时间的位置，0为顶部，1为底部；没有扫描动画时返回负数
+         */
+        float getScanFraction(long frameTimeNanos);
+
+        /**
+         * @return 最近一次垂直同步时间，还没有开始扫描时为0
+         */
+        long getFrameTimeNanos();
+
+        /**
+         * @return 当前目标帧率下扫描帧的间隔，用于计算丢失的扫描帧
+         */
+        long getScanIntervalNanos();
+
+        /**
+         * @return 开启统计时的统计对象，否则为null
+         */
+        RenderMetrics getMetrics();
+
+        /**
+         * 开始重绘缓存图层的一个区域，大小改变时重新创建图层
+         * @param width 图层大小
+         * @param height
+         * @return 已经裁剪到这个区域的画布，区域内的内容会被遮罩颜色完全覆盖
+         */
+        PreviewCanvas beginLayer(int width, int height, int left, int top, int right, int bottom);
+
+        /**
+         * 缓存图层绘制完成
+         */
+        void endLayer();
+
+        /**
+         * 锁定Surface，通过paintRegion()重绘需要更新的区域之后提交
+         * @param dirty 本帧需要更新的区域，不为空
+         * @param snapshot 本帧的快照
+         * @param metrics 没有开启统计时为null
+         */
+        void render(DirtyRegion dirty, RenderSnapshot snapshot, RenderMetrics metrics);
+
+        /**
+         * 开启统计时每次循环结束后调用
+         * @param nowNanos
+         */
+        void onLoopRecorded(long nowNanos);
+    }
+
+    private final Host mHost;
+    private final PreviewPainter mPainter;
+    private final ConfigTransition mTransition;
+    private final ResultOverlay mResults;
+    // 测量检测结果标签
+    private final PreviewGeometry.TextMeasurer mLabelMeasurer;
+    // 提示文字显示时间
+    private final long mTipShowMillis;
+
+    // 本帧的快照，过渡过程中是中间帧
+    private RenderSnapshot mFrameSnapshot;
+    // 本次需要更新的区域
+    private final DirtyRegion mFrameDirty = new DirtyRegion();
+    // 上一次绘制的几何信息，过渡过程中是中间帧
+    private PreviewGeometry mDrawnGeometry;
+
+    // 缓存图层对应的快照，还没有绘制时为null
+    private RenderSnapshot mOverlaySnapshot;
+    // 缓存图层中提示文字所在区域，没有提示文字时为空
+    private final DirtyRegion mTipBounds = new DirtyRegion();
+    // 局部重绘缓存图层的区域
+    private final DirtyRegion mOverlayDirty = new DirtyRegion();
+    // 缓存图层的重绘次数以及重绘的像素数
+    private long mOverlayPaints;
+    private long mOverlayPixels;
+
+    // 提示文字是否已经擦除，以及上次绘制提示文字的区域
+    private boolean hasSweepTip = true;
+    private final DirtyRegion mSweepBounds = new DirtyRegion();
+    // 显示时间结束后在绘制线程擦除提示文字的任务，重新绘制提示文字时取消之前安排的任务
+    private final Runnable mSweepTip = new Runnable() {
+        @Override
+        public void run() {
+            mSweepTask = null;
+            sweepTipText();
+        }
+    };
+    private RenderScheduler.Task mSweepTask;
+
+    // 扫描线当前的位置
+    private final ScanLine mScanLine;
+    // 上一次绘制扫描帧的垂直同步时间
+    private long mLastScanFrameNanos;
+    // 扫描帧间隔统计
+    private final FrameTimeHistogram mFrameHistogram = new FrameTimeHistogram();
+
+    // 当前显示的检测结果所在区域
+    private final DirtyRegion mResultBounds = new DirtyRegion();
+    private final int[] mLabelMeasure = new int[4];
+
+    /**
+     * @param host
+     * @param painter
+     * @param transition 配置过渡，主线程通过isRunning()决定是否继续请求垂直同步
+     * @param results 检测结果三缓冲
+     * @param labelMeasurer 测量检测结果标签
+     * @param scanShortAxis 扫描线椭圆短轴的一半
+     * @param tipShowMillis 提示文字显示时间
+     */
+    PreviewRenderLoop(Host host, PreviewPainter painter, ConfigTransition transition, ResultOverlay results,
+                      PreviewGeometry.TextMeasurer labelMeasurer, float scanShortAxis, long tipShowMillis) {
+        mHost = host;
+        mPainter = painter;
+        mTransition = transition;
+        mResults = results;
+        mLabelMeasurer = labelMeasurer;
+        mScanLine = new ScanLine(scanShortAxis);
+        mTipShowMillis = tipShowMillis;
+    }
+
+    /**
+     * 绘制线程的循环，没有绘制命令时挂起，收到CMD_QUIT或者被中断时返回
+     * @param scheduler
+     */
+    void run(RenderScheduler scheduler) {
+        while (true) {
+            // 每次循环只读取一次开关，关闭时不读取时间
+            RenderMetrics metrics = mHost.getMetrics();
+            long idleStart = metrics != null ? System.nanoTime() : 0;
+            int commands;
+            try {
+                // 没有绘制命令时挂起，直到applyConfig等投递新的命令
+                commands = scheduler.awaitCommands();
+            } catch (InterruptedException e) {
+                break;
+            }
+            long busyStart = metrics != null ? System.nanoTime() : 0;
+
+            if ((commands & RenderScheduler.CMD_QUIT) != 0) {
+                break;
+            }
+
+            renderFrame(scheduler, commands, metrics);
+
+            if (metrics != null) {
+                long now = System.nanoTime();
+                metrics.recordLoop(busyStart - idleStart, now - busyStart);
+                mHost.onLoopRecorded(now);
+            }
+        }
+    }
+
+    /**
+     * 处理一组绘制命令，最后只锁定一次Surface
+     * @param scheduler 用于安排以及执行擦除提示文字等延迟任务
+     * @param commands
+     * @param metrics 没有开启统计时为null
+     */
+    void renderFrame(RenderScheduler scheduler, int commands, RenderMetrics metrics) {
+        // 每帧只读取一次快照以及垂直同步时间，过渡过程中替换为本帧的中间几何信息
+        RenderSnapshot snapshot = mHost.getSnapshot();
+        snapshot = snapshot.withGeometry(nextGeometry(snapshot, commands));
+        long frameTimeNanos = mHost.getFrameTimeNanos();
+        mFrameSnapshot = snapshot;
+        ensureOverlay(snapshot);
+        mFrameDirty.setEmpty();
+
+        // 先执行到时间的任务，任务改变的区域与本帧的命令一起绘制
+        if ((commands & RenderScheduler.CMD_RUN_TASKS) != 0) {
+            scheduler.runTasks();
+        }
+
+        // 本帧的几何信息改变时，不论是由哪个命令唤醒，都需要重绘相邻两帧的矩形框所在区域
+        if (snapshot.geometry != mDrawnGeometry) {
+            applyGeometry(snapshot, frameTimeNanos);
+        }
+
+        if ((commands & RenderScheduler.CMD_DRAW_BACKGROUND) != 0) {
+            drawBackground(snapshot);
+        }
+
+        if ((commands & RenderScheduler.CMD_DRAW_TIP) != 0) {
+            drawTipText();
+            // 提示文字显示一段时间后擦除，替换之前安排的擦除任务
+            cancelSweepTask();
+            mSweepTask = scheduler.postDelayed(mSweepTip, mTipShowMillis);
+        } else if ((commands & RenderScheduler.CMD_SWEEP_TIP) != 0) {
+            cancelSweepTask();
+            sweepTipText();
+        }
+
+        if ((commands & RenderScheduler.CMD_RESET_FRAME_CLOCK) != 0) {
+            mLastScanFrameNanos = 0;
+        }
+
+        if ((commands & RenderScheduler.CMD_DRAW_SCAN) != 0) {
+            drawScanFrame(snapshot, frameTimeNanos, metrics);
+        }
+
+        if ((commands & RenderScheduler.CMD_DRAW_RESULTS) != 0) {
+            drawResults();
+        }
+
+        if (!mFrameDirty.isEmpty()) {
+            mHost.render(mFrameDirty, snapshot, metrics);
+        }
+    }
+
+    /**
+     * Surface重新创建、绘制线程开启之前调用，下一帧重绘整个Surface，发布的配置直接切换
+     */
+    void reset() {
+        mDrawnGeometry = null;
+        mTransition.reset();
+    }
+
+    /**
+     * 按照本帧的状态重绘Surface上的一个区域，在Host.render()中调用
+     * @param canvas 已经裁剪到这个区域，drawLayer()拷贝的是Host.beginLayer()绘制的图层
+     */
+    void paintRegion(PreviewCanvas canvas, int left, int top, int right, int bottom) {
+        mPainter.paintRegion(canvas, left, top, right, bottom, mFrameSnapshot, hasSweepTip,
+                mHost.isScanning() ? mScanLine : null, mResults.getFront(), mResultBounds);
+    }
+
+    /**
+     * 决定本帧绘制的几何信息
+     * 发布了新的配置时从当前显示的位置开始过渡，两帧之间发布的多个配置只过渡到最后一个
+     * @param snapshot 最新发布的快照
+     * @param commands
+     * @return
+     */
+    private PreviewGeometry nextGeometry(RenderSnapshot snapshot, int commands) {
+        if (snapshot.geometry != mTransition.getTarget()) {
+            return mTransition.start(mDrawnGeometry, snapshot.geometry);
+        }
+        if (mTransition.isRunning()) {
+            return (commands & RenderScheduler.CMD_STEP_TRANSITION) != 0 ? mTransition.step() : mDrawnGeometry;
+        }
+        return snapshot.geometry;
+    }
+
+    /**
+     * 确保缓存图层与本帧的快照一致，key没有变化时不会重新绘制
+     * 只有矩形框或者提示文字移动时(例如配置过渡的每一帧)只重绘新旧矩形框以及提示文字所在区域，
+     * 大小或者颜色改变时重绘整个图层
+     * @param snapshot
+     */
+    private void ensureOverlay(RenderSnapshot snapshot) {
+        RenderSnapshot previous = mOverlaySnapshot;
+        if (snapshot == previous) {
+            return;
+        }
+        if (snapshot.sameOverlay(previous)) {
+            mOverlaySnapshot = snapshot;
+            return;
+        }
+
+        PreviewGeometry geometry = snapshot.geometry;
+        int width = geometry.surfaceWidth;
+        int height = geometry.surfaceHeight;
+        if (previous != null && sameLayer(previous, snapshot)) {
+            PreviewGeometry from = previous.geometry;
+            mOverlayDirty.set(from.contentLeft, from.contentTop, from.contentRight, from.contentBottom);
+            mOverlayDirty.union(mTipBounds);
+            mOverlayDirty.union(geometry.contentLeft, geometry.contentTop, geometry.contentRight, geometry.contentBottom);
+            if (geometry.hasTip()) {
+                mOverlayDirty.union(geometry.tipLeft, geometry.tipTop, geometry.tipRight, geometry.tipBottom);
+            }
+        } else {
+            mOverlayDirty.set(0, 0, width, height);
+        }
+
+        // 先清除key，绘制失败时下一帧重新绘制整个图层
+        mOverlaySnapshot = null;
+        PreviewCanvas canvas = mHost.beginLayer(width, height, mOverlayDirty.getLeft(), mOverlayDirty.getTop(),
+                mOverlayDirty.getRight(), mOverlayDirty.getBottom());
+        mPainter.paintOverlay(canvas, snapshot);
+        mHost.endLayer();
+        mOverlaySnapshot = snapshot;
+        mOverlayPaints++;
+        mOverlayPixels += mOverlayDirty.area();
+
+        if (geometry.hasTip()) {
+            mTipBounds.set(geometry.tipLeft, geometry.tipTop, geometry.tipRight, geometry.tipBottom);
+        } else {
+            mTipBounds.setEmpty();
+        }
+    }
+
+    /**
+     * @return 两个快照的缓存图层是否只有矩形框以及提示文字的位置不同
+     */
+    private static boolean sameLayer(RenderSnapshot a, RenderSnapshot b) {
+        return a.geometry.surfaceWidth == b.geometry.surfaceWidth && a.geometry.surfaceHeight == b.geometry.surfaceHeight
+                && a.maskColor == b.maskColor && a.crnColor == b.crnColor && a.textColor == b.textColor;
+    }
+
+    /**
+     * 负责绘制背景
+     * 标记整个Surface需要从缓存图层重绘，背景同时覆盖了之前的提示文字
+     * @param snapshot
+     */
+    private void drawBackground(RenderSnapshot snapshot) {
+        mFrameDirty.set(0, 0, snapshot.geometry.surfaceWidth, snapshot.geometry.surfaceHeight);
+        hasSweepTip = true;
+    }
+
+    /**
+     * 切换到快照中新的几何信息
+     * Surface大小不变时只需要重绘新旧矩形框以及提示文字所在区域，遮罩其他部分没有变化
+     * @param snapshot
+     * @param frameTimeNanos
+     */
+    private void applyGeometry(RenderSnapshot snapshot, long frameTimeNanos) {
+        PreviewGeometry previous = mDrawnGeometry;
+        PreviewGeometry current = snapshot.geometry;
+        mDrawnGeometry = current;
+
+        if (previous == null || previous.surfaceWidth != current.surfaceWidth
+                || previous.surfaceHeight != current.surfaceHeight) {
+            drawBackground(snapshot);
+        } else {
+            mFrameDirty.union(previous.contentLeft, previous.contentTop, previous.contentRight, previous.contentBottom);
+            mFrameDirty.union(current.contentLeft, current.contentTop, current.contentRight, current.contentBottom);
+            // 正在显示的提示文字跟随矩形框移动，缓存图层已经按照本帧的位置绘制
+            if (!hasSweepTip) {
+                mFrameDirty.union(mSweepBounds);
+                if (mTipBounds.isEmpty()) {
+                    hasSweepTip = true;
+                } else {
+                    mFrameDirty.union(mTipBounds);
+                    mSweepBounds.set(mTipBounds.getLeft(), mTipBounds.getTop(), mTipBounds.getRight(), mTipBounds.getBottom());
+                }
+            }
+        }
+
+        // 扫描线按照新的矩形框重新定位，暂停时也需要移动到新的矩形框内
+        if (mHost.isScanning() && frameTimeNanos != 0) {
+            mLastScanFrameNanos = 0;
+            drawScanFrame(snapshot, frameTimeNanos, null);
+        }
+    }
+
+    /**
+     * 负责绘制提示文字
+     * 提示文字已经绘制在缓存图层中，只需要标记上次以及本次文字所在区域
+     */
+    private void drawTipText() {
+        if (mTipBounds.isEmpty()) {
+            return;
+        }
+        // 擦除上次绘制的提示文字
+        if (!hasSweepTip) {
+            mFrameDirty.union(mSweepBounds);
+        }
+        mFrameDirty.union(mTipBounds);
+
+        // 更新相关标志位
+        mSweepBounds.set(mTipBounds.getLeft(), mTipBounds.getTop(), mTipBounds.getRight(), mTipBounds.getBottom());
+        hasSweepTip = false;
+    }
+
+    private void cancelSweepTask() {
+        if (mSweepTask != null) {
+            mSweepTask.cancel();
+            mSweepTask = null;
+        }
+    }
+
+    /**
+     * 负责擦除文字
+     * 擦除的区域是上次绘制提示文字的区域，重绘时用遮罩颜色覆盖
+     */
+    private void sweepTipText() {
+        if (hasSweepTip) {
+            return;
+        }
+        mFrameDirty.union(mSweepBounds);
+
+        // 更新标志位
+        hasSweepTip = true;
+    }
+
+    /**
+     * 更新一帧扫描线
+     * 扫描线位置由垂直同步时间计算，与帧率无关
+     * 需要更新的区域为扫描线上一帧以及当前帧所在的区域
+     * @param snapshot
+     * @param frameTimeNanos
+     * @param metrics 没有开启统计时为null
+     */
+    private void drawScanFrame(RenderSnapshot snapshot, long frameTimeNanos, RenderMetrics metrics) {
+        float fraction = mHost.getScanFraction(frameTimeNanos);
+        if (fraction < 0) {
+            return;
+        }
+
+        PreviewGeometry geometry = snapshot.geometry;
+        // 擦除上一帧的扫描线
+        mFrameDirty.union(mScanLine.getBand());
+        mScanLine.moveTo(geometry.rectCenterX(), geometry.scanTop + (geometry.scanBottom - geometry.scanTop) * fraction,
+                geometry.scanRadius);
+        mFrameDirty.union(mScanLine.getBand());
+
+        if (mLastScanFrameNanos != 0) {
+            long interval = frameTimeNanos - mLastScanFrameNanos;
+            mFrameHistogram.record(interval);
+            // 帧间隔是垂直同步时间，按目标帧率取整之后多出的帧数就是丢失的扫描帧
+            long expected = mHost.getScanIntervalNanos();
+            if (metrics != null && expected > 0) {
+                metrics.recordDroppedFrames((interval + expected / 2) / expected - 1);
+            }
+        }
+        mLastScanFrameNanos = frameTimeNanos;
+    }
+
+    /**
+     * 切换到最新发布的检测结果
+     * 标记上次以及本次结果所在区域，两帧之间发布的多个批次只绘制最后一个
+     */
+    private void drawResults() {
+        if (!mResults.swap()) {
+            return;
+        }
+        // 擦除上次的结果
+        mFrameDirty.union(mResultBounds);
+        measureResults(mResults.getFront());
+        mFrameDirty.union(mResultBounds);
+    }
+
+    /**
+     * 计算检测结果所在区域，包括线宽、关键点半径以及标签文字
+     * @param batch
+     */
+    private void measureResults(ResultBatch batch) {
+        mResultBounds.setEmpty();
+        float stroke = mPainter.getResultStroke() / 2 + 1;
+        float[] rects = batch.getRects();
+        for (int i = 0;i < batch.getRectCount();i++) {
+            int offset = i * 4;
+            mResultBounds.union((int) Math.floor(rects[offset] - stroke), (int) Math.floor(rects[offset + 1] - stroke),
+                    (int) Math.ceil(rects[offset + 2] + stroke), (int) Math.ceil(rects[offset + 3] + stroke));
+        }
+        float radius = mPainter.getPointRadius() + 1;
+        for (int i = 0;i < batch.getPointCount();i++) {
+            float x = batch.getPointX(i);
+            float y = batch.getPointY(i);
+            mResultBounds.union((int) Math.floor(x - radius), (int) Math.floor(y - radius),
+                    (int) Math.ceil(x + radius), (int) Math.ceil(y + radius));
+        }
+        int[] bounds = mLabelMeasure;
+        for (int i = 0;i < batch.getLabelCount();i++) {
+            String label = batch.getLabel(i);
+            float x = batch.getLabelX(i);
+            float y = batch.getLabelY(i);
+            mLabelMeasurer.measure(label, bounds);
+            mResultBounds.union((int) Math.floor(x + bounds[0]) - 1, (int) Math.floor(y + bounds[1]) - 1,
+                    (int) Math.ceil(x + bounds[2]) + 1, (int) Math.ceil(y + bounds[3]) + 1);
+        }
+    }
+
+    /**
+     * @return 扫描帧间隔统计
+     */
+    FrameTimeHistogram getFrameHistogram() {
+        return mFrameHistogram;
+    }
+
+    /**
+     * @return 上一次绘制的几何信息
+     */
+    PreviewGeometry getDrawnGeometry() {
+        return mDrawnGeometry;
+    }
+
+    /**
+     * @return 缓存图层的重绘次数，包括局部重绘
+     */
+    long getOverlayPaintCount() {
+        return mOverlayPaints;
+    }
+
+    /**
+     * @return 缓存图层重绘的像素总数
+     */
+    long getOverlayPixelCount() {
+        return mOverlayPixels;
+    }
+}
@@ -0,0 +1,35 @@
+package cn.ltaoj.widget;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+/**
+ * FacePreview绘制线程使用的绘制后端
+ * 绘制线程只通过这个接口锁定以及提交画布，不关心画布是软件绘制还是GPU合成
+ */
+
+interface PreviewRenderer {
+
+    /**
+     * 锁定画布
+     * @param dirty 需要更新的区域，返回时为实际需要重绘的区域，可能被扩大
+     * @return 画布，Surface不可用时为null
+     */
+    Canvas lockCanvas(Rect dirty);
+
+    /**
+     * 提交lockCanvas返回的画布
+     * @param canvas
+     */
+    void unlockCanvasAndPost(Canvas canvas);
+
+    /**
+     * @return 是否只需要重绘锁定的区域，为false时每次都需要重绘整个Surface
+     */
+    boolean supportsPartialUpdate();
+
+    /**
+     * @return 是否由GPU绘制
+     */
+    boolean isHardwareAccelerated();
+}
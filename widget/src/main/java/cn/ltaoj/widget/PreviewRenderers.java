@@ -0,0 +1,39 @@
+package cn.ltaoj.widget;
+
+import android.os.Build;
+import android.view.SurfaceHolder;
+
+/**
+ * 按照API版本以及设置选择绘制后端
+ */
+
+final class PreviewRenderers {
+
+    private PreviewRenderers() {
+    }
+
+    /**
+     * 选择实际使用的绘制后端
+     * @param requested 设置的绘制后端
+     * @param sdkInt 当前API版本
+     * @return SOFTWARE或HARDWARE，API版本不支持GPU后端时总是SOFTWARE
+     */
+    static FacePreview.RenderBackend resolve(FacePreview.RenderBackend requested, int sdkInt) {
+        if (requested == FacePreview.RenderBackend.SOFTWARE || sdkInt < Build.VERSION_CODES.M) {
+            return FacePreview.RenderBackend.SOFTWARE;
+        }
+        return FacePreview.RenderBackend.HARDWARE;
+    }
+
+    /**
+     * @param backend resolve()的结果
+     * @param holder
+     * @return
+     */
+    static PreviewRenderer create(FacePreview.RenderBackend backend, SurfaceHolder holder) {
+        if (backend == FacePreview.RenderBackend.HARDWARE) {
+            return new HardwarePreviewRenderer(holder);
+        }
+        return new SoftwarePreviewRenderer(holder);
+    }
+}
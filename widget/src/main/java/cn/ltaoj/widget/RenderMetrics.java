@@ -0,0 +1,144 @@
+package cn.ltaoj.widget;
+
+/**
+ * FacePreview绘制线程的统计
+ * 包括提交的帧数、丢失的扫描帧数、锁定Surface失败次数、lockCanvas、绘制以及unlockCanvasAndPost的耗时分布，
+ * 以及绘制线程等待绘制命令的时间占比
+ * 从开启统计或者上次reset()开始累计，记录时不分配内存，读取时通过snapshot()得到一份拷贝
+ */
+
+public final class RenderMetrics {
+    private long mFramesRendered;
+    private long mFramesDropped;
+    private long mLockFailures;
+    // 绘制线程等待命令以及处理命令的时间
+    private long mIdleNanos;
+    private long mBusyNanos;
+
+    // 各阶段耗时通常不到1ms，使用微秒对数区间
+    private final FrameTimeHistogram mLockHistogram = new FrameTimeHistogram(true);
+    private final FrameTimeHistogram mDrawHistogram = new FrameTimeHistogram(true);
+    private final FrameTimeHistogram mUnlockHistogram = new FrameTimeHistogram(true);
+
+    RenderMetrics() {
+    }
+
+    /**
+     * 记录一次提交到Surface的绘制
+     * @param lockNanos lockCanvas耗时
+     * @param drawNanos 绘制耗时
+     * @param unlockNanos unlockCanvasAndPost耗时
+     */
+    synchronized void recordFrame(long lockNanos, long drawNanos, long unlockNanos) {
+        mFramesRendered++;
+        mLockHistogram.record(lockNanos);
+        mDrawHistogram.record(drawNanos);
+        mUnlockHistogram.record(unlockNanos);
+    }
+
+    /**
+     * 记录一次锁定Surface失败，lockCanvas返回null或者抛出异常
+     */
+    synchronized void recordLockFailure() {
+        mLockFailures++;
+    }
+
+    /**
+     * 记录两个扫描帧之间跳过的帧数
+     * @param count
+     */
+    synchronized void recordDroppedFrames(long count) {
+        if (count > 0) {
+            mFramesDropped += count;
+        }
+    }
+
+    /**
+     * 记录绘制线程的一次循环
+     * @param idleNanos 等待绘制命令的时间
+     * @param busyNanos 处理绘制命令的时间
+     */
+    synchronized void recordLoop(long idleNanos, long busyNanos) {
+        mIdleNanos += idleNanos;
+        mBusyNanos += busyNanos;
+    }
+
+    synchronized void reset() {
+        mFramesRendered = 0;
+        mFramesDropped = 0;
+        mLockFailures = 0;
+        mIdleNanos = 0;
+        mBusyNanos = 0;
+        mLockHistogram.reset();
+        mDrawHistogram.reset();
+        mUnlockHistogram.reset();
+    }
+
+    /**
+     * 把当前统计结果拷贝到target，不分配内存
+     * @param target
+     */
+    synchronized void copyTo(RenderMetrics target) {
+        synchronized (target) {
+            target.mFramesRendered = mFramesRendered;
+            target.mFramesDropped = mFramesDropped;
+            target.mLockFailures = mLockFailures;
+            target.mIdleNanos = mIdleNanos;
+            target.mBusyNanos = mBusyNanos;
+            mLockHistogram.copyTo(target.mLockHistogram);
+            mDrawHistogram.copyTo(target.mDrawHistogram);
+            mUnlockHistogram.copyTo(target.mUnlockHistogram);
+        }
+    }
+
+    /**
+     * 返回当前统计结果的拷贝
+     * @return
+     */
+    synchronized RenderMetrics snapshot() {
+        RenderMetrics copy = new RenderMetrics();
+        copyTo(copy);
+        return copy;
+    }
+
+    /**
+     * 返回提交到Surface的帧数
+     * @return
+     */
+    public synchronized long getFramesRendered() {
+        return mFramesRendered;
+    }
+
+    /**
+     * 返回按照目标帧率应该绘制但是没有绘制的扫描帧数
+     * @return
+     */
+    public synchronized long getFramesDropped() {
+        return mFramesDropped;
+    }
+
+    public synchronized long getLockFailures() {
+        return mLockFailures;
+    }
+
+    /**
+     * 返回绘制线程等待绘制命令的时间占比
+     * @return 0到1之间，没有记录时返回0
+     */
+    public synchronized float getIdleRatio() {
+        long total = mIdleNanos + mBusyNanos;
+        return total == 0 ? 0 : (float) mIdleNanos / total;
+    }
+
+    public FrameTimeHistogram getLockHistogram() {
+        return mLockHistogram;
+    }
+
+    public FrameTimeHistogram getDrawHistogram() {
+        return mDrawHistogram;
+    }
+
+    public FrameTimeHistogram getUnlockHistogram() {
+        return mUnlockHistogram;
+    }
+}
@@ -0,0 +1,210 @@
+package cn.ltaoj.widget;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FacePreview绘制线程的调度器
+ * 绘制线程在没有绘制命令时挂起，UI线程通过post()投递带类型的绘制命令唤醒绘制线程
+ * 命令以位标志的形式保存，同一类型的命令在被处理之前多次投递只会执行一次
+ * 延迟的工作(例如擦除提示文字)通过postDelayed()安排为任务，到时间后投递CMD_RUN_TASKS，由绘制线程调用runTasks()执行，
+ * 等待时间由绘制线程在等待命令时一并处理，不需要额外的定时线程
+ */
+
+final class RenderScheduler {
+    // 绘制背景
+    static final int CMD_DRAW_BACKGROUND = 1;
+    // 绘制提示文字
+    static final int CMD_DRAW_TIP = 1 << 1;
+    // 擦除提示文字
+    static final int CMD_SWEEP_TIP = 1 << 2;
+    // 绘制一帧扫描线
+    static final int CMD_DRAW_SCAN = 1 << 3;
+    // 重新开始统计扫描帧间隔
+    static final int CMD_RESET_FRAME_CLOCK = 1 << 4;
+    // 切换到最新发布的检测结果
+    static final int CMD_DRAW_RESULTS = 1 << 5;
+    // 应用新的界面配置，绘制线程比较新旧几何信息决定需要重绘的区域
+    static final int CMD_APPLY_CONFIG = 1 << 6;
+    // 配置过渡动画前进一帧
+    static final int CMD_STEP_TRANSITION = 1 << 7;
+    // 执行到时间的延迟任务
+    static final int CMD_RUN_TASKS = 1 << 8;
+    // 退出绘制线程
+    static final int CMD_QUIT = 1 << 31;
+
+    private final Object mLock = new Object();
+
+    // 等待处理的命令集合
+    private int mPending;
+    // 绘制线程被唤醒的次数
+    private long mLoopCount;
+
+    // 还没有到时间的延迟任务，以及已经到时间等待绘制线程执行的任务
+    private final ArrayList<Task> mDelayedTasks = new ArrayList<Task>();
+    private final ArrayList<Task> mReadyTasks = new ArrayList<Task>();
+
+    /**
+     * postDelayed()返回的任务，可以在任意线程取消
+     */
+    final class Task {
+        private final Runnable mRunnable;
+        private final long mDeadline;
+
+        private Task(Runnable runnable, long deadline) {
+            mRunnable = runnable;
+            mDeadline = deadline;
+        }
+
+        /**
+         * 取消还没有开始执行的任务
+         * @return 任务是否被取消，已经开始执行或者已经取消时返回false
+         */
+        boolean cancel() {
+            synchronized (mLock) {
+                return mDelayedTasks.remove(this) || mReadyTasks.remove(this);
+            }
+        }
+
+        /**
+         * @return 是否还在等待执行
+         */
+        boolean isPending() {
+            synchronized (mLock) {
+                return mDelayedTasks.contains(this) || mReadyTasks.contains(this);
+            }
+        }
+    }
+
+    /**
+     * 投递绘制命令，可以在任意线程调用
+     * @param commands 一个或多个CMD_*常量按位或的结果
+     */
+    void post(int commands) {
+        synchronized (mLock) {
+            mPending |= commands;
+            mLock.notifyAll();
+        }
+    }
+
+    /**
+     * 通知绘制线程退出，之后投递的命令都会被忽略
+     */
+    void quit() {
+        synchronized (mLock) {
+            mDelayedTasks.clear();
+            mReadyTasks.clear();
+        }
+        post(CMD_QUIT);
+    }
+
+    /**
+     * 安排在绘制线程执行的延迟任务，可以在任意线程调用
+     * 到时间后投递CMD_RUN_TASKS，绘制线程收到之后调用runTasks()，与同时到达的绘制命令在同一次循环中处理
+     * @param runnable 在绘制线程执行
+     * @param delayMillis 延迟时间
+     * @return 用于取消的任务，绘制线程已经退出时返回null
+     */
+    Task postDelayed(Runnable runnable, long delayMillis) {
+        if (runnable == null) {
+            throw new IllegalArgumentException("runnable must not be null!");
+        }
+        synchronized (mLock) {
+            if ((mPending & CMD_QUIT) != 0) {
+                return null;
+            }
+            Task task = new Task(runnable, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, 0)));
+            mDelayedTasks.add(task);
+            mLock.notifyAll();
+            return task;
+        }
+    }
+
+    /**
+     * 按到时间的先后执行已经到时间的任务，只在绘制线程收到CMD_RUN_TASKS之后调用
+     * 执行任务时不持有锁，任务中可以再次安排任务或者投递命令
+     */
+    void runTasks() {
+        while (true) {
+            Task task;
+            synchronized (mLock) {
+                if (mReadyTasks.isEmpty()) {
+                    return;
+                }
+                task = mReadyTasks.remove(0);
+            }
+            task.mRunnable.run();
+        }
+    }
+
+    /**
+     * 阻塞直到有命令到达，返回并清空当前所有待处理命令
+     * 有延迟任务时最多等待到最早的时间点，到时间的任务以CMD_RUN_TASKS与其他命令合并返回
+     * 收到退出命令后始终返回CMD_QUIT
+     * @return 待处理的命令集合
+     * @throws InterruptedException
+     */
+    int awaitCommands() throws InterruptedException {
+        synchronized (mLock) {
+            while (true) {
+                long timeout = fireExpiredLocked(System.nanoTime());
+                if (mPending != 0) {
+                    break;
+                }
+                if (mDelayedTasks.isEmpty()) {
+                    mLock.wait();
+                } else {
+                    TimeUnit.NANOSECONDS.timedWait(mLock, timeout);
+                }
+            }
+            mLoopCount++;
+
+            if ((mPending & CMD_QUIT) != 0) {
+                return CMD_QUIT;
+            }
+
+            int commands = mPending;
+            mPending = 0;
+            return commands;
+        }
+    }
+
+    /**
+     * 到时间的任务按时间先后移入等待执行的任务，并投递CMD_RUN_TASKS
+     * @param now
+     * @return 距离最早的任务的时间，没有任务时为Long.MAX_VALUE
+     */
+    private long fireExpiredLocked(long now) {
+        long timeout = Long.MAX_VALUE;
+        while (!mDelayedTasks.isEmpty()) {
+            Task earliest = null;
+            for (int i = 0;i < mDelayedTasks.size();i++) {
+                Task task = mDelayedTasks.get(i);
+                if (earliest == null || task.mDeadline - earliest.mDeadline < 0) {
+                    earliest = task;
+                }
+            }
+            long delay = earliest.mDeadline - now;
+            if (delay > 0) {
+                if (delay < timeout) {
+                    timeout = delay;
+                }
+                break;
+            }
+            mDelayedTasks.remove(earliest);
+            mReadyTasks.add(earliest);
+            mPending |= CMD_RUN_TASKS;
+        }
+        return timeout;
+    }
+
+    /**
+     * 返回绘制线程被唤醒的次数，用于确认空闲时线程确实处于挂起状态
+     * @return
+     */
+    long getLoopCount() {
+        synchronized (mLock) {
+            return mLoopCount;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package cn.ltaoj.widget;
+
+/**
+ * 绘制线程需要的全部界面状态的不可变快照
+ * UI线程在配置或者状态改变时创建新的快照，通过AtomicReference整体发布
+ * 绘制线程每帧开始时读取一次，同一帧内看到的几何信息、颜色以及状态总是一致的
+ */
+
+final class RenderSnapshot {
+    // 对应的界面配置下标
+    final int configIndex;
+    // 预先计算的几何信息，包括矩形框以及提示文字
+    final PreviewGeometry geometry;
+    // 遮罩、边角以及提示文字颜色
+    final int maskColor;
+    final int crnColor;
+    final int textColor;
+    // 界面状态
+    final FacePreview.PreviewState state;
+
+    RenderSnapshot(int configIndex, PreviewGeometry geometry, int maskColor, int crnColor, int textColor,
+                   FacePreview.PreviewState state) {
+        this.configIndex = configIndex;
+        this.geometry = geometry;
+        this.maskColor = maskColor;
+        this.crnColor = crnColor;
+        this.textColor = textColor;
+        this.state = state;
+    }
+
+    /**
+     * @param state
+     * @return 只有状态不同的快照，状态相同时返回自身
+     */
+    RenderSnapshot withState(FacePreview.PreviewState state) {
+        if (state == this.state) {
+            return this;
+        }
+        return new RenderSnapshot(configIndex, geometry, maskColor, crnColor, textColor, state);
+    }
+
+    /**
+     * 过渡动画中每帧使用的快照
+     * @param geometry
+     * @return 只有几何信息不同的快照，几何信息相同时返回自身
+     */
+    RenderSnapshot withGeometry(PreviewGeometry geometry) {
+        if (geometry == this.geometry) {
+            return this;
+        }
+        return new RenderSnapshot(configIndex, geometry, maskColor, crnColor, textColor, state);
+    }
+
+    /**
+     * 缓存图层的内容是否相同，状态不影响缓存图层
+     * @param other
+     * @return
+     */
+    boolean sameOverlay(RenderSnapshot other) {
+        return other != null && maskColor == other.maskColor && crnColor == other.crnColor
+                && textColor == other.textColor && geometry.sameLayout(other.geometry);
+    }
+}
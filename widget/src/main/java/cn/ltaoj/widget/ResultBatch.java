@@ -0,0 +1,145 @@
+package cn.ltaoj.widget;
+
+/**
+ * 一批检测结果图形，包括矩形框、关键点以及文字标签，坐标均为FacePreview的视图坐标
+ * 通过FacePreview.obtainResultBatch()取得，填充后交给FacePreview.publishResults()
+ * 对象由FacePreview复用，发布之后不能再修改或者再次发布
+ */
+
+public final class ResultBatch {
+    // 每种图形最多保存的个数，超出的部分被忽略，保证每帧的绘制量有上限
+    public static final int MAX_RECTS = 32;
+    public static final int MAX_POINTS = 128;
+    public static final int MAX_LABELS = 32;
+
+    private final float[] mRects = new float[MAX_RECTS * 4];
+    private final int[] mRectColors = new int[MAX_RECTS];
+    private int mRectCount;
+
+    private final float[] mPoints = new float[MAX_POINTS * 2];
+    private final int[] mPointColors = new int[MAX_POINTS];
+    private int mPointCount;
+
+    private final float[] mLabelPositions = new float[MAX_LABELS * 2];
+    private final String[] mLabels = new String[MAX_LABELS];
+    private final int[] mLabelColors = new int[MAX_LABELS];
+    private int mLabelCount;
+
+    ResultBatch() {
+    }
+
+    /**
+     * 添加一个矩形框
+     * @return 超出MAX_RECTS时返回false
+     */
+    public boolean addRect(float left, float top, float right, float bottom, int color) {
+        if (mRectCount == MAX_RECTS) {
+            return false;
+        }
+        int offset = mRectCount * 4;
+        mRects[offset] = Math.min(left, right);
+        mRects[offset + 1] = Math.min(top, bottom);
+        mRects[offset + 2] = Math.max(left, right);
+        mRects[offset + 3] = Math.max(top, bottom);
+        mRectColors[mRectCount++] = color;
+        return true;
+    }
+
+    /**
+     * 添加一个关键点
+     * @return 超出MAX_POINTS时返回false
+     */
+    public boolean addPoint(float x, float y, int color) {
+        if (mPointCount == MAX_POINTS) {
+            return false;
+        }
+        mPoints[mPointCount * 2] = x;
+        mPoints[mPointCount * 2 + 1] = y;
+        mPointColors[mPointCount++] = color;
+        return true;
+    }
+
+    /**
+     * 添加一个文字标签
+     * @param x 文字左侧位置
+     * @param y 文字baseline位置
+     * @return 超出MAX_LABELS或者text为空时返回false
+     */
+    public boolean addLabel(float x, float y, String text, int color) {
+        if (mLabelCount == MAX_LABELS || text == null || text.length() == 0) {
+            return false;
+        }
+        mLabelPositions[mLabelCount * 2] = x;
+        mLabelPositions[mLabelCount * 2 + 1] = y;
+        mLabels[mLabelCount] = text;
+        mLabelColors[mLabelCount++] = color;
+        return true;
+    }
+
+    /**
+     * 清空所有图形，发布空的批次会清除之前显示的结果
+     */
+    public void clear() {
+        mRectCount = 0;
+        mPointCount = 0;
+        for (int i = 0;i < mLabelCount;i++) {
+            mLabels[i] = null;
+        }
+        mLabelCount = 0;
+    }
+
+    public boolean isEmpty() {
+        return mRectCount == 0 && mPointCount == 0 && mLabelCount == 0;
+    }
+
+    int getRectCount() {
+        return mRectCount;
+    }
+
+    /**
+     * @return 依次为每个矩形框的left、top、right、bottom
+     */
+    float[] getRects() {
+        return mRects;
+    }
+
+    int getRectColor(int index) {
+        return mRectColors[index];
+    }
+
+    int getPointCount() {
+        return mPointCount;
+    }
+
+    float getPointX(int index) {
+        return mPoints[index * 2];
+    }
+
+    float getPointY(int index) {
+        return mPoints[index * 2 + 1];
+    }
+
+    int getPointColor(int index) {
+        return mPointColors[index];
+    }
+
+    int getLabelCount() {
+        return mLabelCount;
+    }
+
+    float getLabelX(int index) {
+        return mLabelPositions[index * 2];
+    }
+
+    float getLabelY(int index) {
+        return mLabelPositions[index * 2 + 1];
+    }
+
+    String getLabel(int index) {
+        return mLabels[index];
+    }
+
+    int getLabelColor(int index) {
+        return mLabelColors[index];
+    }
+}
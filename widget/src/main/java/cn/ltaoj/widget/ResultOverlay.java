@@ -0,0 +1,103 @@
+package cn.ltaoj.widget;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 检测结果的无锁三缓冲
+ * 检测线程填充并发布批次，绘制线程在每帧开始时取走最新发布的批次，双方都不会阻塞
+ * 两帧之间发布的多个批次只保留最后一个，因此绘制量与结果产生的频率无关
+ * 稳定状态下循环使用四个批次：检测线程正在填充的、等待绘制的、正在显示的以及空闲的
+ */
+
+final class ResultOverlay {
+    // 最新发布还没有被绘制线程取走的批次
+    private final AtomicReference<ResultBatch> mPending = new AtomicReference<ResultBatch>();
+    // 空闲批次，供下一次obtain()复用。检测线程和绘制线程可能同时回收，因此保留两个槽位
+    private final AtomicReference<ResultBatch> mSpare = new AtomicReference<ResultBatch>();
+    private final AtomicReference<ResultBatch> mSpare2 = new AtomicReference<ResultBatch>();
+    // 当前显示的批次，只在绘制线程访问
+    private ResultBatch mFront;
+
+    private final AtomicLong mPublished = new AtomicLong();
+    private final AtomicLong mSkipped = new AtomicLong();
+
+    /**
+     * 取得一个空的批次，可以在任意线程调用
+     * @return
+     */
+    ResultBatch obtain() {
+        ResultBatch batch = mSpare.getAndSet(null);
+        if (batch == null) {
+            batch = mSpare2.getAndSet(null);
+        }
+        if (batch == null) {
+            return new ResultBatch();
+        }
+        batch.clear();
+        return batch;
+    }
+
+    /**
+     * 发布一个批次，替换还没有被绘制的批次
+     * @param batch
+     * @return 是否替换了还没有绘制的批次
+     */
+    boolean publish(ResultBatch batch) {
+        if (batch == null) {
+            throw new IllegalArgumentException("batch must not be null!");
+        }
+        mPublished.incrementAndGet();
+        ResultBatch skipped = mPending.getAndSet(batch);
+        if (skipped != null) {
+            mSkipped.incrementAndGet();
+            recycle(skipped);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 绘制线程调用，把最新发布的批次切换为当前显示的批次
+     * @return 是否有新的批次
+     */
+    boolean swap() {
+        ResultBatch batch = mPending.getAndSet(null);
+        if (batch == null) {
+            return false;
+        }
+        if (mFront != null) {
+            recycle(mFront);
+        }
+        mFront = batch;
+        return true;
+    }
+
+    /**
+     * @return 当前显示的批次，只能在绘制线程调用
+     */
+    ResultBatch getFront() {
+        return mFront;
+    }
+
+    /**
+     * @return 发布的批次数
+     */
+    long getPublishedCount() {
+        return mPublished.get();
+    }
+
+    /**
+     * @return 还没有绘制就被新的批次替换的个数
+     */
+    long getSkippedCount() {
+        return mSkipped.get();
+    }
+
+    private void recycle(ResultBatch batch) {
+        // 两个槽位都被占用时交给GC
+        if (!mSpare.compareAndSet(null, batch)) {
+            mSpare2.compareAndSet(null, batch);
+        }
+    }
+}
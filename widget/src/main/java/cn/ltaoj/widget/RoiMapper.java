@@ -0,0 +1,92 @@
+package cn.ltaoj.widget;
+
+/**
+ * 将屏幕(视图)坐标中的矩形框映射到摄像头传感器坐标
+ * 预览画面是把传感器图像顺时针旋转rotation度之后拉伸到整个视图显示的
+ */
+
+final class RoiMapper {
+
+    private RoiMapper() {
+    }
+
+    /**
+     * 计算矩形框在传感器图像中的区域
+     * 结果会限制在图像范围内，并且四条边都对齐到偶数，保证YUV420的色度平面也能按(x / 2, y / 2)取到同一区域
+     * @param viewWidth 视图宽度
+     * @param viewHeight 视图高度
+     * @param left 矩形框在视图中的位置
+     * @param top
+     * @param right
+     * @param bottom
+     * @param frameWidth 传感器图像宽度
+     * @param frameHeight 传感器图像高度
+     * @param rotation 图像需要顺时针旋转的角度，只能是0、90、180、270
+     * @param out 依次写入left、top、right、bottom
+     */
+    static void map(int viewWidth, int viewHeight, float left, float top, float right, float bottom,
+                    int frameWidth, int frameHeight, int rotation, int[] out) {
+        if (viewWidth <= 0 || viewHeight <= 0 || frameWidth <= 0 || frameHeight <= 0) {
+            throw new IllegalArgumentException("view and frame size must be positive!");
+        }
+
+        boolean swap = rotation == 90 || rotation == 270;
+        // 旋转之后的图像大小
+        float rotatedWidth = swap ? frameHeight : frameWidth;
+        float rotatedHeight = swap ? frameWidth : frameHeight;
+        float scaleX = rotatedWidth / viewWidth;
+        float scaleY = rotatedHeight / viewHeight;
+        float rl = left * scaleX, rt = top * scaleY, rr = right * scaleX, rb = bottom * scaleY;
+
+        float sl, st, sr, sb;
+        switch (rotation) {
+            case 0:
+                sl = rl;
+                st = rt;
+                sr = rr;
+                sb = rb;
+                break;
+            case 90:
+                // 传感器(x, y)旋转后位于(frameHeight - y, x)
+                sl = rt;
+                st = frameHeight - rr;
+                sr = rb;
+                sb = frameHeight - rl;
+                break;
+            case 180:
+                sl = frameWidth - rr;
+                st = frameHeight - rb;
+                sr = frameWidth - rl;
+                sb = frameHeight - rt;
+                break;
+            case 270:
+                // 传感器(x, y)旋转后位于(y, frameWidth - x)
+                sl = frameWidth - rb;
+                st = rl;
+                sr = frameWidth - rt;
+                sb = rr;
+                break;
+            default:
+                throw new IllegalArgumentException("rotation must be 0, 90, 180 or 270!");
+        }
+
+        out[0] = clamp(floorEven(sl), frameWidth);
+        out[1] = clamp(floorEven(st), frameHeight);
+        out[2] = clamp(ceilEven(sr), frameWidth);
+        out[3] = clamp(ceilEven(sb), frameHeight);
+    }
+
+    private static int floorEven(float value) {
+        int v = (int) Math.floor(value);
+        return v - (v & 1);
+    }
+
+    private static int ceilEven(float value) {
+        int v = (int) Math.ceil(value);
+        return v + (v & 1);
+    }
+
+    private static int clamp(int value, int max) {
+        return value < 0 ? 0 : (value > max ? max : value);
+    }
+}
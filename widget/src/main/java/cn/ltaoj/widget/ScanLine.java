@@ -0,0 +1,58 @@
+package cn.ltaoj.widget;
+
+/**
+ * 扫描线当前的位置以及所在区域
+ * 只在绘制线程访问，移动时不分配内存
+ */
+
+final class ScanLine {
+    // 椭圆短轴的一半
+    private final float mShortAxis;
+    // 中心位置以及长轴的一半
+    private float mCenterX;
+    private float mCenterY;
+    private float mRadius;
+    // 扫描线所在的区域，多留出1像素给抗锯齿
+    private final DirtyRegion mBand = new DirtyRegion();
+
+    ScanLine(float shortAxis) {
+        mShortAxis = shortAxis;
+    }
+
+    /**
+     * 移动到新的位置
+     * @param centerX
+     * @param centerY
+     * @param radius 长轴的一半
+     */
+    void moveTo(float centerX, float centerY, float radius) {
+        mCenterX = centerX;
+        mCenterY = centerY;
+        mRadius = radius;
+        mBand.set((int) Math.floor(centerX - radius) - 1, (int) Math.floor(centerY - mShortAxis) - 1,
+                (int) Math.ceil(centerX + radius) + 1, (int) Math.ceil(centerY + mShortAxis) + 1);
+    }
+
+    float getCenterX() {
+        return mCenterX;
+    }
+
+    float getCenterY() {
+        return mCenterY;
+    }
+
+    float getRadius() {
+        return mRadius;
+    }
+
+    float getShortAxis() {
+        return mShortAxis;
+    }
+
+    /**
+     * @return 扫描线所在的区域，还没有移动过时为空
+     */
+    DirtyRegion getBand() {
+        return mBand;
+    }
+}
@@ -0,0 +1,75 @@
+package cn.ltaoj.widget;
+
+/**
+ * 扫描线时间轴
+ * 根据垂直同步时间戳计算扫描线在一个周期内的位置，替代原来的ValueAnimator
+ * 插值曲线与AccelerateDecelerateInterpolator一致，只使用基本类型运算
+ */
+
+final class ScanTimeline {
+    private final long mDurationNanos;
+
+    // 周期起点，第一次取值时确定
+    private long mStartNanos = -1;
+    // 暂停时的时间点，未暂停时为-1
+    private long mPausedAtNanos = -1;
+
+    /**
+     * @param durationMillis 扫描线从顶部运动到底部的时间
+     */
+    ScanTimeline(long durationMillis) {
+        if (durationMillis <= 0) {
+            throw new IllegalArgumentException("duration must be positive!");
+        }
+        mDurationNanos = durationMillis * 1000000L;
+    }
+
+    /**
+     * 计算指定时刻扫描线的位置
+     * @param frameTimeNanos 垂直同步时间戳，与System.nanoTime()同一时间基准
+     * @return 0到1之间的位置比例，0表示顶部，1表示底部
+     */
+    synchronized float getFraction(long frameTimeNanos) {
+        if (mPausedAtNanos >= 0) {
+            frameTimeNanos = mPausedAtNanos;
+        }
+        if (mStartNanos < 0) {
+            mStartNanos = frameTimeNanos;
+        }
+
+        long elapsed = frameTimeNanos - mStartNanos;
+        if (elapsed < 0) {
+            elapsed = 0;
+        }
+        float input = (elapsed % mDurationNanos) / (float) mDurationNanos;
+        return (float) (Math.cos((input + 1) * Math.PI) / 2.0f) + 0.5f;
+    }
+
+    /**
+     * 暂停，之后取到的位置保持不变
+     * @param nowNanos
+     */
+    synchronized void pause(long nowNanos) {
+        if (mPausedAtNanos < 0) {
+            mPausedAtNanos = nowNanos;
+        }
+    }
+
+    /**
+     * 从暂停的位置继续
+     * @param nowNanos
+     */
+    synchronized void resume(long nowNanos) {
+        if (mPausedAtNanos < 0) {
+            return;
+        }
+        if (mStartNanos >= 0) {
+            mStartNanos += nowNanos - mPausedAtNanos;
+        }
+        mPausedAtNanos = -1;
+    }
+
+    synchronized boolean isPaused() {
+        return mPausedAtNanos >= 0;
+    }
+}
@@ -0,0 +1,38 @@
+package cn.ltaoj.widget;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.SurfaceHolder;
+
+/**
+ * 软件绘制后端，通过SurfaceHolder.lockCanvas(Rect)只锁定需要更新的区域
+ * 所有API版本都可以使用，GPU后端不可用时作为备用
+ */
+
+final class SoftwarePreviewRenderer implements PreviewRenderer {
+    private final SurfaceHolder mHolder;
+
+    SoftwarePreviewRenderer(SurfaceHolder holder) {
+        mHolder = holder;
+    }
+
+    @Override
+    public Canvas lockCanvas(Rect dirty) {
+        return mHolder.lockCanvas(dirty);
+    }
+
+    @Override
+    public void unlockCanvasAndPost(Canvas canvas) {
+        mHolder.unlockCanvasAndPost(canvas);
+    }
+
+    @Override
+    public boolean supportsPartialUpdate() {
+        return true;
+    }
+
+    @Override
+    public boolean isHardwareAccelerated() {
+        return false;
+    }
+}
@@ -0,0 +1,284 @@
+package cn.ltaoj.widget;
+
+import android.os.Parcelable;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * 协调RecyclerView中的SwipeLayout，同时最多只有一个条目处于打开状态
+ * 打开一个条目或者开始滚动列表时关闭其他条目，打开的条目保存在SwipeStateStore中，条目复用之后恢复状态
+ * adapter有stable id时按照id保存，否则按照adapter position保存，并跟随数据的插入、删除以及移动更新位置
+ * 所有条目共用同一个监听器，回调时再查找条目位置，onBindViewHolder中调用bind()不分配内存
+ * 只在主线程访问
+ *
+ * 使用方式:
+ * SwipeCoordinator coordinator = new SwipeCoordinator();
+ * coordinator.attachToRecyclerView(recyclerView);
+ * 在onBindViewHolder中调用 coordinator.bind(holder.swipeLayout, position);
+ * 需要在旋转屏幕等情况下保留时，通过onSaveInstanceState()以及onRestoreInstanceState()保存以及恢复
+ */
+
+public class SwipeCoordinator {
+
+    /**
+     * 监听条目状态变化，回调中带有条目的adapter position
+     */
+    public interface OnSwipeItemListener {
+
+        void onStartOpen(SwipeLayout swipeLayout, int position);
+
+        void onOpen(SwipeLayout swipeLayout, int position);
+
+        void onStartClose(SwipeLayout swipeLayout, int position);
+
+        void onClose(SwipeLayout swipeLayout, int position);
+    }
+
+    private RecyclerView mRecyclerView;
+    // 已经注册数据监听的adapter
+    private RecyclerView.Adapter mAdapter;
+    private OnSwipeItemListener mListener;
+
+    // 打开的条目，最多只有一个
+    private final SwipeStateStore mStore = new SwipeStateStore();
+    // 显示打开条目的SwipeLayout，条目不在屏幕上时为null
+    private SwipeLayout mOpenLayout;
+    // bind()恢复状态时不回调
+    private boolean isBinding;
+
+    // 所有条目共用的监听器
+    private final SwipeLayout.OnSwipeChangeLintener mSwipeListener = new SwipeLayout.OnSwipeChangeLintener() {
+        @Override
+        public void onStartOpen(SwipeLayout swipeLayout) {
+            if (isBinding) {
+                return;
+            }
+            // 开始打开一个条目时关闭之前打开的条目
+            if (mOpenLayout != null && mOpenLayout != swipeLayout) {
+                mOpenLayout.close();
+            }
+            if (mListener != null) {
+                mListener.onStartOpen(swipeLayout, positionOf(swipeLayout));
+            }
+        }
+
+        @Override
+        public void onOpen(SwipeLayout swipeLayout) {
+            if (isBinding) {
+                return;
+            }
+            if (mOpenLayout != null && mOpenLayout != swipeLayout) {
+                mOpenLayout.close();
+            }
+            // 之前打开的条目可能已经不在屏幕上，直接清除
+            mStore.clear();
+            // 保存打开的一边
+            mStore.put(swipeLayout.getStateKey(), SwipeLayout.toTrackerState(swipeLayout.getSwipState()));
+            mOpenLayout = swipeLayout;
+            if (mListener != null) {
+                mListener.onOpen(swipeLayout, positionOf(swipeLayout));
+            }
+        }
+
+        @Override
+        public void onStartClose(SwipeLayout swipeLayout) {
+            if (!isBinding && mListener != null) {
+                mListener.onStartClose(swipeLayout, positionOf(swipeLayout));
+            }
+        }
+
+        @Override
+        public void onClose(SwipeLayout swipeLayout) {
+            if (isBinding) {
+                return;
+            }
+            if (swipeLayout == mOpenLayout) {
+                mOpenLayout = null;
+            }
+            if (mListener != null) {
+                mListener.onClose(swipeLayout, positionOf(swipeLayout));
+            }
+        }
+
+        @Override
+        public void onSwiping(SwipeLayout swipeLayout) {
+        }
+    };
+
+    // 开始拖动列表时关闭打开的条目
+    private final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            if (newState == RecyclerView.SCROLL_STATE_DRAGGING) {
+                closeOpenItem(true);
+            }
+        }
+    };
+
+    // 按照位置保存时，数据改变之后更新打开条目的位置；按照stable id保存时不需要更新
+    private final RecyclerView.AdapterDataObserver mDataObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            // 所有位置都可能改变，不再保留打开的条目
+            if (!hasStableIds()) {
+                mStore.clear();
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            if (!hasStableIds()) {
+                mStore.offsetKeys(positionStart, Long.MAX_VALUE, itemCount);
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            if (!hasStableIds()) {
+                mStore.removeRange(positionStart, positionStart + itemCount);
+                mStore.offsetKeys(positionStart + itemCount, Long.MAX_VALUE, -itemCount);
+            }
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            if (hasStableIds()) {
+                return;
+            }
+            // RecyclerView每次只移动一个条目
+            int state = mStore.get(fromPosition, SwipeStateTracker.STATE_CLOSE);
+            mStore.remove(fromPosition);
+            if (fromPosition < toPosition) {
+                mStore.offsetKeys(fromPosition + 1, toPosition + 1, -1);
+            } else {
+                mStore.offsetKeys(toPosition, fromPosition, 1);
+            }
+            if (state != SwipeStateTracker.STATE_CLOSE) {
+                mStore.put(toPosition, state);
+            }
+        }
+    };
+
+    /**
+     * 开始协调recyclerView中的条目，传入null时解除
+     * @param recyclerView
+     */
+    public void attachToRecyclerView(RecyclerView recyclerView) {
+        if (mRecyclerView == recyclerView) {
+            return;
+        }
+        if (mRecyclerView != null) {
+            mRecyclerView.removeOnScrollListener(mScrollListener);
+            observeAdapter(null);
+        }
+        mRecyclerView = recyclerView;
+        mStore.clear();
+        mOpenLayout = null;
+        if (recyclerView != null) {
+            recyclerView.addOnScrollListener(mScrollListener);
+            observeAdapter(recyclerView.getAdapter());
+        }
+    }
+
+    public void setOnSwipeItemListener(OnSwipeItemListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 在onBindViewHolder中调用，设置共用的监听器并恢复条目的打开状态，不分配内存
+     * @param swipeLayout 条目中的SwipeLayout
+     * @param position 条目位置
+     */
+    public void bind(SwipeLayout swipeLayout, int position) {
+        if (mRecyclerView == null) {
+            throw new IllegalStateException("call attachToRecyclerView() first!");
+        }
+        // adapter可能在attach之后才设置或者被替换
+        if (mRecyclerView.getAdapter() != mAdapter) {
+            observeAdapter(mRecyclerView.getAdapter());
+        }
+
+        swipeLayout.setOnSwipeChangeLintener(mSwipeListener);
+        long key = hasStableIds() ? mAdapter.getItemId(position) : position;
+        isBinding = true;
+        try {
+            swipeLayout.bindState(mStore, key);
+        } finally {
+            isBinding = false;
+        }
+        if (mStore.get(key, SwipeStateTracker.STATE_CLOSE) != SwipeStateTracker.STATE_CLOSE) {
+            mOpenLayout = swipeLayout;
+        } else if (swipeLayout == mOpenLayout) {
+            // 复用了之前打开的条目
+            mOpenLayout = null;
+        }
+    }
+
+    /**
+     * 关闭打开的条目
+     * @param isSmooth 是否显示动画
+     * @return 是否有打开的条目
+     */
+    public boolean closeOpenItem(boolean isSmooth) {
+        if (mStore.size() == 0) {
+            return false;
+        }
+        mStore.clear();
+        if (mOpenLayout != null) {
+            SwipeLayout layout = mOpenLayout;
+            mOpenLayout = null;
+            layout.close(isSmooth);
+        }
+        return true;
+    }
+
+    /**
+     * 返回打开的条目位置
+     * @return 没有打开的条目时为RecyclerView.NO_POSITION
+     */
+    public int getOpenPosition() {
+        if (mOpenLayout != null) {
+            return positionOf(mOpenLayout);
+        }
+        if (mStore.size() == 0 || hasStableIds()) {
+            return RecyclerView.NO_POSITION;
+        }
+        return (int) mStore.keyAt(0);
+    }
+
+    /**
+     * 返回打开的条目，可以用于保存状态
+     * @return 拷贝
+     */
+    public Parcelable onSaveInstanceState() {
+        return mStore.copy();
+    }
+
+    /**
+     * 恢复onSaveInstanceState()保存的状态，之后绑定的条目按照这个状态打开
+     * @param state
+     */
+    public void onRestoreInstanceState(Parcelable state) {
+        if (state instanceof SwipeStateStore) {
+            mStore.setTo((SwipeStateStore) state);
+        }
+    }
+
+    private boolean hasStableIds() {
+        return mAdapter != null && mAdapter.hasStableIds();
+    }
+
+    private void observeAdapter(RecyclerView.Adapter adapter) {
+        if (mAdapter != null) {
+            mAdapter.unregisterAdapterDataObserver(mDataObserver);
+        }
+        mAdapter = adapter;
+        if (adapter != null) {
+            adapter.registerAdapterDataObserver(mDataObserver);
+        }
+    }
+
+    private int positionOf(SwipeLayout swipeLayout) {
+        RecyclerView.ViewHolder holder = mRecyclerView == null ? null : mRecyclerView.findContainingViewHolder(swipeLayout);
+        return holder == null ? RecyclerView.NO_POSITION : holder.getAdapterPosition();
+    }
+}
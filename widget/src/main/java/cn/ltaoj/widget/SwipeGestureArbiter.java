@@ -0,0 +1,117 @@
+package cn.ltaoj.widget;
+
+/**
+ * 根据移动距离以及角度判断一次手势是拖动SwipeLayout还是交给父View(例如纵向滚动的RecyclerView)
+ * 移动距离超过touch slop之后才判断，之后这次手势的意图不再改变
+ * 与水平方向的夹角不超过最大角度，并且这个方向上还可以拖动时为拖动，否则交给父View
+ * 同时统计拖动以及交给父View的移动事件数，不依赖Android，可以单独测试
+ * 只在主线程访问
+ */
+
+final class SwipeGestureArbiter {
+    // 还没有超过touch slop
+    static final int INTENT_UNDECIDED = 0;
+    // 拖动SwipeLayout
+    static final int INTENT_SWIPE = 1;
+    // 交给父View或者子View
+    static final int INTENT_PASS = 2;
+
+    // 默认与水平方向的最大夹角(度)
+    static final float DEFAULT_MAX_ANGLE = 30;
+
+    private float mTouchSlopSquare;
+    // 最大夹角的正切值，设置时计算一次
+    private float mMaxSlope;
+    private float mMaxAngle;
+
+    private float mDownX;
+    private float mDownY;
+    private int mIntent = INTENT_UNDECIDED;
+
+    private long mSwipeEventCount;
+    private long mPassedEventCount;
+
+    SwipeGestureArbiter() {
+        setMaxAngle(DEFAULT_MAX_ANGLE);
+    }
+
+    void setTouchSlop(int touchSlop) {
+        mTouchSlopSquare = (float) touchSlop * touchSlop;
+    }
+
+    /**
+     * @param degrees 与水平方向的夹角，0到90之间
+     */
+    void setMaxAngle(float degrees) {
+        if (!(degrees > 0 && degrees < 90)) {
+            throw new IllegalArgumentException("degrees must be in (0, 90)!");
+        }
+        mMaxAngle = degrees;
+        mMaxSlope = (float) Math.tan(Math.toRadians(degrees));
+    }
+
+    float getMaxAngle() {
+        return mMaxAngle;
+    }
+
+    /**
+     * 按下时开始新的手势
+     * @param x
+     * @param y
+     */
+    void down(float x, float y) {
+        mDownX = x;
+        mDownY = y;
+        mIntent = INTENT_UNDECIDED;
+    }
+
+    /**
+     * 移动事件，同时计入拖动或者交给父View的事件数
+     * @param x
+     * @param y
+     * @param canSwipeLeft 向左拖动(显示右边菜单或者关闭左边菜单)还有空间
+     * @param canSwipeRight 向右拖动还有空间
+     * @return 这次手势的意图
+     */
+    int move(float x, float y, boolean canSwipeLeft, boolean canSwipeRight) {
+        if (mIntent == INTENT_UNDECIDED) {
+            float dx = x - mDownX;
+            float dy = y - mDownY;
+            if (dx * dx + dy * dy > mTouchSlopSquare) {
+                boolean isHorizontal = Math.abs(dy) <= Math.abs(dx) * mMaxSlope;
+                boolean canSwipe = dx < 0 ? canSwipeLeft : canSwipeRight;
+                mIntent = isHorizontal && canSwipe ? INTENT_SWIPE : INTENT_PASS;
+            }
+        }
+        if (mIntent == INTENT_SWIPE) {
+            mSwipeEventCount++;
+        } else {
+            mPassedEventCount++;
+        }
+        return mIntent;
+    }
+
+    /**
+     * 手势结束
+     */
+    void reset() {
+        mIntent = INTENT_UNDECIDED;
+    }
+
+    int getIntent() {
+        return mIntent;
+    }
+
+    long getSwipeEventCount() {
+        return mSwipeEventCount;
+    }
+
+    long getPassedEventCount() {
+        return mPassedEventCount;
+    }
+
+    void resetEventCounts() {
+        mSwipeEventCount = 0;
+        mPassedEventCount = 0;
+    }
+}
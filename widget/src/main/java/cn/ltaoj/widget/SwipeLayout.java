@@ -2,15 +2,19 @@ package cn.ltaoj.widget;
 
 import android.content.Context;
 import android.graphics.Rect;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.view.ViewCompat;
 import android.support.v4.widget.ViewDragHelper;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.Gravity;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 import android.widget.FrameLayout;
 
 /**
@@ -23,12 +27,14 @@ public class SwipeLayout extends FrameLayout {
     /**
      * CLOSE状态: 前边的布局完全显示
      * SWIPING状态: 前后布局都有显示，但后边布局没有显示完全
-     * OPEN状态: 后边布局完全显示
+     * OPEN状态: 右边菜单完全显示
+     * OPEN_LEFT状态: 左边菜单完全显示
      */
     public enum SwipeState {
         CLOSE,
         SWIPING,
-        OPEN
+        OPEN,
+        OPEN_LEFT
     }
 
     /**
@@ -60,29 +66,107 @@ public class SwipeLayout extends FrameLayout {
         void onClose(SwipeLayout swipeLayout);
 
         /**
-         * in SwipeState.SWIPING
+         * in SwipeState.SWIPING, called on every position change
+         * use OnSwipeProgressListener to get at most one call per frame
          * @param swipeLayout
          */
         void onSwiping(SwipeLayout swipeLayout);
     }
 
+    /**
+     * 拖动进度回调策略
+     * EVERY_FRAME: 位置改变的每一帧回调一次
+     * ON_CHANGE: 与上次回调的进度相差超过epsilon，或者到达完全关闭、完全打开时回调
+     * STATE_ONLY: 只在SwipeState改变时回调
+     */
+    public enum ProgressPolicy {
+        EVERY_FRAME,
+        ON_CHANGE,
+        STATE_ONLY
+    }
+
+    /**
+     * 监听SwipeLayout拖动进度，每个垂直同步帧最多回调一次
+     */
+    public interface OnSwipeProgressListener {
+        /**
+         * @param swipeLayout
+         * @param fraction 打开的比例，0为完全关闭，1为完全打开
+         */
+        void onSwipeProgress(SwipeLayout swipeLayout, float fraction);
+    }
+
     private SwipeState mSwipState = SwipeState.CLOSE;
+    // 根据前置布局位置计算状态以及需要分发的事件
+    private final SwipeStateTracker mStateTracker = new SwipeStateTracker();
     private OnSwipeChangeLintener onSwipeChangeLintener;
+    private OnSwipeProgressListener mProgressListener;
+    // 按照策略过滤每帧的拖动进度
+    private final SwipeProgressThrottle mProgressThrottle = new SwipeProgressThrottle();
+    // 一帧中的多次位置改变只请求一次回调
+    private boolean isProgressPending;
+    // 在下一个垂直同步帧回调拖动进度，重复使用同一个Runnable
+    private final Runnable mProgressDispatcher = new Runnable() {
+        @Override
+        public void run() {
+            isProgressPending = false;
+            if (mProgressListener == null) {
+                return;
+            }
+            float fraction = getOpenFraction();
+            if (mProgressThrottle.shouldDeliver(fraction, mStateTracker.getState())) {
+                mProgressListener.onSwipeProgress(SwipeLayout.this, fraction);
+            }
+        }
+    };
     private ViewDragHelper mViewDragHelper;
     private ViewGroup mFrontLayout;
-    private ViewGroup mBackLayout;
+    // 左右两边的菜单，没有时为null
+    private ViewGroup mLeftLayout;
+    private ViewGroup mRightLayout;
     private int mWidth;
     private int mHeight;
-    private int mRange;
+    // 两边菜单的宽度，没有时为0
+    private int mLeftRange;
+    private int mRightRange;
+    // 前置条目以及两边菜单的位置，重复使用
+    private final Rect mFrontRect = new Rect();
+    private final Rect mLeftRect = new Rect();
+    private final Rect mRightRect = new Rect();
+    private int mLayoutPassCount;
+    // 布局之前调用open(false)或者openLeft(false)时要打开的状态，布局时打开
+    private SwipeState mPendingState;
+    // 保存当前条目状态的位置，条目复用时通过bindState()切换
+    private SwipeStateStore mStateStore;
+    private long mStateKey;
+    // 默认最小滑动速度(dp/s)
+    private static final float DEFAULT_MIN_FLING_VELOCITY = 400;
+    // 松手速度超过这个值(px/s)时按照速度方向打开或关闭
+    private float mMinFlingVelocity;
+    // 判断一次手势是拖动还是交给父View，并统计移动事件数
+    private final SwipeGestureArbiter mGestureArbiter = new SwipeGestureArbiter();
+    // 这次手势已经请求父View不要截断
+    private boolean isDisallowRequested;
+    // 内部子View正在水平嵌套滚动
+    private boolean isNestedScrolling;
+    // 嵌套滚动最后的fling速度(px/s)，停止时按照这个速度打开或关闭
+    private float mNestedVelocity;
 
     private ViewDragHelper.Callback callback = new ViewDragHelper.Callback() {
 
         @Override
         public void onViewPositionChanged(View changedView, int left, int top, int dx, int dy) {
-            if (changedView == mFrontLayout) {
-                mBackLayout.offsetLeftAndRight(dx);
-            } else if (changedView == mBackLayout) {
-                mFrontLayout.offsetLeftAndRight(dx);
+            if (isSwipeChild(changedView)) {
+                // 其他两个布局跟随移动
+                if (changedView != mFrontLayout) {
+                    mFrontLayout.offsetLeftAndRight(dx);
+                }
+                if (mLeftLayout != null && changedView != mLeftLayout) {
+                    mLeftLayout.offsetLeftAndRight(dx);
+                }
+                if (mRightLayout != null && changedView != mRightLayout) {
+                    mRightLayout.offsetLeftAndRight(dx);
+                }
             }
 
             dispatchEvent();
@@ -97,7 +181,7 @@ public class SwipeLayout extends FrameLayout {
 
         @Override
         public int getViewHorizontalDragRange(View child) {
-            return mRange;
+            return mLeftRange + mRightRange;
         }
 
         /**
@@ -112,16 +196,16 @@ public class SwipeLayout extends FrameLayout {
 
         @Override
         public boolean tryCaptureView(View child, int pointerId) {
-            return true;
+            // 交给父View的手势以及嵌套滚动时不拖动
+            return mGestureArbiter.getIntent() != SwipeGestureArbiter.INTENT_PASS && !isNestedScrolling;
         }
 
-        // 表示每个子View可移动的固定边界
+        // 表示每个子View可移动的固定边界，菜单与前置条目的距离不变，换算成前置条目的位置再限制
         @Override
         public int clampViewPositionHorizontal(View child, int left, int dx) {
-            if (child == mFrontLayout) {
-                left = clampFrontLeft(left);
-            } else if (child == mBackLayout){
-                left = clampBackLeft(left);
+            if (isSwipeChild(child)) {
+                int offset = child.getLeft() - mFrontLayout.getLeft();
+                left = clampFrontLeft(left - offset) + offset;
             }
             return left;
         }
@@ -138,32 +222,21 @@ public class SwipeLayout extends FrameLayout {
             return mFrontLayout.getTop();
         }
 
+        // 快速滑动时按照速度方向打开或关闭，否则按照位置决定，动画时间由剩余距离以及松手速度决定
         @Override
         public void onViewReleased(View releasedChild, float xvel, float yvel) {
-            if (mFrontLayout.getLeft() > -(mRange / (mBackLayout.getChildCount() + 1))) {
-                close();
-            } else if (mFrontLayout.getLeft() < -(mRange / (mBackLayout.getChildCount() + 1))) {
-                open();
+            int finalLeft = resolveFinalLeft(xvel);
+            if (!isSwipeChild(releasedChild)) {
+                slideFrontTo(finalLeft, true);
+                return;
             }
-        }
-
-        private int clampFrontLeft(int left) {
-            if (left < -mRange) {
-                left = -mRange;
-            } else if (left > 0){
-                left = 0;
+            // 菜单紧贴前置条目
+            finalLeft += releasedChild.getLeft() - mFrontLayout.getLeft();
+            if (mViewDragHelper.settleCapturedViewAt(finalLeft, releasedChild.getTop())) {
+                ViewCompat.postInvalidateOnAnimation(SwipeLayout.this);
             }
-            return left;
         }
 
-        private int clampBackLeft(int left) {
-            if (left < mWidth - mRange) {
-                left = mWidth - mRange;
-            } else if (left > mWidth){
-                left = mWidth;
-            }
-            return left;
-        }
     };
 
     public SwipeLayout(@NonNull Context context) {
@@ -182,10 +255,14 @@ public class SwipeLayout extends FrameLayout {
         super(context, attrs, defStyleAttr, defStyleRes);
         // SwipeLayout沒有另外添加Attrs
         mViewDragHelper = ViewDragHelper.create(this, 1.0f, callback);
+        mMinFlingVelocity = DEFAULT_MIN_FLING_VELOCITY * getResources().getDisplayMetrics().density;
+        mGestureArbiter.setTouchSlop(mViewDragHelper.getTouchSlop());
     }
 
     /**
      * I guess this method should execute next constructor
+     * 第一个子View为菜单，layout_gravity为left或者start时显示在左边，否则显示在右边
+     * 第二个子View的layout_gravity指定了另一边时也是菜单，前置条目为第三个子View，否则第二个子View为前置条目
      */
     @Override
     protected void onFinishInflate() {
@@ -202,10 +279,48 @@ public class SwipeLayout extends FrameLayout {
             throw new IllegalArgumentException("your children must be instance of ViewGroup!");
         }
 
-        // 后边菜单
-        mBackLayout = (ViewGroup) getChildAt(0);
-        // 前置条目
-        mFrontLayout = (ViewGroup) getChildAt(1);
+        ViewGroup menu = (ViewGroup) getChildAt(0);
+        boolean isLeft = horizontalGravityOf(menu) == Gravity.LEFT;
+        int secondGravity = horizontalGravityOf(getChildAt(1));
+        ViewGroup otherMenu = null;
+        if (childCount > 2 && secondGravity == (isLeft ? Gravity.RIGHT : Gravity.LEFT)) {
+            if (!(getChildAt(2) instanceof ViewGroup)) {
+                throw new IllegalArgumentException("your children must be instance of ViewGroup!");
+            }
+            otherMenu = (ViewGroup) getChildAt(1);
+            // 前置条目
+            mFrontLayout = (ViewGroup) getChildAt(2);
+        } else {
+            // 前置条目
+            mFrontLayout = (ViewGroup) getChildAt(1);
+        }
+        mLeftLayout = isLeft ? menu : otherMenu;
+        mRightLayout = isLeft ? otherMenu : menu;
+
+        // 將控件前置，只在这里调整一次，bringChildToFront会请求重新布局
+        if (getChildAt(childCount - 1) != mFrontLayout) {
+            bringChildToFront(mFrontLayout);
+        }
+    }
+
+    /**
+     * @param child
+     * @return 子View的layout_gravity的水平方向，Gravity.LEFT、Gravity.RIGHT，没有指定时为0
+     */
+    private int horizontalGravityOf(View child) {
+        if (!(child.getLayoutParams() instanceof FrameLayout.LayoutParams)) {
+            return 0;
+        }
+        int gravity = ((FrameLayout.LayoutParams) child.getLayoutParams()).gravity;
+        if (gravity == -1) {
+            return 0;
+        }
+        gravity = Gravity.getAbsoluteGravity(gravity, getLayoutDirection()) & Gravity.HORIZONTAL_GRAVITY_MASK;
+        return gravity == Gravity.LEFT || gravity == Gravity.RIGHT ? gravity : 0;
+    }
+
+    private boolean isSwipeChild(View child) {
+        return child == mFrontLayout || (child != null && (child == mLeftLayout || child == mRightLayout));
     }
 
     @Override
@@ -218,43 +333,111 @@ public class SwipeLayout extends FrameLayout {
         super.onSizeChanged(w, h, oldw, oldh);
         mWidth = w;
         mHeight = h;
-        // 可拖动范围
-        mRange = mBackLayout.getMeasuredWidth();
     }
 
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        super.onLayout(changed, left, top, right, bottom);
+        mLayoutPassCount++;
+        // 保留拖动位置，FrameLayout的布局会把前置条目放回0
+        int frontLeft = mFrontLayout.getLeft();
+        int swipeChildCount = 1 + (mLeftLayout != null ? 1 : 0) + (mRightLayout != null ? 1 : 0);
+        if (getChildCount() > swipeChildCount) {
+            // 其他子View按照FrameLayout布局
+            super.onLayout(changed, left, top, right, bottom);
+        }
 
-        layoutInit(false);
-    }
+        // 可拖动范围，菜单宽度改变时打开的条目停在新的范围内
+        mLeftRange = mLeftLayout == null ? 0 : mLeftLayout.getMeasuredWidth();
+        mRightRange = mRightLayout == null ? 0 : mRightLayout.getMeasuredWidth();
+        SwipeState state = mPendingState != null ? mPendingState : mSwipState;
+        if (state == SwipeState.OPEN || frontLeft < -mRightRange) {
+            frontLeft = -mRightRange;
+        } else if (state == SwipeState.OPEN_LEFT || frontLeft > mLeftRange) {
+            frontLeft = mLeftRange;
+        }
+        mPendingState = null;
 
-    private void layoutInit(boolean isOpen) {
-        Rect frontRect = computeFrontRect(isOpen);
+        mFrontRect.set(frontLeft, 0, frontLeft + mWidth, mHeight);
+        layoutChild(mFrontLayout, mFrontRect);
+        if (mLeftLayout != null) {
+            mLeftRect.set(mFrontRect.left - mLeftRange, mFrontRect.top, mFrontRect.left, mFrontRect.bottom);
+            layoutChild(mLeftLayout, mLeftRect);
+        }
+        if (mRightLayout != null) {
+            mRightRect.set(mFrontRect.right, mFrontRect.top, mFrontRect.right + mRightRange, mFrontRect.bottom);
+            layoutChild(mRightLayout, mRightRect);
+        }
+        if (SwipeStateTracker.resolveState(frontLeft, mLeftRange, mRightRange) != mStateTracker.getState()) {
+            dispatchEvent();
+        }
+    }
 
-        mFrontLayout.layout(frontRect.left, frontRect.top, frontRect.right, frontRect.bottom);
+    /**
+     * 位置没有变化并且子View没有请求布局时跳过
+     * @param child
+     * @param rect
+     */
+    private void layoutChild(View child, Rect rect) {
+        if (child.isLayoutRequested() || child.getLeft() != rect.left || child.getTop() != rect.top
+                || child.getRight() != rect.right || child.getBottom() != rect.bottom) {
+            child.layout(rect.left, rect.top, rect.right, rect.bottom);
+        }
+    }
 
-        Rect backRect = computeBackRect(frontRect);
-        mBackLayout.layout(backRect.left, backRect.top, backRect.right, backRect.bottom);
+    private int clampFrontLeft(int left) {
+        if (left < -mRightRange) {
+            left = -mRightRange;
+        } else if (left > mLeftRange){
+            left = mLeftRange;
+        }
+        return left;
+    }
 
-        // 將控件前置
-        bringChildToFront(mFrontLayout);
+    /**
+     * @param menu
+     * @param range
+     * @return 速度较小时拖动超过这个距离才打开，菜单中的按钮越多越容易打开
+     */
+    private int thresholdOf(ViewGroup menu, int range) {
+        return menu == null ? 0 : range / (menu.getChildCount() + 1);
     }
 
-    private Rect computeFrontRect(boolean isOpen) {
-        int left = 0;
+    /**
+     * @param xvel 水平速度(px/s)，向左为负
+     * @return 按照当前位置以及速度，前置条目最终的左边界
+     */
+    private int resolveFinalLeft(float xvel) {
+        return SwipeSettlePolicy.resolveFrontLeft(mFrontLayout.getLeft(), mLeftRange, mRightRange,
+                thresholdOf(mLeftLayout, mLeftRange), thresholdOf(mRightLayout, mRightRange),
+                xvel, mMinFlingVelocity);
+    }
 
-        if (isOpen) {
-            left = -mRange;
-        } else {
-            left = 0;
+    /**
+     * 不重新布局，直接移动前置条目以及两边菜单
+     * @param frontLeft 前置条目的左边界
+     */
+    private void moveFrontTo(int frontLeft) {
+        int dx = frontLeft - mFrontLayout.getLeft();
+        if (dx == 0) {
+            return;
         }
-
-        return new Rect(left, 0, left + mWidth, mHeight);
+        mFrontLayout.offsetLeftAndRight(dx);
+        if (mLeftLayout != null) {
+            mLeftLayout.offsetLeftAndRight(dx);
+        }
+        if (mRightLayout != null) {
+            mRightLayout.offsetLeftAndRight(dx);
+        }
+        dispatchEvent();
+        invalidate();
     }
 
-    private Rect computeBackRect(Rect frontRect) {
-        return new Rect(frontRect.right, frontRect.top, frontRect.right + mRange, frontRect.bottom);
+    /**
+     * 返回布局次数，用于检查一帧中只布局一次
+     * @return
+     */
+    int getLayoutPassCount() {
+        return mLayoutPassCount;
     }
 
     @Override
@@ -265,7 +448,7 @@ public class SwipeLayout extends FrameLayout {
     // 是否截断触摸事件
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
-        return mViewDragHelper.shouldInterceptTouchEvent(ev);
+        return arbitrate(ev) && mViewDragHelper.shouldInterceptTouchEvent(ev);
     }
 
     @Override
@@ -278,10 +461,112 @@ public class SwipeLayout extends FrameLayout {
 //                }
 //                break;
 //        }
+        if (!arbitrate(event)) {
+            return false;
+        }
         mViewDragHelper.processTouchEvent(event);
         return true;
     }
 
+    /**
+     * 判断手势意图，超过touch slop之前以及交给父View的手势不交给ViewDragHelper，父View按照自己的touch slop截断
+     * 确认水平拖动之后才请求父View不要截断
+     * @param event
+     * @return 是否交给ViewDragHelper处理
+     */
+    private boolean arbitrate(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mGestureArbiter.down(event.getX(), event.getY());
+                isDisallowRequested = false;
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                // 内部子View水平嵌套滚动时由onNestedScroll()拖动
+                boolean canSwipe = !isNestedScrolling;
+                int frontLeft = mFrontLayout.getLeft();
+                int intent = mGestureArbiter.move(event.getX(), event.getY(),
+                        canSwipe && frontLeft > -mRightRange, canSwipe && frontLeft < mLeftRange);
+                if (intent == SwipeGestureArbiter.INTENT_SWIPE) {
+                    if (!isDisallowRequested) {
+                        isDisallowRequested = true;
+                        ViewParent parent = getParent();
+                        if (parent != null) {
+                            parent.requestDisallowInterceptTouchEvent(true);
+                        }
+                    }
+                    return true;
+                }
+                if (intent == SwipeGestureArbiter.INTENT_PASS
+                        && mViewDragHelper.getViewDragState() == ViewDragHelper.STATE_DRAGGING) {
+                    // 按下时抓住了正在动画的条目，交给父View之前停在打开或者关闭的位置
+                    slideFrontTo(resolveFinalLeft(0), true);
+                }
+                return false;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mGestureArbiter.reset();
+                isDisallowRequested = false;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    // 内部可以水平滚动的子View(例如横向的RecyclerView)滚动到边缘之后继续拖动SwipeLayout，纵向嵌套滚动交给父View
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        return (nestedScrollAxes & ViewCompat.SCROLL_AXIS_HORIZONTAL) != 0
+                && mViewDragHelper.getViewDragState() != ViewDragHelper.STATE_DRAGGING;
+    }
+
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        super.onNestedScrollAccepted(child, target, axes);
+        mViewDragHelper.abort();
+        isNestedScrolling = true;
+        mNestedVelocity = 0;
+    }
+
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        // 菜单显示时先收起菜单，再滚动子View
+        int frontLeft = mFrontLayout.getLeft();
+        if ((frontLeft < 0 && dx < 0) || (frontLeft > 0 && dx > 0)) {
+            int consumedX = Math.abs(dx) < Math.abs(frontLeft) ? dx : frontLeft;
+            moveFrontTo(frontLeft - consumedX);
+            consumed[0] = consumedX;
+        }
+    }
+
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+        if (dxUnconsumed != 0) {
+            moveFrontTo(clampFrontLeft(mFrontLayout.getLeft() - dxUnconsumed));
+        }
+    }
+
+    @Override
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        if (mFrontLayout.getLeft() == 0) {
+            return false;
+        }
+        // 菜单显示时由SwipeLayout按照速度打开或关闭，子View不再fling
+        mNestedVelocity = -velocityX;
+        return true;
+    }
+
+    @Override
+    public void onStopNestedScroll(View target) {
+        super.onStopNestedScroll(target);
+        if (!isNestedScrolling) {
+            return;
+        }
+        isNestedScrolling = false;
+        if (mFrontLayout.getLeft() != 0) {
+            slideFrontTo(resolveFinalLeft(mNestedVelocity), true);
+        }
+    }
+
     @Override
     public void computeScroll() {
         super.computeScroll();
@@ -292,60 +577,222 @@ public class SwipeLayout extends FrameLayout {
 
     // 当View的位置改变后，View会有状态变化，根据状态变化来分发事件，回调接口
     private void dispatchEvent() {
-        SwipeState preState = mSwipState;
-        mSwipState = updateState();
+        int event = mStateTracker.update(mFrontLayout.getLeft(), mLeftRange, mRightRange);
+        mSwipState = toSwipeState(mStateTracker.getState());
+
+        // 状态跟随数据条目，而不是跟随复用的View
+        if (mStateStore != null) {
+            if (event == SwipeStateTracker.EVENT_OPEN) {
+                // 保存打开的一边
+                mStateStore.put(mStateKey, mStateTracker.getState());
+            } else if (event == SwipeStateTracker.EVENT_CLOSE) {
+                mStateStore.remove(mStateKey);
+            }
+        }
 
         if (onSwipeChangeLintener != null) {
             onSwipeChangeLintener.onSwiping(this);
-            if (mSwipState != preState) {
-                if (mSwipState == SwipeState.CLOSE) {
+            switch (event) {
+                case SwipeStateTracker.EVENT_CLOSE:
                     onSwipeChangeLintener.onClose(this);
-                } else if (mSwipState == SwipeState.OPEN) {
+                    break;
+                case SwipeStateTracker.EVENT_OPEN:
                     onSwipeChangeLintener.onOpen(this);
-                } else if (preState == SwipeState.CLOSE) {
+                    break;
+                case SwipeStateTracker.EVENT_START_OPEN:
                     onSwipeChangeLintener.onStartOpen(this);
-                } else if (preState == SwipeState.OPEN) {
+                    break;
+                case SwipeStateTracker.EVENT_START_CLOSE:
                     onSwipeChangeLintener.onStartClose(this);
-                }
+                    break;
             }
         }
-    }
 
-    private SwipeState updateState() {
-        if (mFrontLayout.getLeft() == -mRange) {
-            return SwipeState.OPEN;
-        } else if (mFrontLayout.getLeft() == 0) {
-            return SwipeState.CLOSE;
+        if (mProgressListener != null && !isProgressPending) {
+            isProgressPending = true;
+            ViewCompat.postOnAnimation(this, mProgressDispatcher);
         }
-        return SwipeState.SWIPING;
     }
 
-    public void open(boolean isSmooth) {
-        if (isSmooth) {
-            int finalLeft = -mRange;
-            // 使用smoothSlideViewTo方式时注意第一个参数传入的应该为子View，如果传入this指针那么不会起作用！！！
-            boolean b = mViewDragHelper.smoothSlideViewTo(mFrontLayout, finalLeft, mFrontLayout.getTop());
-            if (b) {
-                ViewCompat.postInvalidateOnAnimation(this);
+    /**
+     * 绑定条目时调用，按照store中保存的状态直接打开或关闭，不显示动画，之后打开或关闭时记录到store中
+     * @param store 为null时不再记录
+     * @param key 条目位置或者stable id
+     */
+    public void bindState(SwipeStateStore store, long key) {
+        // 恢复状态时不记录
+        mStateStore = null;
+        int state = store == null ? SwipeStateTracker.STATE_CLOSE : store.get(key, SwipeStateTracker.STATE_CLOSE);
+        if (state == SwipeStateTracker.STATE_OPEN || state == SwipeStateTracker.STATE_OPEN_LEFT) {
+            if (mSwipState != toSwipeState(state)) {
+                openTo(toSwipeState(state), false);
             }
+        } else if (mSwipState != SwipeState.CLOSE || mPendingState != null) {
+            close(false);
+        }
+        mStateStore = store;
+        mStateKey = key;
+    }
+
+    long getStateKey() {
+        return mStateKey;
+    }
+
+    /**
+     * SwipeStateTracker中的状态与SwipeState之间的唯一映射，保存到SwipeStateStore以及SavedState的都是SwipeStateTracker中的状态
+     * @param state SwipeStateTracker.STATE_*
+     * @return
+     */
+    static SwipeState toSwipeState(int state) {
+        switch (state) {
+            case SwipeStateTracker.STATE_SWIPING:
+                return SwipeState.SWIPING;
+            case SwipeStateTracker.STATE_OPEN:
+                return SwipeState.OPEN;
+            case SwipeStateTracker.STATE_OPEN_LEFT:
+                return SwipeState.OPEN_LEFT;
+            default:
+                return SwipeState.CLOSE;
+        }
+    }
+
+    /**
+     * toSwipeState()的逆映射
+     * @param swipState
+     * @return SwipeStateTracker.STATE_*
+     */
+    static int toTrackerState(SwipeState swipState) {
+        switch (swipState) {
+            case SWIPING:
+                return SwipeStateTracker.STATE_SWIPING;
+            case OPEN:
+                return SwipeStateTracker.STATE_OPEN;
+            case OPEN_LEFT:
+                return SwipeStateTracker.STATE_OPEN_LEFT;
+            default:
+                return SwipeStateTracker.STATE_CLOSE;
+        }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        SwipeState swipState = mPendingState != null ? mPendingState : mSwipState;
+        state.state = swipState == SwipeState.SWIPING ? SwipeStateTracker.STATE_CLOSE : toTrackerState(swipState);
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        if (savedState.state == SwipeStateTracker.STATE_OPEN || savedState.state == SwipeStateTracker.STATE_OPEN_LEFT) {
+            openTo(toSwipeState(savedState.state), false);
         } else {
-            layoutInit(true);
+            close(false);
         }
     }
 
+    /**
+     * 保存打开的一边，拖动到一半的条目按照关闭恢复
+     */
+    static class SavedState extends BaseSavedState {
+        // SwipeStateTracker中的状态
+        int state;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel source) {
+            super(source);
+            state = source.readInt();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(state);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel source) {
+                return new SavedState(source);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(mProgressDispatcher);
+        isProgressPending = false;
+    }
+
+    /**
+     * 打开右边菜单，只有左边菜单时打开左边菜单
+     * @param isSmooth
+     */
+    public void open(boolean isSmooth) {
+        openTo(mRightLayout != null || mLeftLayout == null ? SwipeState.OPEN : SwipeState.OPEN_LEFT, isSmooth);
+    }
+
     public void open() {
         open(true);
     }
 
+    /**
+     * 打开左边菜单
+     * @param isSmooth
+     */
+    public void openLeft(boolean isSmooth) {
+        openTo(SwipeState.OPEN_LEFT, isSmooth);
+    }
+
+    public void openLeft() {
+        openLeft(true);
+    }
+
+    /**
+     * @param state SwipeState.OPEN或者SwipeState.OPEN_LEFT
+     * @param isSmooth
+     */
+    private void openTo(SwipeState state, boolean isSmooth) {
+        if (!isSmooth && mLayoutPassCount == 0) {
+            // 还没有布局，不知道可拖动范围，布局时再打开
+            mPendingState = state;
+            return;
+        }
+        slideFrontTo(state == SwipeState.OPEN_LEFT ? mLeftRange : -mRightRange, isSmooth);
+    }
+
     public void close(boolean isSmooth) {
+        if (!isSmooth) {
+            mPendingState = null;
+        }
+        slideFrontTo(0, isSmooth);
+    }
+
+    private void slideFrontTo(int finalLeft, boolean isSmooth) {
         if (isSmooth) {
-            int finalLeft = 0;
+            // 使用smoothSlideViewTo方式时注意第一个参数传入的应该为子View，如果传入this指针那么不会起作用！！！
             boolean b = mViewDragHelper.smoothSlideViewTo(mFrontLayout, finalLeft, mFrontLayout.getTop());
             if (b) {
                 ViewCompat.postInvalidateOnAnimation(this);
             }
         } else {
-            layoutInit(false);
+            mViewDragHelper.abort();
+            moveFrontTo(finalLeft);
         }
     }
 
@@ -360,4 +807,94 @@ public class SwipeLayout extends FrameLayout {
     public SwipeState getSwipState() {
         return mSwipState;
     }
+
+    /**
+     * 设置拖动进度监听器，每个垂直同步帧最多回调一次
+     * @param listener 为null时不再回调
+     * @param policy 回调策略
+     */
+    public void setOnSwipeProgressListener(OnSwipeProgressListener listener, ProgressPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy must not be null!");
+        }
+        mProgressListener = listener;
+        mProgressThrottle.setPolicy(policy);
+        if (listener == null) {
+            removeCallbacks(mProgressDispatcher);
+            isProgressPending = false;
+        }
+    }
+
+    public void setOnSwipeProgressListener(OnSwipeProgressListener listener) {
+        setOnSwipeProgressListener(listener, ProgressPolicy.EVERY_FRAME);
+    }
+
+    /**
+     * 设置ProgressPolicy.ON_CHANGE策略的最小变化量，默认为0.01
+     * @param epsilon 0到1之间
+     */
+    public void setProgressEpsilon(float epsilon) {
+        if (epsilon < 0 || epsilon > 1) {
+            throw new IllegalArgumentException("epsilon must be in [0, 1]!");
+        }
+        mProgressThrottle.setEpsilon(epsilon);
+    }
+
+    /**
+     * 设置最小滑动速度，松手速度超过这个值时按照速度方向打开或关闭，否则按照位置决定，默认为400dp/s
+     * @param pixelsPerSecond
+     */
+    public void setMinFlingVelocity(float pixelsPerSecond) {
+        if (pixelsPerSecond < 0) {
+            throw new IllegalArgumentException("pixelsPerSecond must not be negative!");
+        }
+        mMinFlingVelocity = pixelsPerSecond;
+    }
+
+    public float getMinFlingVelocity() {
+        return mMinFlingVelocity;
+    }
+
+    /**
+     * 设置拖动手势与水平方向的最大夹角，超过这个角度的手势交给父View，默认为30度
+     * @param degrees 0到90之间
+     */
+    public void setMaxSwipeAngle(float degrees) {
+        mGestureArbiter.setMaxAngle(degrees);
+    }
+
+    public float getMaxSwipeAngle() {
+        return mGestureArbiter.getMaxAngle();
+    }
+
+    /**
+     * 返回确认为拖动、由SwipeLayout处理的移动事件数
+     * @return
+     */
+    public long getSwipeEventCount() {
+        return mGestureArbiter.getSwipeEventCount();
+    }
+
+    /**
+     * 返回交给父View或者子View处理的移动事件数，包括超过touch slop之前的移动事件
+     * @return
+     */
+    public long getPassedEventCount() {
+        return mGestureArbiter.getPassedEventCount();
+    }
+
+    public void resetEventCounts() {
+        mGestureArbiter.resetEventCounts();
+    }
+
+    /**
+     * 返回当前显示的一边菜单打开的比例，显示左边菜单时前置条目的getLeft()为正
+     * @return 0为完全关闭，1为完全打开
+     */
+    public float getOpenFraction() {
+        if (mFrontLayout == null) {
+            return 0;
+        }
+        return SwipeStateTracker.resolveOpenFraction(mFrontLayout.getLeft(), mLeftRange, mRightRange);
+    }
 }
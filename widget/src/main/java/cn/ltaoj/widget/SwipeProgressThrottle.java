@@ -0,0 +1,72 @@
+package cn.ltaoj.widget;
+
+/**
+ * 按照SwipeLayout.ProgressPolicy决定一帧的拖动进度是否需要回调
+ * SwipeLayout每帧最多检查一次，这里只负责按照策略过滤
+ * 只在主线程访问
+ */
+
+final class SwipeProgressThrottle {
+    // ON_CHANGE策略默认的最小变化量
+    static final float DEFAULT_EPSILON = 0.01f;
+
+    private SwipeLayout.ProgressPolicy mPolicy = SwipeLayout.ProgressPolicy.EVERY_FRAME;
+    private float mEpsilon = DEFAULT_EPSILON;
+
+    // 上次回调的进度以及状态，还没有回调时为-1
+    private float mLastFraction = -1;
+    private int mLastState = -1;
+
+    void setPolicy(SwipeLayout.ProgressPolicy policy) {
+        mPolicy = policy;
+        reset();
+    }
+
+    SwipeLayout.ProgressPolicy getPolicy() {
+        return mPolicy;
+    }
+
+    void setEpsilon(float epsilon) {
+        mEpsilon = epsilon;
+    }
+
+    float getEpsilon() {
+        return mEpsilon;
+    }
+
+    /**
+     * 下一次检查总是回调
+     */
+    void reset() {
+        mLastFraction = -1;
+        mLastState = -1;
+    }
+
+    /**
+     * @param fraction 打开的比例，0为关闭，1为完全打开
+     * @param state SwipeStateTracker中的状态
+     * @return 是否需要回调，需要时记录本次的进度以及状态
+     */
+    boolean shouldDeliver(float fraction, int state) {
+        boolean deliver;
+        switch (mPolicy) {
+            case ON_CHANGE:
+                // 到达两端时即使变化量小于epsilon也要回调，保证最后一次回调是0或者1
+                deliver = Math.abs(fraction - mLastFraction) >= mEpsilon
+                        || (state != mLastState && state != SwipeStateTracker.STATE_SWIPING);
+                break;
+            case STATE_ONLY:
+                deliver = state != mLastState;
+                break;
+            default:
+                // 只有位置改变的帧才会检查
+                deliver = true;
+                break;
+        }
+        if (deliver) {
+            mLastFraction = fraction;
+            mLastState = state;
+        }
+        return deliver;
+    }
+}
@@ -0,0 +1,53 @@
+package cn.ltaoj.widget;
+
+/**
+ * 松手之后SwipeLayout应该停在打开还是关闭的位置
+ * 松手速度超过最小滑动速度时按照速度方向决定，否则按照松手时的位置决定
+ * 左右两边菜单的范围以及阈值相互独立，松手时只在已经显示的一边打开或者关闭
+ */
+
+final class SwipeSettlePolicy {
+
+    private SwipeSettlePolicy() {
+    }
+
+    /**
+     * 只有右边菜单
+     * @param frontLeft 松手时前置布局的左边界
+     * @param range 可拖动范围
+     * @param threshold 速度较小时，拖动超过这个距离才打开
+     * @param xvel 松手时的水平速度(px/s)，向左为负
+     * @param minFlingVelocity 按照速度方向决定的最小速度(px/s)
+     * @return 前置布局最终的左边界，打开时为-range，关闭时为0
+     */
+    static int resolveFrontLeft(int frontLeft, int range, int threshold, float xvel, float minFlingVelocity) {
+        return resolveFrontLeft(frontLeft, 0, range, 0, threshold, xvel, minFlingVelocity);
+    }
+
+    /**
+     * @param frontLeft 松手时前置布局的左边界，显示左边菜单时为正
+     * @param leftRange 左边菜单的宽度，没有时为0
+     * @param rightRange 右边菜单的宽度，没有时为0
+     * @param leftThreshold 速度较小时，向右拖动超过这个距离才打开左边菜单
+     * @param rightThreshold 速度较小时，向左拖动超过这个距离才打开右边菜单
+     * @param xvel 松手时的水平速度(px/s)，向左为负
+     * @param minFlingVelocity 按照速度方向决定的最小速度(px/s)
+     * @return 前置布局最终的左边界，打开右边菜单时为-rightRange，打开左边菜单时为leftRange，关闭时为0
+     */
+    static int resolveFrontLeft(int frontLeft, int leftRange, int rightRange,
+                                int leftThreshold, int rightThreshold, float xvel, float minFlingVelocity) {
+        boolean isFling = Math.abs(xvel) >= minFlingVelocity && xvel != 0;
+        // 停在关闭位置时按照速度方向选择一边
+        boolean isRight = frontLeft < 0 || (frontLeft == 0 && xvel < 0);
+        if (isRight) {
+            if (isFling) {
+                return xvel < 0 ? -rightRange : 0;
+            }
+            return frontLeft < -rightThreshold ? -rightRange : 0;
+        }
+        if (isFling) {
+            return xvel > 0 ? leftRange : 0;
+        }
+        return frontLeft > leftThreshold ? leftRange : 0;
+    }
+}
@@ -0,0 +1,199 @@
+package cn.ltaoj.widget;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * 按照条目位置或者stable id保存SwipeLayout的状态，条目复用之后通过SwipeLayout.bindState()恢复
+ * 只保存没有关闭的条目，占用的内存与打开的条目数成正比，与列表长度无关
+ * 键按照升序保存在long[]中，通过二分查找读取，读写都不装箱，容量不足时才扩容
+ * 只在主线程访问
+ */
+
+public final class SwipeStateStore implements Parcelable {
+    private static final long[] EMPTY_KEYS = new long[0];
+    private static final int[] EMPTY_VALUES = new int[0];
+
+    private long[] mKeys;
+    private int[] mValues;
+    private int mSize;
+
+    public SwipeStateStore() {
+        mKeys = EMPTY_KEYS;
+        mValues = EMPTY_VALUES;
+    }
+
+    private SwipeStateStore(long[] keys, int[] values) {
+        mKeys = keys;
+        mValues = values;
+        mSize = keys.length;
+    }
+
+    /**
+     * @param key
+     * @param valueIfMissing
+     * @return 没有保存时返回valueIfMissing
+     */
+    public int get(long key, int valueIfMissing) {
+        int index = binarySearch(key);
+        return index >= 0 ? mValues[index] : valueIfMissing;
+    }
+
+    public void put(long key, int value) {
+        int index = binarySearch(key);
+        if (index >= 0) {
+            mValues[index] = value;
+            return;
+        }
+        index = ~index;
+        if (mSize == mKeys.length) {
+            int capacity = mSize == 0 ? 4 : mSize * 2;
+            long[] keys = new long[capacity];
+            int[] values = new int[capacity];
+            System.arraycopy(mKeys, 0, keys, 0, mSize);
+            System.arraycopy(mValues, 0, values, 0, mSize);
+            mKeys = keys;
+            mValues = values;
+        }
+        System.arraycopy(mKeys, index, mKeys, index + 1, mSize - index);
+        System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+        mKeys[index] = key;
+        mValues[index] = value;
+        mSize++;
+    }
+
+    public void remove(long key) {
+        int index = binarySearch(key);
+        if (index >= 0) {
+            removeAt(index, index + 1);
+        }
+    }
+
+    /**
+     * 删除[start, end)之间的键
+     * @param start
+     * @param end
+     */
+    public void removeRange(long start, long end) {
+        removeAt(lowerBound(start), lowerBound(end));
+    }
+
+    /**
+     * [start, end)之间的键加上delta，用于按位置保存时列表插入、删除或者移动条目
+     * 调用者需要保证移动之后不会与其他键重叠，例如删除条目时先调用removeRange()
+     * @param start
+     * @param end
+     * @param delta
+     */
+    public void offsetKeys(long start, long end, long delta) {
+        int from = lowerBound(start);
+        int to = lowerBound(end);
+        for (int i = from;i < to;i++) {
+            mKeys[i] += delta;
+        }
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public long keyAt(int index) {
+        return mKeys[index];
+    }
+
+    public int valueAt(int index) {
+        return mValues[index];
+    }
+
+    /**
+     * 返回一份拷贝
+     * @return
+     */
+    public SwipeStateStore copy() {
+        long[] keys = new long[mSize];
+        int[] values = new int[mSize];
+        System.arraycopy(mKeys, 0, keys, 0, mSize);
+        System.arraycopy(mValues, 0, values, 0, mSize);
+        return new SwipeStateStore(keys, values);
+    }
+
+    /**
+     * 替换为other中保存的状态
+     * @param other
+     */
+    public void setTo(SwipeStateStore other) {
+        clear();
+        for (int i = 0;i < other.mSize;i++) {
+            put(other.mKeys[i], other.mValues[i]);
+        }
+    }
+
+    private void removeAt(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        System.arraycopy(mKeys, to, mKeys, from, mSize - to);
+        System.arraycopy(mValues, to, mValues, from, mSize - to);
+        mSize -= to - from;
+    }
+
+    /**
+     * @param key
+     * @return 找到时返回下标，否则返回插入位置取反
+     */
+    private int binarySearch(long key) {
+        int low = 0;
+        int high = mSize - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = mKeys[mid];
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return ~low;
+    }
+
+    /**
+     * @param key
+     * @return 第一个不小于key的下标
+     */
+    private int lowerBound(long key) {
+        int index = binarySearch(key);
+        return index >= 0 ? index : ~index;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        SwipeStateStore copy = copy();
+        dest.writeLongArray(copy.mKeys);
+        dest.writeIntArray(copy.mValues);
+    }
+
+    public static final Creator<SwipeStateStore> CREATOR = new Creator<SwipeStateStore>() {
+        @Override
+        public SwipeStateStore createFromParcel(Parcel source) {
+            long[] keys = source.createLongArray();
+            int[] values = source.createIntArray();
+            return new SwipeStateStore(keys, values);
+        }
+
+        @Override
+        public SwipeStateStore[] newArray(int size) {
+            return new SwipeStateStore[size];
+        }
+    };
+}
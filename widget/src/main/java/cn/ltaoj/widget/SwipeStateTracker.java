@@ -0,0 +1,103 @@
+package cn.ltaoj.widget;
+
+/**
+ * 根据前置布局的位置计算SwipeLayout的状态以及需要分发的事件
+ * 状态通过SwipeLayout.toSwipeState()以及toTrackerState()与SwipeLayout.SwipeState转换，不依赖Android，可以单独测试以及测量
+ * 只在主线程访问
+ */
+
+final class SwipeStateTracker {
+    // 保存在SwipeStateStore以及SavedState中，数值不能改变
+    static final int STATE_CLOSE = 0;
+    static final int STATE_SWIPING = 1;
+    static final int STATE_OPEN = 2;
+    static final int STATE_OPEN_LEFT = 3;
+
+    // 状态没有变化
+    static final int EVENT_NONE = 0;
+    static final int EVENT_START_OPEN = 1;
+    static final int EVENT_OPEN = 2;
+    static final int EVENT_START_CLOSE = 3;
+    static final int EVENT_CLOSE = 4;
+
+    private int mState = STATE_CLOSE;
+
+    /**
+     * 只有右边菜单时前置布局位置改变之后更新状态
+     * @param frontLeft 前置布局的左边界
+     * @param range 可拖动范围
+     * @return 需要分发的状态变化事件，没有变化时为EVENT_NONE
+     */
+    int update(int frontLeft, int range) {
+        return update(frontLeft, 0, range);
+    }
+
+    /**
+     * 前置布局位置改变之后更新状态
+     * @param frontLeft 前置布局的左边界，向右拖动显示左边菜单时为正
+     * @param leftRange 左边菜单的宽度，没有时为0
+     * @param rightRange 右边菜单的宽度，没有时为0
+     * @return 需要分发的状态变化事件，没有变化时为EVENT_NONE
+     */
+    int update(int frontLeft, int leftRange, int rightRange) {
+        int preState = mState;
+        mState = resolveState(frontLeft, leftRange, rightRange);
+        if (mState == preState) {
+            return EVENT_NONE;
+        }
+        if (mState == STATE_CLOSE) {
+            return EVENT_CLOSE;
+        } else if (mState == STATE_OPEN || mState == STATE_OPEN_LEFT) {
+            // 包括从一边直接打开另一边
+            return EVENT_OPEN;
+        } else if (preState == STATE_CLOSE) {
+            return EVENT_START_OPEN;
+        }
+        return EVENT_START_CLOSE;
+    }
+
+    /**
+     * @param frontLeft
+     * @param range 右边菜单的宽度
+     * @return 只有右边菜单时前置布局在这个位置的状态
+     */
+    static int resolveState(int frontLeft, int range) {
+        return resolveState(frontLeft, 0, range);
+    }
+
+    /**
+     * @param frontLeft
+     * @param leftRange
+     * @param rightRange
+     * @return 前置布局在这个位置时的状态
+     */
+    static int resolveState(int frontLeft, int leftRange, int rightRange) {
+        if (frontLeft == 0) {
+            return STATE_CLOSE;
+        } else if (frontLeft == -rightRange) {
+            return STATE_OPEN;
+        } else if (frontLeft == leftRange) {
+            return STATE_OPEN_LEFT;
+        }
+        return STATE_SWIPING;
+    }
+
+    /**
+     * @param frontLeft
+     * @param leftRange
+     * @param rightRange
+     * @return 前置布局在这个位置时当前显示的一边菜单打开的比例，0为完全关闭，1为完全打开
+     */
+    static float resolveOpenFraction(int frontLeft, int leftRange, int rightRange) {
+        if (frontLeft < 0 && rightRange > 0) {
+            return -frontLeft / (float) rightRange;
+        } else if (frontLeft > 0 && leftRange > 0) {
+            return frontLeft / (float) leftRange;
+        }
+        return 0;
+    }
+
+    int getState() {
+        return mState;
+    }
+}
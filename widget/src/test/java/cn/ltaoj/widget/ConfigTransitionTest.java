@@ -0,0 +1,235 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 配置过渡动画的插值、转向以及每次切换配置写入Surface的像素数
+ * 每帧需要重绘的区域通过HeadlessPreview由PreviewRenderLoop计算，与FacePreview相同
+ */
+public class ConfigTransitionTest {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int FRAMES = 12;
+
+    private static final PreviewGeometry.TextMeasurer MEASURER = new PreviewGeometry.TextMeasurer() {
+        @Override
+        public float measure(String text, int[] bounds) {
+            bounds[0] = 0;
+            bounds[1] = -40;
+            bounds[2] = text.length() * 40;
+            bounds[3] = 10;
+            return text.length() * 40;
+        }
+    };
+
+    private static final PreviewGeometry SMALL = geometry(WIDTH, HEIGHT, 540, 540, "small");
+    private static final PreviewGeometry SQUARE = geometry(WIDTH, HEIGHT, 720, 720, "square");
+    private static final PreviewGeometry TALL = geometry(WIDTH, HEIGHT, 600, 900, "tall");
+
+    @Test
+    public void transition_reachesTargetAfterFrames() throws Exception {
+        ConfigTransition transition = new ConfigTransition(FRAMES);
+        PreviewGeometry geometry = transition.start(SMALL, SQUARE);
+        assertTrue(transition.isRunning());
+        float lastWidth = SMALL.rectWidth();
+        for (int i = 1;i < FRAMES;i++) {
+            assertTrue(geometry.rectWidth() > lastWidth);
+            assertTrue(geometry.rectWidth() < SQUARE.rectWidth());
+            assertEquals(WIDTH / 2f, geometry.rectCenterX(), 0.01f);
+            assertEquals("square", geometry.tipText);
+            lastWidth = geometry.rectWidth();
+            geometry = transition.step();
+        }
+        assertSame(SQUARE, geometry);
+        assertFalse(transition.isRunning());
+        assertSame(SQUARE, transition.step());
+    }
+
+    @Test
+    public void retarget_continuesFromDisplayedGeometry() throws Exception {
+        ConfigTransition transition = new ConfigTransition(FRAMES);
+        PreviewGeometry displayed = transition.start(SMALL, SQUARE);
+        for (int i = 0;i < 3;i++) {
+            displayed = transition.step();
+        }
+
+        PreviewGeometry next = transition.start(displayed, TALL);
+        assertEquals(1, transition.getStartedCount());
+        assertEquals(1, transition.getRetargetedCount());
+        assertSame(TALL, transition.getTarget());
+        // 第一帧从当前显示的位置开始移动，而不是跳回起点
+        assertTrue(Math.abs(next.rectWidth() - displayed.rectWidth()) < Math.abs(TALL.rectWidth() - displayed.rectWidth()));
+        assertTrue(next.rectHeight() > displayed.rectHeight());
+    }
+
+    @Test
+    public void zeroFramesOrNewSurface_switchesImmediately() throws Exception {
+        ConfigTransition transition = new ConfigTransition(0);
+        assertSame(SQUARE, transition.start(SMALL, SQUARE));
+        assertFalse(transition.isRunning());
+
+        transition.setFrames(FRAMES);
+        assertSame(SQUARE, transition.start(null, SQUARE));
+        PreviewGeometry resized = geometry(WIDTH, HEIGHT / 2, 720, 720, "square");
+        assertSame(resized, transition.start(SQUARE, resized));
+        assertFalse(transition.isRunning());
+        assertEquals(0, transition.getStartedCount());
+
+        transition.start(SMALL, SQUARE);
+        transition.reset();
+        assertFalse(transition.isRunning());
+        assertNull(transition.getTarget());
+    }
+
+    @Test
+    public void transition_neverLocksWholeSurface() throws Exception {
+        TransitionRecorder recorder = new TransitionRecorder(FRAMES, SMALL);
+        recorder.publish(SQUARE);
+        recorder.runUntilIdle();
+
+        assertEquals(FRAMES, recorder.frames);
+        assertEquals(0, recorder.fullSurfaceFrames);
+        assertEquals(0, recorder.fullOverlayFrames);
+        // 缓存图层以及Surface各写入不到三分之一
+        assertTrue("peak frame " + recorder.peakPixels, recorder.peakPixels < 2L * WIDTH * HEIGHT / 3);
+    }
+
+    @Test
+    public void partialOverlayRepaint_matchesFullPaint() throws Exception {
+        TransitionRecorder recorder = new TransitionRecorder(FRAMES, SMALL);
+        HeadlessPreview preview = recorder.preview;
+        recorder.publish(TALL);
+        while (recorder.isPending()) {
+            recorder.frame();
+            // 局部重绘之后的缓存图层与按照本帧几何信息完整绘制的结果相同
+            RasterCanvas full = new RasterCanvas(WIDTH, HEIGHT, HeadlessPreview.GLYPHS);
+            preview.getPainter().paintOverlay(full, new RenderSnapshot(0, preview.getLoop().getDrawnGeometry(),
+                    HeadlessPreview.MASK_COLOR, HeadlessPreview.CORNER_COLOR, HeadlessPreview.TEXT_COLOR,
+                    FacePreview.PreviewState.READY));
+            assertEquals(0, preview.getOverlay().countDifferences(full));
+            assertEquals(0, preview.getSurface().countDifferences(preview.renderFull()));
+        }
+        assertEquals(FRAMES, recorder.frames);
+    }
+
+    @Test
+    public void rapidApplyConfig_coalescesIntoOneTransition() throws Exception {
+        TransitionRecorder recorder = new TransitionRecorder(FRAMES, SMALL);
+        PreviewGeometry[] burst = {SQUARE, TALL, SMALL, SQUARE, TALL};
+        for (PreviewGeometry geometry : burst) {
+            // 每个垂直同步信号之间发布一次新配置
+            recorder.publish(geometry);
+            recorder.frame();
+        }
+        recorder.runUntilIdle();
+
+        ConfigTransition transition = recorder.preview.getTransition();
+        assertEquals(1, transition.getStartedCount());
+        assertEquals(burst.length - 1, transition.getRetargetedCount());
+        assertSame(TALL, recorder.preview.getLoop().getDrawnGeometry());
+        assertEquals(0, recorder.fullSurfaceFrames);
+        assertEquals(0, recorder.fullOverlayFrames);
+        assertTrue(recorder.frames <= burst.length - 1 + FRAMES);
+    }
+
+    /**
+     * 每次切换配置写入的像素数，包括重绘缓存图层以及从缓存图层拷贝到Surface
+     * 绘制背景：整个缓存图层以及整个Surface；直接切换：一帧，新旧矩形框以及提示文字；过渡：FRAMES帧，每帧只有相邻两帧变化的区域
+     * 每帧重新绘制整个缓存图层时，过渡的开销主要是缓存图层，这里同时给出这个对照
+     */
+    @Test
+    public void pixelsPerTransition_benchmark() throws Exception {
+        long fullRedraw = 2L * WIDTH * HEIGHT;
+
+        TransitionRecorder instant = new TransitionRecorder(0, SMALL);
+        instant.publish(SQUARE);
+        instant.runUntilIdle();
+
+        TransitionRecorder animated = new TransitionRecorder(FRAMES, SMALL);
+        animated.publish(SQUARE);
+        animated.runUntilIdle();
+        long wholeOverlay = animated.pixels - animated.overlayPixels + (long) animated.frames * WIDTH * HEIGHT;
+
+        String report = "full redraw " + fullRedraw + ", instant " + instant.pixels
+                + ", animated " + animated.pixels + " (overlay " + animated.overlayPixels + ") in "
+                + animated.frames + " frames, peak " + animated.peakPixels + ", whole overlay per frame " + wholeOverlay;
+        assertEquals(report, 1, instant.frames);
+        assertTrue(report, instant.pixels < fullRedraw / 2);
+        assertTrue(report, animated.peakPixels <= instant.pixels);
+        assertTrue(report, animated.pixels < wholeOverlay / 2);
+        // 5次连续切换：之前需要10次整屏锁定，现在合并为一次过渡
+        TransitionRecorder burst = new TransitionRecorder(FRAMES, SMALL);
+        for (int i = 0;i < 5;i++) {
+            burst.publish(i % 2 == 0 ? SQUARE : TALL);
+            burst.frame();
+        }
+        burst.runUntilIdle();
+        assertTrue(report + ", burst " + burst.pixels, burst.pixels < 5 * fullRedraw);
+    }
+
+    private static PreviewGeometry geometry(int surfaceWidth, int surfaceHeight, float width, float height, String tip) {
+        return PreviewGeometry.compute(surfaceWidth, surfaceHeight, width, height, 50, 20, 5, tip, 50, MEASURER);
+    }
+
+    /**
+     * 通过HeadlessPreview驱动PreviewRenderLoop处理配置改变，提示文字一直显示
+     * 记录每帧写入缓存图层以及Surface的像素数
+     */
+    private static final class TransitionRecorder {
+        final HeadlessPreview preview;
+        private int index;
+        private boolean isPublished;
+        int frames;
+        int fullSurfaceFrames;
+        int fullOverlayFrames;
+        long pixels;
+        long overlayPixels;
+        long peakPixels;
+
+        TransitionRecorder(int transitionFrames, PreviewGeometry initial) {
+            preview = new HeadlessPreview(WIDTH, HEIGHT, transitionFrames);
+            preview.applyConfig(index, initial);
+            preview.render(RenderScheduler.CMD_DRAW_BACKGROUND | RenderScheduler.CMD_DRAW_TIP);
+        }
+
+        void publish(PreviewGeometry geometry) {
+            preview.applyConfig(++index, geometry);
+            isPublished = true;
+        }
+
+        boolean isPending() {
+            return isPublished || preview.getTransition().isRunning();
+        }
+
+        void frame() {
+            int lastFrames = preview.getFrameCount();
+            long lastOverlay = preview.getLoop().getOverlayPixelCount();
+            preview.render(RenderScheduler.CMD_STEP_TRANSITION);
+            isPublished = false;
+
+            long overlay = preview.getLoop().getOverlayPixelCount() - lastOverlay;
+            long surface = preview.getFrameCount() != lastFrames ? preview.getLastDirtyArea() : 0;
+            if (overlay == 0 && surface == 0) {
+                return;
+            }
+            frames++;
+            overlayPixels += overlay;
+            pixels += overlay + surface;
+            peakPixels = Math.max(peakPixels, overlay + surface);
+            if (surface >= (long) WIDTH * HEIGHT) {
+                fullSurfaceFrames++;
+            }
+            if (overlay >= (long) WIDTH * HEIGHT) {
+                fullOverlayFrames++;
+            }
+        }
+
+        void runUntilIdle() {
+            while (isPending()) {
+                frame();
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package cn.ltaoj.widget;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 多个检测器并行执行，超时的检测器不能拖慢整帧
+ */
+public class DetectorExecutorTest {
+    private static final long DETECT_MILLIS = 40;
+
+    private final List<DetectionResult> results = new ArrayList<DetectionResult>();
+    private DetectorExecutor executor;
+
+    @Before
+    public void setUp() throws Exception {
+        // 直接在调用线程回调，代替主线程Handler
+        executor = new DetectorExecutor(4, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        executor.setListener(new FacePreview.OnDetectListener() {
+            @Override
+            public void onDetected(DetectionResult result) {
+                results.add(result);
+            }
+        });
+    }
+
+    @Test
+    public void detectors_runInParallel() throws Exception {
+        Detector a = new SleepDetector("a", DETECT_MILLIS);
+        Detector b = new SleepDetector("b", DETECT_MILLIS);
+        Detector c = new SleepDetector("c", DETECT_MILLIS);
+        executor.addDetector(a, 1000);
+        executor.addDetector(b, 1000);
+        executor.addDetector(c, 1000);
+
+        long start = System.nanoTime();
+        assertTrue(executor.execute(newFrame()));
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue("elapsed " + elapsed, elapsed < TimeUnit.MILLISECONDS.toNanos(3 * DETECT_MILLIS));
+        assertEquals(1, results.size());
+        DetectionResult result = results.get(0);
+        assertEquals(3, result.size());
+        assertEquals("a", result.getResult(a));
+        assertEquals("c", result.getResult(2));
+        for (int i = 0;i < result.size();i++) {
+            assertFalse(result.isTimedOut(i));
+            assertTrue(result.getLatencyNanos(i) >= TimeUnit.MILLISECONDS.toNanos(DETECT_MILLIS));
+        }
+    }
+
+    @Test
+    public void slowDetector_timesOutWithoutBlockingFrame() throws Exception {
+        Detector fast = new SleepDetector("fast", 0);
+        Detector slow = new SleepDetector("slow", 500);
+        executor.addDetector(fast, 1000);
+        executor.addDetector(slow, 50);
+
+        long start = System.nanoTime();
+        assertFalse(executor.execute(newFrame()));
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue("elapsed " + elapsed, elapsed < TimeUnit.MILLISECONDS.toNanos(300));
+        DetectionResult result = results.get(0);
+        assertEquals("fast", result.getResult(fast));
+        assertFalse(result.isTimedOut(0));
+        assertTrue(result.isTimedOut(1));
+        assertNull(result.getResult(slow));
+    }
+
+    @Test
+    public void failingDetector_reportsError() throws Exception {
+        final IllegalStateException error = new IllegalStateException();
+        executor.addDetector(new Detector() {
+            @Override
+            public String getName() {
+                return "error";
+            }
+
+            @Override
+            public Object detect(PreviewFrame frame) throws Exception {
+                throw error;
+            }
+        }, 100);
+
+        assertTrue(executor.execute(newFrame()));
+        assertSame(error, results.get(0).getError(0));
+        assertNull(results.get(0).getResult(0));
+    }
+
+    @Test
+    public void noDetectors_noCallback() throws Exception {
+        assertTrue(executor.execute(newFrame()));
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void detachedFrame_isNotRecycled() throws Exception {
+        FrameBufferPool pool = new FrameBufferPool(4);
+        PreviewFrame frame = pool.obtainFrame();
+        frame.set(pool.acquireBuffer(16), 4, 4, 0, 0, System.nanoTime());
+        frame.detach();
+        pool.recycleFrame(frame);
+
+        assertEquals(0, pool.getPooledBufferCount());
+        assertNotSame(frame, pool.obtainFrame());
+    }
+
+    private static PreviewFrame newFrame() {
+        PreviewFrame frame = new PreviewFrame();
+        frame.set(new byte[16], 4, 4, 0, 0, System.nanoTime());
+        frame.setRoi(0, 0, 4, 4);
+        return frame;
+    }
+
+    private static class SleepDetector implements Detector {
+        private final String mName;
+        private final long mMillis;
+
+        SleepDetector(String name, long millis) {
+            mName = name;
+            mMillis = millis;
+        }
+
+        @Override
+        public String getName() {
+            return mName;
+        }
+
+        @Override
+        public Object detect(PreviewFrame frame) throws Exception {
+            if (mMillis > 0) {
+                Thread.sleep(mMillis);
+            }
+            return mName;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * DirtyRegion合并扫描线前后两帧以及提示文字区域
+ */
+public class DirtyRegionTest {
+
+    @Test
+    public void union_coversPreviousAndCurrentScanBand() throws Exception {
+        DirtyRegion frame = new DirtyRegion();
+        frame.union(100, 200, 500, 212);
+        frame.union(100, 204, 500, 216);
+
+        assertEquals(100, frame.getLeft());
+        assertEquals(200, frame.getTop());
+        assertEquals(500, frame.getRight());
+        assertEquals(216, frame.getBottom());
+        assertEquals(400 * 16, frame.area());
+    }
+
+    @Test
+    public void union_ignoresEmptyRegions() throws Exception {
+        DirtyRegion frame = new DirtyRegion();
+        frame.union(new DirtyRegion());
+        assertTrue(frame.isEmpty());
+        assertEquals(0, frame.area());
+
+        frame.union(10, 10, 20, 20);
+        frame.union(50, 50, 50, 60);
+        assertEquals(100, frame.area());
+    }
+
+    @Test
+    public void intersects_excludesTouchingEdges() throws Exception {
+        DirtyRegion band = new DirtyRegion();
+        band.set(0, 100, 300, 110);
+
+        assertTrue(band.intersects(0, 105, 10, 200));
+        assertFalse(band.intersects(0, 110, 300, 120));
+        band.setEmpty();
+        assertFalse(band.intersects(0, 0, 1000, 1000));
+    }
+}
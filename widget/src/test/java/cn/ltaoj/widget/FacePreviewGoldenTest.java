@@ -0,0 +1,135 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * 按照固定的配置、状态以及扫描位置驱动HeadlessPreview，与src/test/resources/golden中的图片逐像素比较
+ * 每一帧还要与重绘整个Surface的结果相同，保证局部更新没有遗漏区域
+ * 修改绘制逻辑之后以 -Dgolden.update=true 运行重新生成图片，并检查图片的变化
+ */
+public class FacePreviewGoldenTest {
+    private static final int WIDTH = 270;
+    private static final int HEIGHT = 480;
+    private static final long FRAME_NANOS = 16666667L;
+
+    private static final boolean UPDATE = Boolean.getBoolean("golden.update");
+    private static final File GOLDEN_DIR = new File(System.getProperty("golden.dir", "src/test/resources/golden"));
+
+    @Test
+    public void sequence_matchesGoldenImages() throws Exception {
+        HeadlessPreview preview = new HeadlessPreview(WIDTH, HEIGHT, 4);
+        PreviewGeometry square = preview.geometry(150, 150, "ALIGN FACE");
+        PreviewGeometry tall = preview.geometry(180, 240, "HOLD STILL");
+
+        // 创建Surface：背景、提示文字以及检测结果
+        preview.applyConfig(0, square);
+        preview.render(RenderScheduler.CMD_DRAW_BACKGROUND | RenderScheduler.CMD_DRAW_TIP
+                | RenderScheduler.CMD_DRAW_RESULTS);
+        assertEquals((long) WIDTH * HEIGHT, preview.getLastDirtyArea());
+        assertFrame(preview, "01_initial");
+
+        // 开始检测，扫描线移动
+        preview.setState(FacePreview.PreviewState.DETECTING);
+        preview.scanTo(0.25f);
+        assertFrame(preview, "02_scan_quarter");
+        preview.scanTo(0.75f);
+        assertScanFrame(preview, square);
+        assertFrame(preview, "03_scan_three_quarters");
+
+        // 切换配置，提示文字跟随矩形框移动
+        preview.applyConfig(1, tall);
+        preview.render(RenderScheduler.CMD_APPLY_CONFIG | RenderScheduler.CMD_DRAW_TIP);
+        assertTrue(preview.getLastDirtyArea() < (long) WIDTH * HEIGHT);
+        assertFrame(preview, "04_transition_first_frame");
+        preview.finishTransition();
+        assertFrame(preview, "05_config_tall");
+
+        // 检测结果绘制在最上层
+        ResultBatch batch = preview.obtainResults();
+        batch.addRect(60, 150, 200, 320, 0xffff0000);
+        batch.addPoint(100, 210, 0xff00ffff);
+        batch.addPoint(160, 210, 0xff00ffff);
+        batch.addLabel(60, 144, "0.98", 0xffffff00);
+        preview.publishResults(batch);
+        preview.render(RenderScheduler.CMD_DRAW_RESULTS);
+        assertFrame(preview, "06_results");
+
+        // 擦除提示文字
+        preview.render(RenderScheduler.CMD_SWEEP_TIP);
+        assertFrame(preview, "07_tip_swept");
+
+        // 清除检测结果
+        preview.publishResults(preview.obtainResults());
+        preview.render(RenderScheduler.CMD_DRAW_RESULTS);
+        assertFrame(preview, "08_results_cleared");
+
+        // 只有配置改变时才重绘缓存图层：初始、3帧过渡以及最终配置
+        assertEquals(1 + 4, preview.getOverlayPaintCount());
+    }
+
+    @Test
+    public void scanFrames_followStateFrameRate() throws Exception {
+        HeadlessPreview preview = new HeadlessPreview(WIDTH, HEIGHT, 0);
+        preview.applyConfig(0, preview.geometry(150, 150, null));
+        preview.render(RenderScheduler.CMD_DRAW_BACKGROUND);
+        preview.setState(FacePreview.PreviewState.DETECTING);
+
+        long frameTime = 1000L * FRAME_NANOS;
+        int rendered = 0;
+        for (int i = 0;i < 60;i++) {
+            frameTime += FRAME_NANOS;
+            if (preview.vsync(frameTime, (i % 30) / 30f)) {
+                rendered++;
+                assertEquals(0, preview.getSurface().countDifferences(preview.renderFull()));
+            }
+        }
+        assertEquals(60, rendered);
+
+        // 暂停时不绘制扫描帧，Surface保持不变
+        preview.setState(FacePreview.PreviewState.PAUSE);
+        int frames = preview.getFrameCount();
+        for (int i = 0;i < 60;i++) {
+            frameTime += FRAME_NANOS;
+            assertFalse(preview.vsync(frameTime, 0.5f));
+        }
+        assertEquals(frames, preview.getFrameCount());
+    }
+
+    /**
+     * 扫描帧只拷贝上一帧以及本帧扫描线所在的区域，并绘制一次扫描线
+     */
+    private static void assertScanFrame(HeadlessPreview preview, PreviewGeometry geometry) {
+        assertEquals(2, preview.getLastDrawCalls());
+        long band = (long) (Math.ceil(geometry.scanRadius) * 2 + 4) * (2 * 5 + 4);
+        long bound = (long) ((geometry.scanBottom - geometry.scanTop) / 2 + 1) * (long) (geometry.scanRadius * 2 + 4) + 2 * band;
+        assertTrue("dirty " + preview.getLastDirtyArea(), preview.getLastDirtyArea() <= bound);
+        assertTrue(preview.getLastPixelsWritten() <= preview.getLastDirtyArea() + band);
+    }
+
+    private static void assertFrame(HeadlessPreview preview, String name) throws IOException {
+        RasterCanvas surface = preview.getSurface();
+        assertEquals(name + ": partial update differs from full redraw", 0, surface.countDifferences(preview.renderFull()));
+
+        if (UPDATE) {
+            GOLDEN_DIR.mkdirs();
+            surface.writePng(new File(GOLDEN_DIR, name + ".png"));
+            return;
+        }
+        InputStream in = FacePreviewGoldenTest.class.getResourceAsStream("/golden/" + name + ".png");
+        assertNotNull("missing golden image " + name + ", run with -Dgolden.update=true", in);
+        int[] expected;
+        try {
+            expected = RasterCanvas.readPng(in, WIDTH, HEIGHT);
+        } finally {
+            in.close();
+        }
+        assertNotNull(name + ": golden image has a different size", expected);
+        assertEquals(name + ": pixels differ from golden image", 0, surface.countDifferences(expected));
+    }
+}
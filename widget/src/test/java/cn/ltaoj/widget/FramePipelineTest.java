@@ -0,0 +1,117 @@
+package cn.ltaoj.widget;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 检测器比摄像头慢时，FramePipeline需要丢帧并保证延迟有上限
+ */
+public class FramePipelineTest {
+    private static final long ANALYZE_MILLIS = 30;
+    private static final long FRAME_INTERVAL_MILLIS = 5;
+
+    private FrameBufferPool pool;
+    private FramePipeline pipeline;
+    private volatile CountDownLatch analyzed;
+
+    @Before
+    public void setUp() throws Exception {
+        pool = new FrameBufferPool(4);
+        pipeline = new FramePipeline(pool, new FramePipeline.Sink() {
+            @Override
+            public void onFrame(PreviewFrame frame) {
+                try {
+                    Thread.sleep(ANALYZE_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                CountDownLatch latch = analyzed;
+                if (latch != null) {
+                    latch.countDown();
+                }
+            }
+        });
+        pipeline.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pipeline.quit();
+    }
+
+    @Test
+    public void dropOldest_boundsQueueAndLatency() throws Exception {
+        pipeline.configure(2, FramePipeline.DropPolicy.DROP_OLDEST);
+        submitFrames(100);
+        Thread.sleep(3 * ANALYZE_MILLIS + 50);
+
+        assertEquals(100, pipeline.getReceivedCount());
+        assertTrue(pipeline.getDroppedCount() > 0);
+        assertEquals(pipeline.getReceivedCount(),
+                pipeline.getDroppedCount() + pipeline.getAnalyzedCount() + pipeline.getQueuedCount());
+        // 最坏情况下一帧要等待队列中的两帧以及正在分析的一帧
+        long bound = TimeUnit.MILLISECONDS.toNanos((2 + 1) * ANALYZE_MILLIS + ANALYZE_MILLIS + 100);
+        assertTrue("max latency " + pipeline.getMaxLatencyNanos(), pipeline.getMaxLatencyNanos() < bound);
+    }
+
+    @Test
+    public void keepLatest_holdsAtMostOneFrame() throws Exception {
+        pipeline.configure(4, FramePipeline.DropPolicy.KEEP_LATEST);
+        submitFrames(50);
+
+        assertTrue(pipeline.getQueuedCount() <= 1);
+        long bound = TimeUnit.MILLISECONDS.toNanos(2 * ANALYZE_MILLIS + 100);
+        Thread.sleep(2 * ANALYZE_MILLIS + 50);
+        assertTrue("max latency " + pipeline.getMaxLatencyNanos(), pipeline.getMaxLatencyNanos() < bound);
+    }
+
+    @Test
+    public void suspended_dropsEverythingAndRecyclesBuffers() throws Exception {
+        pipeline.setSuspended(true);
+        submitFrames(10);
+
+        assertEquals(10, pipeline.getDroppedCount());
+        assertEquals(0, pipeline.getAnalyzedCount());
+        assertTrue(pool.getPooledBufferCount() > 0);
+
+        pipeline.setSuspended(false);
+        analyzed = new CountDownLatch(1);
+        submitFrames(1);
+        assertTrue(analyzed.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void quit_dropsQueuedFrames() throws Exception {
+        pipeline.configure(3, FramePipeline.DropPolicy.DROP_OLDEST);
+        submitFrames(3);
+        pipeline.quit();
+
+        assertEquals(0, pipeline.getQueuedCount());
+        assertFalse(pipeline.offer(newFrame()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroDepth_isRejected() throws Exception {
+        pipeline.configure(0, FramePipeline.DropPolicy.DROP_OLDEST);
+    }
+
+    private void submitFrames(int count) throws InterruptedException {
+        for (int i = 0;i < count;i++) {
+            pipeline.offer(newFrame());
+            Thread.sleep(FRAME_INTERVAL_MILLIS);
+        }
+    }
+
+    private PreviewFrame newFrame() {
+        PreviewFrame frame = pool.obtainFrame();
+        frame.set(pool.acquireBuffer(16), 4, 4, 0, 0, System.nanoTime());
+        frame.setRoi(0, 0, 4, 4);
+        return frame;
+    }
+}
@@ -0,0 +1,130 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 每个状态下一秒内实际绘制的扫描帧数
+ */
+public class FrameRateGovernorTest {
+    private static final long VSYNC_60HZ = 16666667L;
+    private static final long VSYNC_120HZ = 8333334L;
+
+    private long frameTime = 1000000000L;
+
+    @Test
+    public void frameCount_perState() throws Exception {
+        FrameRateGovernor governor = new FrameRateGovernor();
+
+        governor.setState(FacePreview.PreviewState.DETECTING);
+        assertEquals(60, renderOneSecond(governor, VSYNC_60HZ));
+
+        governor.setState(FacePreview.PreviewState.PAUSE);
+        assertEquals(0, renderOneSecond(governor, VSYNC_60HZ));
+
+        governor.setState(FacePreview.PreviewState.COMPLETE);
+        assertEquals(0, renderOneSecond(governor, VSYNC_60HZ));
+
+        governor.setState(FacePreview.PreviewState.DETECTING);
+        governor.setLowPowerMode(true);
+        assertEquals(15, renderOneSecond(governor, VSYNC_60HZ));
+
+        // 低功耗模式不会让暂停状态开始绘制
+        governor.setState(FacePreview.PreviewState.PAUSE);
+        assertEquals(0, renderOneSecond(governor, VSYNC_60HZ));
+    }
+
+    @Test
+    public void highRefreshDisplay_skipsVsyncs() throws Exception {
+        FrameRateGovernor governor = new FrameRateGovernor();
+        governor.setState(FacePreview.PreviewState.DETECTING);
+        assertEquals(60, renderOneSecond(governor, VSYNC_120HZ));
+
+        governor.setStateFps(FacePreview.PreviewState.DETECTING, 30);
+        assertEquals(30, renderOneSecond(governor, VSYNC_120HZ));
+    }
+
+    @Test
+    public void thermalAndBattery_lowerRate() throws Exception {
+        FrameRateGovernor governor = new FrameRateGovernor();
+        governor.setState(FacePreview.PreviewState.DETECTING);
+        final boolean[] hot = {true};
+        governor.setThermalProvider(new FrameRateGovernor.ThermalProvider() {
+            @Override
+            public boolean isThrottling() {
+                return hot[0];
+            }
+        });
+        assertEquals(15, renderOneSecond(governor, VSYNC_60HZ));
+        assertTrue(governor.isLowPower());
+
+        // 下一次查询之后恢复
+        hot[0] = false;
+        renderOneSecond(governor, VSYNC_60HZ);
+        assertEquals(60, renderOneSecond(governor, VSYNC_60HZ));
+
+        governor.setBatteryProvider(new FrameRateGovernor.BatteryProvider() {
+            @Override
+            public boolean isLowBattery() {
+                return true;
+            }
+        });
+        assertEquals(15, renderOneSecond(governor, VSYNC_60HZ));
+    }
+
+    @Test
+    public void rateChange_reportedOnlyWhenTargetChanges() throws Exception {
+        FrameRateGovernor governor = new FrameRateGovernor();
+        assertTrue(governor.setState(FacePreview.PreviewState.PAUSE));
+        assertFalse(governor.setState(FacePreview.PreviewState.COMPLETE));
+        assertFalse(governor.setLowPowerMode(true));
+        assertTrue(governor.setState(FacePreview.PreviewState.DETECTING));
+        assertEquals(FrameRateGovernor.DEFAULT_LOW_POWER_FPS, governor.getTargetFps());
+    }
+
+    @Test
+    public void polledRateChange_isReportedOnce() throws Exception {
+        FrameRateGovernor governor = new FrameRateGovernor();
+        governor.setState(FacePreview.PreviewState.DETECTING);
+        final boolean[] hot = {false};
+        governor.setThermalProvider(new FrameRateGovernor.ThermalProvider() {
+            @Override
+            public boolean isThrottling() {
+                return hot[0];
+            }
+        });
+        assertTrue(governor.shouldRender(frameTime));
+        assertFalse(governor.consumeTargetChange());
+
+        // 下一次查询时过热，目标帧率改变只报告一次
+        hot[0] = true;
+        frameTime += FrameRateGovernor.PROVIDER_POLL_NANOS;
+        assertTrue(governor.shouldRender(frameTime));
+        assertEquals(FrameRateGovernor.DEFAULT_LOW_POWER_FPS, governor.getTargetFps());
+        assertTrue(governor.consumeTargetChange());
+        assertFalse(governor.consumeTargetChange());
+
+        // 查询结果不变时不报告
+        frameTime += FrameRateGovernor.PROVIDER_POLL_NANOS;
+        governor.shouldRender(frameTime);
+        assertFalse(governor.consumeTargetChange());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroLowPowerRate_isRejected() throws Exception {
+        new FrameRateGovernor().setLowPowerFps(0);
+    }
+
+    private int renderOneSecond(FrameRateGovernor governor, long vsync) {
+        int frames = 0;
+        long end = frameTime + 1000000000L;
+        while (frameTime < end) {
+            if (governor.shouldRender(frameTime)) {
+                frames++;
+            }
+            frameTime += vsync;
+        }
+        return frames;
+    }
+}
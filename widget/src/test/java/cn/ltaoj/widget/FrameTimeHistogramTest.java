@@ -0,0 +1,119 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * FrameTimeHistogram区间统计以及百分位计算
+ */
+public class FrameTimeHistogramTest {
+    private static final long MS = 1000000L;
+
+    @Test
+    public void record_putsFramesIntoMillisecondBuckets() throws Exception {
+        FrameTimeHistogram histogram = new FrameTimeHistogram();
+        histogram.record(16 * MS + 600000);
+        histogram.record(16 * MS);
+        histogram.record(33 * MS);
+        histogram.record(500 * MS);
+
+        assertEquals(4, histogram.getTotalCount());
+        assertEquals(2, histogram.getCount(16));
+        assertEquals(1, histogram.getCount(33));
+        assertEquals(1, histogram.getCount(FrameTimeHistogram.BUCKET_COUNT - 1));
+        assertEquals(500 * MS, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void percentile_returnsBucketUpperBound() throws Exception {
+        FrameTimeHistogram histogram = new FrameTimeHistogram();
+        for (int i = 0;i < 99;i++) {
+            histogram.record(16 * MS);
+        }
+        histogram.record(40 * MS);
+
+        assertEquals(17, histogram.getPercentileMillis(50));
+        assertEquals(17, histogram.getPercentileMillis(99));
+        assertEquals(41, histogram.getPercentileMillis(100));
+    }
+
+    @Test
+    public void logScale_separatesSubMillisecondSamples() throws Exception {
+        FrameTimeHistogram histogram = new FrameTimeHistogram(true);
+        long[] samples = {300, 5000, 40000, 120000, 450000, 900000};
+        for (long sample : samples) {
+            histogram.record(sample);
+        }
+
+        // 每个样本落在不同的区间，并且区间包含样本
+        int previous = -1;
+        for (int bucket = 0;bucket < FrameTimeHistogram.BUCKET_COUNT;bucket++) {
+            if (histogram.getCount(bucket) == 0) {
+                continue;
+            }
+            assertEquals(1, histogram.getCount(bucket));
+            assertTrue(bucket > previous);
+            previous = bucket;
+        }
+        assertEquals(samples.length, histogram.getTotalCount());
+        for (long sample : samples) {
+            assertEquals(1, histogram.getCount(bucketOf(histogram, sample)));
+        }
+        assertEquals(0, bucketOf(histogram, 300));
+        assertTrue(bucketOf(histogram, 450000) < bucketOf(histogram, 900000));
+    }
+
+    @Test
+    public void logScale_boundsAreContiguous() throws Exception {
+        FrameTimeHistogram histogram = new FrameTimeHistogram(true);
+        assertEquals(0, histogram.getBucketLowerNanos(0));
+        for (int bucket = 0;bucket < FrameTimeHistogram.BUCKET_COUNT - 1;bucket++) {
+            assertEquals(histogram.getBucketUpperNanos(bucket), histogram.getBucketLowerNanos(bucket + 1));
+            assertTrue(histogram.getBucketUpperNanos(bucket) >= histogram.getBucketLowerNanos(bucket));
+        }
+        assertEquals(Long.MAX_VALUE, histogram.getBucketUpperNanos(FrameTimeHistogram.BUCKET_COUNT - 1));
+
+        // 区间宽度不超过下界的1/4，超过65ms的样本落在最后一个区间
+        histogram.record(700000);
+        histogram.record(500 * MS);
+        assertEquals(1, histogram.getCount(FrameTimeHistogram.BUCKET_COUNT - 1));
+        long upper = histogram.getPercentileNanos(50);
+        assertTrue(upper > 700000 && upper <= 700000 + 700000 / 4 + 1000);
+        assertEquals(1, histogram.getPercentileMillis(50));
+    }
+
+    @Test
+    public void snapshot_keepsScale() throws Exception {
+        FrameTimeHistogram histogram = new FrameTimeHistogram(true);
+        histogram.record(200000);
+        FrameTimeHistogram snapshot = histogram.snapshot();
+
+        assertTrue(snapshot.isLogScale());
+        assertEquals(1, snapshot.getCount(bucketOf(snapshot, 200000)));
+    }
+
+    /**
+     * 按照区间上下界查找样本所在的区间
+     */
+    private static int bucketOf(FrameTimeHistogram histogram, long nanos) {
+        for (int bucket = 0;bucket < FrameTimeHistogram.BUCKET_COUNT;bucket++) {
+            if (nanos >= histogram.getBucketLowerNanos(bucket) && nanos < histogram.getBucketUpperNanos(bucket)) {
+                return bucket;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void snapshot_isIndependentCopy() throws Exception {
+        FrameTimeHistogram histogram = new FrameTimeHistogram();
+        histogram.record(16 * MS);
+        FrameTimeHistogram snapshot = histogram.snapshot();
+        histogram.record(16 * MS);
+        histogram.reset();
+
+        assertEquals(1, snapshot.getTotalCount());
+        assertEquals(0, histogram.getTotalCount());
+    }
+}
@@ -0,0 +1,283 @@
+package cn.ltaoj.widget;
+
+/**
+ * 不依赖设备的FacePreview绘制线程
+ * 通过PreviewRenderLoop.Host驱动与FacePreview相同的PreviewRenderLoop，缓存图层以及Surface都是RasterCanvas
+ * 每帧记录绘图调用次数、写入的像素数以及重绘区域大小，renderFull()重绘整个Surface用于检查局部更新是否正确
+ */
+
+final class HeadlessPreview implements PreviewRenderLoop.Host {
+    // 每个字符宽8像素，baseline以上10像素、以下2像素
+    static final PreviewGeometry.TextMeasurer GLYPHS = new PreviewGeometry.TextMeasurer() {
+        @Override
+        public float measure(String text, int[] bounds) {
+            bounds[0] = 0;
+            bounds[1] = -10;
+            bounds[2] = text.length() * 8;
+            bounds[3] = 2;
+            return text.length() * 8;
+        }
+    };
+
+    static final int MASK_COLOR = 0xc8000000;
+    static final int CORNER_COLOR = 0xff00ff00;
+    static final int TEXT_COLOR = 0xff888888;
+    static final long FRAME_NANOS = 16666667L;
+    private static final float CORNER_LENGTH = 20;
+    private static final float CORNER_WIDTH = 4;
+    private static final float SCAN_INSET = 5;
+    private static final float SCAN_SHORT_AXIS = 5;
+    private static final float TEXT_MARGIN = 12;
+    private static final long TIP_SHOW_DURATION = 10000;
+
+    private final int mWidth;
+    private final int mHeight;
+    private final PreviewPainter mPainter = new PreviewPainter(CORNER_WIDTH, 2, 3);
+    private final RasterCanvas mOverlay;
+    private final RasterCanvas mSurface;
+    // 只用于记录擦除提示文字的时间，不会被等待
+    private final RenderScheduler mScheduler = new RenderScheduler();
+    private final ConfigTransition mTransition;
+    private final ResultOverlay mResults = new ResultOverlay();
+    private final FrameRateGovernor mGovernor = new FrameRateGovernor();
+    private final PreviewRenderLoop mLoop;
+
+    // 最近发布的快照
+    private RenderSnapshot mPublished;
+    // 扫描线
+    private boolean hasScan;
+    private float mScanFraction;
+    private long mFrameTimeNanos;
+    private long mScanIntervalNanos;
+    private RenderMetrics mMetrics;
+
+    // 上一帧的统计
+    private int mFrames;
+    private int mDrawCalls;
+    private long mPixelsWritten;
+    private long mDirtyArea;
+    private long mOverlayPixelsWritten;
+
+    HeadlessPreview(int width, int height, int transitionFrames) {
+        mWidth = width;
+        mHeight = height;
+        mOverlay = new RasterCanvas(width, height, GLYPHS);
+        mSurface = new RasterCanvas(width, height, GLYPHS);
+        mSurface.setLayer(mOverlay);
+        mTransition = new ConfigTransition(transitionFrames);
+        mLoop = new PreviewRenderLoop(this, mPainter, mTransition, mResults,
+                GLYPHS, SCAN_SHORT_AXIS, TIP_SHOW_DURATION);
+    }
+
+    /**
+     * 按照FacePreview.computeGeometries()计算居中的几何信息
+     */
+    PreviewGeometry geometry(float previewWidth, float previewHeight, String tipText) {
+        return PreviewGeometry.compute(mWidth, mHeight, previewWidth, previewHeight,
+                CORNER_LENGTH, CORNER_WIDTH, SCAN_INSET, tipText, TEXT_MARGIN, GLYPHS);
+    }
+
+    /**
+     * 与applyConfig相同，发布新的快照
+     */
+    void applyConfig(int index, PreviewGeometry geometry) {
+        FacePreview.PreviewState state = mPublished == null ? FacePreview.PreviewState.READY : mPublished.state;
+        mPublished = new RenderSnapshot(index, geometry, MASK_COLOR, CORNER_COLOR, TEXT_COLOR, state);
+    }
+
+    void setState(FacePreview.PreviewState state) {
+        mGovernor.setState(state);
+        mPublished = mPublished.withState(state);
+    }
+
+    /**
+     * 开启统计，之后每帧记录到metrics中
+     */
+    void setMetrics(RenderMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * 与FacePreview的垂直同步回调相同，按目标帧率决定是否绘制扫描帧
+     * @param frameTimeNanos
+     * @param scanFraction 扫描线在本帧的位置
+     * @return 是否绘制
+     */
+    boolean vsync(long frameTimeNanos, float scanFraction) {
+        if (!mGovernor.shouldRender(frameTimeNanos)) {
+            return false;
+        }
+        mScanIntervalNanos = 1000000000L / mGovernor.getTargetFps();
+        mFrameTimeNanos = frameTimeNanos;
+        hasScan = true;
+        mScanFraction = scanFraction;
+        render(RenderScheduler.CMD_DRAW_SCAN);
+        return true;
+    }
+
+    /**
+     * 在下一个垂直同步时间把扫描线移动到指定位置并绘制一帧
+     * @param fraction 0为顶部，1为底部
+     */
+    void scanTo(float fraction) {
+        mFrameTimeNanos += FRAME_NANOS;
+        hasScan = true;
+        mScanFraction = fraction;
+        render(RenderScheduler.CMD_DRAW_SCAN);
+    }
+
+    ResultBatch obtainResults() {
+        return mResults.obtain();
+    }
+
+    void publishResults(ResultBatch batch) {
+        mResults.publish(batch);
+    }
+
+    /**
+     * 处理一组绘制命令
+     * @param commands RenderScheduler中的命令
+     */
+    void render(int commands) {
+        mDrawCalls = 0;
+        mPixelsWritten = 0;
+        mDirtyArea = 0;
+        mOverlayPixelsWritten = 0;
+        mLoop.renderFrame(mScheduler, commands, mMetrics);
+    }
+
+    /**
+     * 完成正在进行的配置过渡
+     */
+    void finishTransition() {
+        while (mTransition.isRunning()) {
+            render(RenderScheduler.CMD_STEP_TRANSITION);
+        }
+    }
+
+    /**
+     * 按照上一帧的状态重绘整个Surface
+     * @return 新的画布，局部更新正确时与getSurface()完全相同
+     */
+    RasterCanvas renderFull() {
+        RasterCanvas canvas = new RasterCanvas(mWidth, mHeight, GLYPHS);
+        canvas.setLayer(mOverlay);
+        mLoop.paintRegion(canvas, 0, 0, mWidth, mHeight);
+        return canvas;
+    }
+
+    PreviewRenderLoop getLoop() {
+        return mLoop;
+    }
+
+    ConfigTransition getTransition() {
+        return mTransition;
+    }
+
+    PreviewPainter getPainter() {
+        return mPainter;
+    }
+
+    RasterCanvas getOverlay() {
+        return mOverlay;
+    }
+
+    RasterCanvas getSurface() {
+        return mSurface;
+    }
+
+    int getFrameCount() {
+        return mFrames;
+    }
+
+    int getOverlayPaintCount() {
+        return (int) mLoop.getOverlayPaintCount();
+    }
+
+    int getLastDrawCalls() {
+        return mDrawCalls;
+    }
+
+    long getLastPixelsWritten() {
+        return mPixelsWritten;
+    }
+
+    long getLastDirtyArea() {
+        return mDirtyArea;
+    }
+
+    /**
+     * @return 上一帧重绘缓存图层写入的像素数
+     */
+    long getLastOverlayPixelsWritten() {
+        return mOverlayPixelsWritten;
+    }
+
+    @Override
+    public RenderSnapshot getSnapshot() {
+        return mPublished;
+    }
+
+    @Override
+    public boolean isScanning() {
+        return hasScan;
+    }
+
+    @Override
+    public float getScanFraction(long frameTimeNanos) {
+        return hasScan ? mScanFraction : -1;
+    }
+
+    @Override
+    public long getFrameTimeNanos() {
+        return mFrameTimeNanos;
+    }
+
+    @Override
+    public long getScanIntervalNanos() {
+        return mScanIntervalNanos;
+    }
+
+    @Override
+    public RenderMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    @Override
+    public PreviewCanvas beginLayer(int width, int height, int left, int top, int right, int bottom) {
+        mOverlay.clip(left, top, right, bottom);
+        mOverlay.resetCounters();
+        return mOverlay;
+    }
+
+    @Override
+    public void endLayer() {
+        mOverlayPixelsWritten += mOverlay.getPixelsWritten();
+        mOverlay.clip(0, 0, mWidth, mHeight);
+    }
+
+    @Override
+    public void render(DirtyRegion dirty, RenderSnapshot snapshot, RenderMetrics metrics) {
+        int left = Math.max(dirty.getLeft(), 0);
+        int top = Math.max(dirty.getTop(), 0);
+        int right = Math.min(dirty.getRight(), mWidth);
+        int bottom = Math.min(dirty.getBottom(), mHeight);
+        mSurface.clip(left, top, right, bottom);
+        mSurface.resetCounters();
+        long drawStart = metrics != null ? System.nanoTime() : 0;
+        mLoop.paintRegion(mSurface, left, top, right, bottom);
+        if (metrics != null) {
+            // 没有锁定以及提交Surface的开销
+            metrics.recordFrame(0, System.nanoTime() - drawStart, 0);
+        }
+
+        mFrames++;
+        mDrawCalls = mSurface.getDrawCalls();
+        mPixelsWritten = mSurface.getPixelsWritten();
+        mDirtyArea = (long) (right - left) * (bottom - top);
+    }
+
+    @Override
+    public void onLoopRecorded(long nowNanos) {
+    }
+}
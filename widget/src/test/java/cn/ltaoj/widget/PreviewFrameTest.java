@@ -0,0 +1,132 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * 以ByteBuffer提交的预览帧在返回之前拷贝矩形框区域，调用方关闭或者复用缓冲区之后分析线程读取的仍是原来的数据
+ * 亮度平面8x6，像素(x, y)的值为 y * 16 + x，行尾填充以及像素之间的字节为0xEE，平面从position = START开始
+ */
+public class PreviewFrameTest {
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 6;
+    private static final int START = 5;
+    private static final int PADDING = 0xEE;
+
+    @Test
+    public void copyRoi_paddedRows_survivesBufferReuse() throws Exception {
+        int rowStride = 12;
+        ByteBuffer plane = plane(rowStride, 1);
+        PreviewFrame.checkPlane(plane, WIDTH, HEIGHT, rowStride, 1);
+        FrameBufferPool pool = new FrameBufferPool(2);
+        PreviewFrame frame = frame(pool);
+        frame.copyRoi(plane, rowStride, 1, pool.acquireBuffer(frame.getRoiWidth() * frame.getRoiHeight()));
+
+        // 相当于Image.close()之后缓冲区被下一帧复用
+        assertEquals(START, plane.position());
+        for (int i = 0;i < plane.capacity();i++) {
+            plane.put(i, (byte) 0xFF);
+        }
+        assertRoi(frame);
+    }
+
+    @Test
+    public void copyRoi_pixelStride_skipsInterleavedBytes() throws Exception {
+        int pixelStride = 2;
+        int rowStride = WIDTH * pixelStride + 3;
+        ByteBuffer plane = plane(rowStride, pixelStride);
+        PreviewFrame.checkPlane(plane, WIDTH, HEIGHT, rowStride, pixelStride);
+        FrameBufferPool pool = new FrameBufferPool(2);
+        PreviewFrame frame = frame(pool);
+        frame.copyRoi(plane, rowStride, pixelStride, pool.acquireBuffer(frame.getRoiWidth() * frame.getRoiHeight()));
+
+        assertEquals(START, plane.position());
+        assertRoi(frame);
+    }
+
+    @Test
+    public void checkPlane_rejectsShortBufferAndBadStrides() throws Exception {
+        int rowStride = 12;
+        ByteBuffer plane = plane(rowStride, 1);
+        // 最后一行不需要填充，少一个字节时不足
+        plane.limit(START + (HEIGHT - 1) * rowStride + WIDTH - 1);
+        assertInvalid(plane, rowStride, 1);
+        plane.limit(plane.limit() + 1);
+        PreviewFrame.checkPlane(plane, WIDTH, HEIGHT, rowStride, 1);
+
+        assertInvalid(plane, WIDTH - 1, 1);
+        assertInvalid(plane, rowStride, 0);
+    }
+
+    @Test
+    public void recycledCopy_returnsToPool() throws Exception {
+        FrameBufferPool pool = new FrameBufferPool(2);
+        PreviewFrame frame = frame(pool);
+        byte[] copy = pool.acquireBuffer(frame.getRoiWidth() * frame.getRoiHeight());
+        frame.copyRoi(plane(WIDTH, 1), WIDTH, 1, copy);
+        pool.recycleFrame(frame);
+
+        assertEquals(1, pool.getPooledBufferCount());
+        assertSame(copy, pool.acquireBuffer(9));
+        // 回收之后重新设置的整帧数据按照整帧定位
+        PreviewFrame reused = pool.obtainFrame();
+        byte[] data = new byte[WIDTH * HEIGHT];
+        for (int y = 0;y < HEIGHT;y++) {
+            for (int x = 0;x < WIDTH;x++) {
+                data[y * WIDTH + x] = (byte) (y * 16 + x);
+            }
+        }
+        reused.set(data, WIDTH, HEIGHT, 0, 0, System.nanoTime());
+        reused.setRoi(2, 1, 5, 4);
+        assertEquals(WIDTH, reused.getRowStride());
+        assertEquals(2 * 16 + 3, reused.getLuma(1, 1));
+    }
+
+    private static PreviewFrame frame(FrameBufferPool pool) {
+        PreviewFrame frame = pool.obtainFrame();
+        frame.set(null, WIDTH, HEIGHT, 0, 0, System.nanoTime());
+        // 包括最后一行，越过填充读取时会读错或者越界
+        frame.setRoi(2, 3, 5, 6);
+        return frame;
+    }
+
+    private static void assertRoi(PreviewFrame frame) {
+        assertEquals(3, frame.getRowStride());
+        for (int y = 0;y < frame.getRoiHeight();y++) {
+            for (int x = 0;x < frame.getRoiWidth();x++) {
+                int expected = (3 + y) * 16 + 2 + x;
+                assertEquals(expected, frame.getLuma(x, y));
+                assertEquals(expected, frame.getData()[frame.getRowOffset(y) + x] & 0xFF);
+            }
+        }
+    }
+
+    private static void assertInvalid(ByteBuffer plane, int rowStride, int pixelStride) {
+        try {
+            PreviewFrame.checkPlane(plane, WIDTH, HEIGHT, rowStride, pixelStride);
+            fail("rowStride = " + rowStride + ", pixelStride = " + pixelStride + " should be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /**
+     * 与Camera2的Image.Plane相同，最后一行没有填充
+     */
+    private static ByteBuffer plane(int rowStride, int pixelStride) {
+        int size = START + (HEIGHT - 1) * rowStride + (WIDTH - 1) * pixelStride + 1;
+        ByteBuffer plane = ByteBuffer.allocateDirect(size);
+        for (int i = 0;i < size;i++) {
+            plane.put(i, (byte) PADDING);
+        }
+        for (int y = 0;y < HEIGHT;y++) {
+            for (int x = 0;x < WIDTH;x++) {
+                plane.put(START + y * rowStride + x * pixelStride, (byte) (y * 16 + x));
+            }
+        }
+        plane.position(START);
+        return plane;
+    }
+}
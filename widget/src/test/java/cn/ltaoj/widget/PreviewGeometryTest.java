@@ -0,0 +1,77 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 几何信息按照Surface的实际大小计算
+ */
+public class PreviewGeometryTest {
+    private static final PreviewGeometry.TextMeasurer MEASURER = new PreviewGeometry.TextMeasurer() {
+        @Override
+        public float measure(String text, int[] bounds) {
+            // 每个字符宽20，baseline以上30，以下8
+            bounds[0] = 1;
+            bounds[1] = -30;
+            bounds[2] = text.length() * 20 - 1;
+            bounds[3] = 8;
+            return text.length() * 20;
+        }
+    };
+
+    @Test
+    public void rect_isCenteredInSurface() throws Exception {
+        // 分屏时Surface只有屏幕的一半
+        PreviewGeometry geometry = PreviewGeometry.compute(1080, 960, 480, 600, 50, 20, 5, null, 50, MEASURER);
+        assertEquals(300, geometry.rectLeft, 0);
+        assertEquals(180, geometry.rectTop, 0);
+        assertEquals(780, geometry.rectRight, 0);
+        assertEquals(780, geometry.rectBottom, 0);
+        assertEquals(540, geometry.rectCenterX(), 0);
+        assertEquals(185, geometry.scanTop, 0);
+        assertEquals(775, geometry.scanBottom, 0);
+        assertEquals(215, geometry.scanRadius, 0);
+    }
+
+    @Test
+    public void content_coversCornerStrokes() throws Exception {
+        PreviewGeometry geometry = PreviewGeometry.compute(1080, 1920, 480, 480, 50, 20, 5, null, 50, MEASURER);
+        assertEquals(300 - 11, geometry.contentLeft);
+        assertEquals(720 - 11, geometry.contentTop);
+        assertEquals(780 + 11, geometry.contentRight);
+        assertEquals(1200 + 11, geometry.contentBottom);
+
+        float[] lines = geometry.getCornerLines();
+        assertEquals(32, lines.length);
+        for (int i = 0;i < lines.length;i += 2) {
+            assertTrue(lines[i] >= geometry.rectLeft && lines[i] <= geometry.rectRight);
+            assertTrue(lines[i + 1] >= geometry.rectTop && lines[i + 1] <= geometry.rectBottom);
+        }
+    }
+
+    @Test
+    public void tip_isCenteredBelowRect() throws Exception {
+        PreviewGeometry geometry = PreviewGeometry.compute(1080, 1920, 480, 480, 50, 20, 5, "abcd", 50, MEASURER);
+        assertTrue(geometry.hasTip());
+        assertEquals(540, geometry.tipX, 0);
+        assertEquals(1200 + 50 + 38, geometry.tipBaseline, 0);
+        // 文字从500开始，宽80
+        assertEquals(500 + 1 - 1, geometry.tipLeft);
+        assertEquals(1288 - 30 - 1, geometry.tipTop);
+        assertEquals(500 + 79 + 1, geometry.tipRight);
+        assertEquals(1288 + 8 + 1, geometry.tipBottom);
+
+        PreviewGeometry noTip = PreviewGeometry.compute(1080, 1920, 480, 480, 50, 20, 5, null, 50, null);
+        assertFalse(noTip.hasTip());
+        assertTrue(noTip.tipLeft == noTip.tipRight);
+    }
+
+    @Test
+    public void sameLayout_comparesPixelPositionsAndTip() throws Exception {
+        PreviewGeometry a = PreviewGeometry.compute(1080, 1920, 480, 480, 50, 20, 5, "tip", 50, MEASURER);
+        assertTrue(a.sameLayout(PreviewGeometry.compute(1080, 1920, 480, 480, 50, 20, 5, new String("tip"), 50, MEASURER)));
+        assertFalse(a.sameLayout(PreviewGeometry.compute(1080, 960, 480, 480, 50, 20, 5, "tip", 50, MEASURER)));
+        assertFalse(a.sameLayout(PreviewGeometry.compute(1080, 1920, 480, 480, 50, 20, 5, null, 50, MEASURER)));
+    }
+}
@@ -0,0 +1,41 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 绘制后端按照API版本选择，软件绘制始终可用
+ */
+public class PreviewRenderersTest {
+
+    @Test
+    public void auto_usesHardwareFromApi23() throws Exception {
+        assertEquals(FacePreview.RenderBackend.SOFTWARE, PreviewRenderers.resolve(FacePreview.RenderBackend.AUTO, 21));
+        assertEquals(FacePreview.RenderBackend.SOFTWARE, PreviewRenderers.resolve(FacePreview.RenderBackend.AUTO, 22));
+        assertEquals(FacePreview.RenderBackend.HARDWARE, PreviewRenderers.resolve(FacePreview.RenderBackend.AUTO, 23));
+        assertEquals(FacePreview.RenderBackend.HARDWARE, PreviewRenderers.resolve(FacePreview.RenderBackend.AUTO, 26));
+    }
+
+    @Test
+    public void hardware_fallsBackBelowApi23() throws Exception {
+        assertEquals(FacePreview.RenderBackend.SOFTWARE, PreviewRenderers.resolve(FacePreview.RenderBackend.HARDWARE, 21));
+        assertEquals(FacePreview.RenderBackend.HARDWARE, PreviewRenderers.resolve(FacePreview.RenderBackend.HARDWARE, 23));
+    }
+
+    @Test
+    public void software_isAlwaysHonoured() throws Exception {
+        assertEquals(FacePreview.RenderBackend.SOFTWARE, PreviewRenderers.resolve(FacePreview.RenderBackend.SOFTWARE, 26));
+    }
+
+    @Test
+    public void create_matchesBackend() throws Exception {
+        PreviewRenderer software = PreviewRenderers.create(FacePreview.RenderBackend.SOFTWARE, null);
+        assertFalse(software.isHardwareAccelerated());
+        assertTrue(software.supportsPartialUpdate());
+
+        PreviewRenderer hardware = PreviewRenderers.create(FacePreview.RenderBackend.HARDWARE, null);
+        assertTrue(hardware.isHardwareAccelerated());
+        assertFalse(hardware.supportsPartialUpdate());
+    }
+}
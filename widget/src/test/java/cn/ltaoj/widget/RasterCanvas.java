@@ -0,0 +1,320 @@
+package cn.ltaoj.widget;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * 纯Java实现的PreviewCanvas，用于在没有设备的机器上检查绘制结果
+ * 像素中心落在图形内部时才绘制，不做抗锯齿；文字按照测量结果绘制为每个字符一个方块，结果不依赖系统字体
+ * 同时统计绘图调用次数以及写入的像素数
+ */
+
+final class RasterCanvas implements PreviewCanvas {
+    private final int mWidth;
+    private final int mHeight;
+    private final int[] mPixels;
+    private final PreviewGeometry.TextMeasurer mMeasurer;
+    // drawLayer()拷贝的缓存图层
+    private RasterCanvas mLayer;
+
+    // 裁剪区域，与lockCanvas锁定的区域相同
+    private int mClipLeft;
+    private int mClipTop;
+    private int mClipRight;
+    private int mClipBottom;
+
+    // 统计
+    private int mDrawCalls;
+    private long mPixelsWritten;
+    private final int[] mMeasure = new int[4];
+
+    RasterCanvas(int width, int height, PreviewGeometry.TextMeasurer measurer) {
+        mWidth = width;
+        mHeight = height;
+        mPixels = new int[width * height];
+        mMeasurer = measurer;
+        clip(0, 0, width, height);
+    }
+
+    int getWidth() {
+        return mWidth;
+    }
+
+    int getHeight() {
+        return mHeight;
+    }
+
+    int getPixel(int x, int y) {
+        return mPixels[y * mWidth + x];
+    }
+
+    void setLayer(RasterCanvas layer) {
+        mLayer = layer;
+    }
+
+    /**
+     * 之后的绘制只影响这个区域
+     */
+    void clip(int left, int top, int right, int bottom) {
+        mClipLeft = Math.max(left, 0);
+        mClipTop = Math.max(top, 0);
+        mClipRight = Math.min(right, mWidth);
+        mClipBottom = Math.min(bottom, mHeight);
+    }
+
+    /**
+     * 清零统计
+     */
+    void resetCounters() {
+        mDrawCalls = 0;
+        mPixelsWritten = 0;
+    }
+
+    int getDrawCalls() {
+        return mDrawCalls;
+    }
+
+    long getPixelsWritten() {
+        return mPixelsWritten;
+    }
+
+    @Override
+    public void drawColor(int color) {
+        mDrawCalls++;
+        for (int y = mClipTop;y < mClipBottom;y++) {
+            for (int x = mClipLeft;x < mClipRight;x++) {
+                write(x, y, color);
+            }
+        }
+    }
+
+    @Override
+    public void clearRect(float left, float top, float right, float bottom) {
+        mDrawCalls++;
+        for (int y = firstRow(top);y < firstRow(bottom);y++) {
+            for (int x = firstColumn(left);x < firstColumn(right);x++) {
+                if (inClip(x, y)) {
+                    write(x, y, 0);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void fillRect(int left, int top, int right, int bottom, int color) {
+        mDrawCalls++;
+        for (int y = Math.max(top, mClipTop);y < Math.min(bottom, mClipBottom);y++) {
+            for (int x = Math.max(left, mClipLeft);x < Math.min(right, mClipRight);x++) {
+                write(x, y, color);
+            }
+        }
+    }
+
+    @Override
+    public void strokeRect(float left, float top, float right, float bottom, int color, float strokeWidth) {
+        mDrawCalls++;
+        float half = strokeWidth / 2;
+        for (int y = firstRow(top - half);y < firstRow(bottom + half);y++) {
+            for (int x = firstColumn(left - half);x < firstColumn(right + half);x++) {
+                float px = x + 0.5f;
+                float py = y + 0.5f;
+                boolean inner = px > left + half && px < right - half && py > top + half && py < bottom - half;
+                if (!inner && inClip(x, y)) {
+                    blend(x, y, color);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void drawLines(float[] points, int color, float strokeWidth) {
+        mDrawCalls++;
+        float half = strokeWidth / 2;
+        for (int i = 0;i + 3 < points.length;i += 4) {
+            float x0 = points[i], y0 = points[i + 1], x1 = points[i + 2], y1 = points[i + 3];
+            float dx = x1 - x0, dy = y1 - y0;
+            float length = (float) Math.sqrt(dx * dx + dy * dy);
+            if (length == 0) {
+                continue;
+            }
+            // 线段两端没有线帽
+            for (int y = firstRow(Math.min(y0, y1) - half);y < firstRow(Math.max(y0, y1) + half);y++) {
+                for (int x = firstColumn(Math.min(x0, x1) - half);x < firstColumn(Math.max(x0, x1) + half);x++) {
+                    float px = x + 0.5f - x0;
+                    float py = y + 0.5f - y0;
+                    float along = (px * dx + py * dy) / length;
+                    float across = Math.abs(px * dy - py * dx) / length;
+                    if (along >= 0 && along <= length && across <= half && inClip(x, y)) {
+                        blend(x, y, color);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void fillCircle(float centerX, float centerY, float radius, int color) {
+        mDrawCalls++;
+        for (int y = firstRow(centerY - radius);y < firstRow(centerY + radius);y++) {
+            for (int x = firstColumn(centerX - radius);x < firstColumn(centerX + radius);x++) {
+                float px = x + 0.5f - centerX;
+                float py = y + 0.5f - centerY;
+                if (px * px + py * py <= radius * radius && inClip(x, y)) {
+                    blend(x, y, color);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void drawTipText(String text, float x, float baseline, int color) {
+        float width = mMeasurer.measure(text, mMeasure);
+        drawGlyphs(text, x - width / 2, baseline, width, color);
+    }
+
+    @Override
+    public void drawLabel(String text, float x, float baseline, int color) {
+        float width = mMeasurer.measure(text, mMeasure);
+        drawGlyphs(text, x, baseline, width, color);
+    }
+
+    private void drawGlyphs(String text, float start, float baseline, float width, int color) {
+        mDrawCalls++;
+        float advance = width / text.length();
+        float top = baseline + mMeasure[1];
+        float bottom = baseline + mMeasure[3];
+        for (int i = 0;i < text.length();i++) {
+            if (text.charAt(i) == ' ') {
+                continue;
+            }
+            // 字符之间留出1像素
+            float left = start + i * advance + 1;
+            float right = start + (i + 1) * advance - 1;
+            for (int y = firstRow(top);y < firstRow(bottom);y++) {
+                for (int x = firstColumn(left);x < firstColumn(right);x++) {
+                    if (inClip(x, y)) {
+                        blend(x, y, color);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void drawScanLine(float centerX, float centerY, float radius, float shortAxis) {
+        mDrawCalls++;
+        for (int y = firstRow(centerY - shortAxis);y < firstRow(centerY + shortAxis);y++) {
+            for (int x = firstColumn(centerX - radius);x < firstColumn(centerX + radius);x++) {
+                float px = x + 0.5f - centerX;
+                float py = y + 0.5f - centerY;
+                float ex = px / radius;
+                float ey = py / shortAxis;
+                if (ex * ex + ey * ey > 1 || !inClip(x, y)) {
+                    continue;
+                }
+                // 与RadialGradient相同，从中心的argb(200, 0, 255, 0)过渡到半径处完全透明，超出半径时重复
+                float t = (float) Math.sqrt(px * px + py * py) / radius;
+                t -= (float) Math.floor(t);
+                int alpha = Math.round(200 * (1 - t));
+                blend(x, y, (alpha << 24) | 0x00ff00);
+            }
+        }
+    }
+
+    @Override
+    public void drawLayer(int left, int top, int right, int bottom) {
+        mDrawCalls++;
+        for (int y = Math.max(top, mClipTop);y < Math.min(bottom, mClipBottom);y++) {
+            for (int x = Math.max(left, mClipLeft);x < Math.min(right, mClipRight);x++) {
+                write(x, y, mLayer.getPixel(x, y));
+            }
+        }
+    }
+
+    /**
+     * @param other 大小相同
+     * @return 颜色不同的像素数
+     */
+    int countDifferences(RasterCanvas other) {
+        return countDifferences(other.mPixels);
+    }
+
+    int countDifferences(int[] pixels) {
+        if (pixels.length != mPixels.length) {
+            return mPixels.length;
+        }
+        int count = 0;
+        for (int i = 0;i < mPixels.length;i++) {
+            if (pixels[i] != mPixels[i]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    void writePng(File file) throws IOException {
+        BufferedImage image = new BufferedImage(mWidth, mHeight, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, mWidth, mHeight, mPixels, 0, mWidth);
+        if (!ImageIO.write(image, "png", file)) {
+            throw new IOException("no png writer");
+        }
+    }
+
+    /**
+     * @return ARGB像素，大小不同时返回null
+     */
+    static int[] readPng(InputStream in, int width, int height) throws IOException {
+        BufferedImage image = ImageIO.read(in);
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            return null;
+        }
+        return image.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    private static int firstRow(float y) {
+        return (int) Math.ceil(y - 0.5f);
+    }
+
+    private static int firstColumn(float x) {
+        return (int) Math.ceil(x - 0.5f);
+    }
+
+    private boolean inClip(int x, int y) {
+        return x >= mClipLeft && x < mClipRight && y >= mClipTop && y < mClipBottom;
+    }
+
+    private void write(int x, int y, int color) {
+        mPixels[y * mWidth + x] = color;
+        mPixelsWritten++;
+    }
+
+    /**
+     * 非预乘颜色的SRC_OVER混合
+     */
+    private void blend(int x, int y, int color) {
+        int srcA = color >>> 24;
+        if (srcA == 255) {
+            write(x, y, color);
+            return;
+        }
+        int dst = mPixels[y * mWidth + x];
+        int dstA = dst >>> 24;
+        int outA = srcA + dstA * (255 - srcA) / 255;
+        if (outA == 0) {
+            write(x, y, 0);
+            return;
+        }
+        int r = mix(color >> 16 & 0xff, srcA, dst >> 16 & 0xff, dstA, outA);
+        int g = mix(color >> 8 & 0xff, srcA, dst >> 8 & 0xff, dstA, outA);
+        int b = mix(color & 0xff, srcA, dst & 0xff, dstA, outA);
+        write(x, y, outA << 24 | r << 16 | g << 8 | b);
+    }
+
+    private static int mix(int src, int srcA, int dst, int dstA, int outA) {
+        return (src * srcA * 255 + dst * dstA * (255 - srcA)) / (255 * outA);
+    }
+}
@@ -0,0 +1,65 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * RenderMetrics的累计、拷贝以及清零
+ */
+public class RenderMetricsTest {
+    private static final long MS = 1000000L;
+
+    @Test
+    public void record_accumulatesCountersAndHistograms() throws Exception {
+        RenderMetrics metrics = new RenderMetrics();
+        metrics.recordFrame(MS, 3 * MS, 2 * MS);
+        metrics.recordFrame(MS, 20 * MS, 2 * MS);
+        metrics.recordLockFailure();
+        metrics.recordDroppedFrames(2);
+        metrics.recordDroppedFrames(0);
+        metrics.recordLoop(30 * MS, 10 * MS);
+
+        assertEquals(2, metrics.getFramesRendered());
+        assertEquals(2, metrics.getFramesDropped());
+        assertEquals(1, metrics.getLockFailures());
+        assertEquals(0.75f, metrics.getIdleRatio(), 0.0001f);
+        assertTrue(metrics.getLockHistogram().isLogScale());
+        assertEquals(MS, metrics.getLockHistogram().getPercentileNanos(100), MS / 4);
+        assertEquals(21, metrics.getDrawHistogram().getPercentileMillis(99));
+        assertEquals(2 * MS, metrics.getUnlockHistogram().getMaxNanos());
+    }
+
+    @Test
+    public void phaseHistograms_separateSubMillisecondSamples() throws Exception {
+        RenderMetrics metrics = new RenderMetrics();
+        metrics.recordFrame(50000, 200000, 20000);
+        metrics.recordFrame(400000, 800000, 90000);
+
+        FrameTimeHistogram lock = metrics.getLockHistogram();
+        assertEquals(0, lock.getCount(0));
+        assertTrue(lock.getPercentileNanos(50) <= 50000 * 5 / 4 + 1000);
+        assertTrue(lock.getPercentileNanos(100) > 400000);
+        assertTrue(metrics.getDrawHistogram().getPercentileNanos(50) < metrics.getDrawHistogram().getPercentileNanos(100));
+        assertTrue(metrics.getUnlockHistogram().getPercentileNanos(50) < metrics.getUnlockHistogram().getPercentileNanos(100));
+    }
+
+    @Test
+    public void copyTo_isIndependentOfLaterRecords() throws Exception {
+        RenderMetrics metrics = new RenderMetrics();
+        RenderMetrics report = new RenderMetrics();
+        metrics.recordFrame(MS, MS, MS);
+        metrics.copyTo(report);
+        metrics.recordFrame(MS, MS, MS);
+
+        assertEquals(1, report.getFramesRendered());
+        assertEquals(1, report.getDrawHistogram().getTotalCount());
+
+        // 再次拷贝覆盖之前的结果
+        metrics.reset();
+        metrics.copyTo(report);
+        assertEquals(0, report.getFramesRendered());
+        assertEquals(0, report.getDrawHistogram().getTotalCount());
+        assertEquals(0, report.getIdleRatio(), 0);
+    }
+}
@@ -0,0 +1,281 @@
+package cn.ltaoj.widget;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 在单独的线程中运行FacePreview.run()使用的PreviewRenderLoop.run()，统计空闲时绘制循环的执行次数
+ */
+public class RenderSchedulerTest {
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 300;
+    // 提示文字显示时间
+    private static final long TIP_SHOW_MILLIS = 300;
+
+    private RenderScheduler scheduler;
+    private Thread drawThread;
+    // 处理绘制命令以及锁定Surface的次数
+    private AtomicInteger handled;
+    private AtomicInteger rendered;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = new RenderScheduler();
+        handled = new AtomicInteger();
+        rendered = new AtomicInteger();
+        final PreviewRenderLoop loop = new PreviewRenderLoop(new CountingHost(), new PreviewPainter(4, 2, 3),
+                new ConfigTransition(0), new ResultOverlay(), HeadlessPreview.GLYPHS, 5, TIP_SHOW_MILLIS);
+        drawThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop.run(scheduler);
+            }
+        });
+        drawThread.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        scheduler.quit();
+        drawThread.join(1000);
+    }
+
+    @Test
+    public void idleLoop_doesNotSpin() throws Exception {
+        Thread.sleep(300);
+        assertEquals(0, scheduler.getLoopCount());
+        assertEquals(0, handled.get());
+        assertEquals(Thread.State.WAITING, drawThread.getState());
+    }
+
+    @Test
+    public void postedCommand_wakesLoopOnce() throws Exception {
+        scheduler.post(RenderScheduler.CMD_DRAW_BACKGROUND | RenderScheduler.CMD_DRAW_TIP);
+        waitForHandled(1);
+        // 在擦除提示文字之前检查
+        Thread.sleep(100);
+
+        assertEquals(1, scheduler.getLoopCount());
+        assertEquals(1, handled.get());
+        // 背景以及提示文字合并为一次绘制
+        assertEquals(1, rendered.get());
+    }
+
+    @Test
+    public void quit_stopsLoop() throws Exception {
+        scheduler.quit();
+        drawThread.join(1000);
+
+        assertFalse(drawThread.isAlive());
+        assertEquals(0, handled.get());
+        assertEquals(0, rendered.get());
+    }
+
+    @Test
+    public void drawTip_sweepsOnDrawThreadAfterShowTime() throws Exception {
+        long start = System.nanoTime();
+        scheduler.post(RenderScheduler.CMD_DRAW_TIP);
+        waitForHandled(2);
+
+        // 绘制以及擦除提示文字各锁定一次Surface
+        assertEquals(2, handled.get());
+        assertEquals(2, rendered.get());
+        assertTrue(System.nanoTime() - start >= TIP_SHOW_MILLIS * 1000000L);
+        // 擦除之后回到无限期等待
+        Thread.sleep(100);
+        assertEquals(2, scheduler.getLoopCount());
+        assertEquals(Thread.State.WAITING, drawThread.getState());
+    }
+
+    @Test
+    public void redrawTip_replacesPendingSweep() throws Exception {
+        scheduler.post(RenderScheduler.CMD_DRAW_TIP);
+        Thread.sleep(150);
+        scheduler.post(RenderScheduler.CMD_DRAW_TIP);
+        Thread.sleep(200);
+        // 第一次安排的擦除时间已经过去，但是已经被取消
+        assertEquals(2, handled.get());
+
+        waitForHandled(3);
+        Thread.sleep(100);
+        assertEquals(3, handled.get());
+        assertEquals(3, rendered.get());
+    }
+
+    @Test
+    public void sweepTip_cancelsPendingSweep() throws Exception {
+        scheduler.post(RenderScheduler.CMD_DRAW_TIP);
+        waitForHandled(1);
+        scheduler.post(RenderScheduler.CMD_SWEEP_TIP);
+        waitForHandled(2);
+        Thread.sleep(TIP_SHOW_MILLIS + 100);
+
+        assertEquals(2, handled.get());
+        assertEquals(2, rendered.get());
+        assertEquals(Thread.State.WAITING, drawThread.getState());
+    }
+
+    @Test
+    public void configSwitches_keepThreadCountConstant() throws Exception {
+        Thread.sleep(50);
+        int before = Thread.activeCount();
+        // 与FacePreview切换配置时相同，每次绘制提示文字都在绘制线程重新安排擦除任务
+        for (int i = 0;i < 200;i++) {
+            scheduler.post(RenderScheduler.CMD_DRAW_TIP);
+        }
+        Thread.sleep(50);
+        assertEquals(before, Thread.activeCount());
+
+        // 之前安排的擦除任务都被取消，只擦除一次
+        int drawn = handled.get();
+        Thread.sleep(TIP_SHOW_MILLIS + 100);
+        assertEquals(drawn + 1, handled.get());
+        assertEquals(before, Thread.activeCount());
+    }
+
+    @Test
+    public void delayedTask_runsOnDrawThreadAfterDelay() throws Exception {
+        final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+        long start = System.nanoTime();
+        RenderScheduler.Task task = scheduler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                threads.add(Thread.currentThread());
+            }
+        }, 100);
+        assertTrue(task.isPending());
+        waitForHandled(1);
+
+        assertTrue(System.nanoTime() - start >= 100000000L);
+        assertEquals(Collections.singletonList(drawThread), threads);
+        assertFalse(task.isPending());
+        assertFalse(task.cancel());
+        Thread.sleep(100);
+        assertEquals(1, scheduler.getLoopCount());
+        assertEquals(Thread.State.WAITING, drawThread.getState());
+    }
+
+    @Test
+    public void delayedTasks_runInDeadlineOrder() throws Exception {
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        int[] delays = {120, 40, 80};
+        for (int i = 0;i < delays.length;i++) {
+            final int index = i;
+            scheduler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(index);
+                }
+            }, delays[i]);
+        }
+        waitForHandled(3);
+        assertEquals(Arrays.asList(1, 2, 0), order);
+    }
+
+    @Test
+    public void cancelledTask_neverRuns() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        RenderScheduler.Task task = scheduler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        }, 50);
+        assertTrue(task.cancel());
+        assertFalse(task.cancel());
+        Thread.sleep(200);
+
+        assertEquals(0, runs.get());
+        assertEquals(0, scheduler.getLoopCount());
+        assertEquals(Thread.State.WAITING, drawThread.getState());
+    }
+
+    @Test
+    public void postDelayed_afterQuit_returnsNull() throws Exception {
+        scheduler.quit();
+        assertNull(scheduler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, 0));
+    }
+
+    private void waitForHandled(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (handled.get() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * 不依赖设备的Host，记录每次处理绘制命令以及锁定Surface的次数，缓存图层绘制在RasterCanvas中
+     */
+    private class CountingHost implements PreviewRenderLoop.Host {
+        private final RenderSnapshot mSnapshot = new RenderSnapshot(0,
+                PreviewGeometry.compute(WIDTH, HEIGHT, 120, 120, 20, 4, 5, "tip", 12, HeadlessPreview.GLYPHS),
+                HeadlessPreview.MASK_COLOR, HeadlessPreview.CORNER_COLOR, HeadlessPreview.TEXT_COLOR,
+                FacePreview.PreviewState.READY);
+        private final RasterCanvas mOverlay = new RasterCanvas(WIDTH, HEIGHT, HeadlessPreview.GLYPHS);
+
+        @Override
+        public RenderSnapshot getSnapshot() {
+            // 每次处理绘制命令只读取一次快照
+            handled.incrementAndGet();
+            return mSnapshot;
+        }
+
+        @Override
+        public boolean isScanning() {
+            return false;
+        }
+
+        @Override
+        public float getScanFraction(long frameTimeNanos) {
+            return -1;
+        }
+
+        @Override
+        public long getFrameTimeNanos() {
+            return 0;
+        }
+
+        @Override
+        public long getScanIntervalNanos() {
+            return 0;
+        }
+
+        @Override
+        public RenderMetrics getMetrics() {
+            return null;
+        }
+
+        @Override
+        public PreviewCanvas beginLayer(int width, int height, int left, int top, int right, int bottom) {
+            mOverlay.clip(left, top, right, bottom);
+            return mOverlay;
+        }
+
+        @Override
+        public void endLayer() {
+            mOverlay.clip(0, 0, WIDTH, HEIGHT);
+        }
+
+        @Override
+        public void render(DirtyRegion dirty, RenderSnapshot snapshot, RenderMetrics metrics) {
+            rendered.incrementAndGet();
+        }
+
+        @Override
+        public void onLoopRecorded(long nowNanos) {
+        }
+    }
+}
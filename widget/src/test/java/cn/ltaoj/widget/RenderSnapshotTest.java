@@ -0,0 +1,132 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * UI线程不断切换配置时，绘制线程读到的快照必须是某一个完整的配置
+ */
+public class RenderSnapshotTest {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final String[] TIPS = {"将方框对准人脸", "请眨眨眼", null};
+
+    @Test
+    public void withState_keepsConfigAndOverlayKey() throws Exception {
+        RenderSnapshot ready = new RenderSnapshot(1, geometry(480, 480, "tip"), 1, 2, 3,
+                FacePreview.PreviewState.READY);
+        assertSame(ready, ready.withState(FacePreview.PreviewState.READY));
+
+        RenderSnapshot detecting = ready.withState(FacePreview.PreviewState.DETECTING);
+        assertEquals(FacePreview.PreviewState.DETECTING, detecting.state);
+        assertEquals(1, detecting.configIndex);
+        assertSame(ready.geometry, detecting.geometry);
+        assertTrue(detecting.sameOverlay(ready));
+        assertFalse(detecting.sameOverlay(new RenderSnapshot(1, geometry(480, 480, "other"), 1, 2, 3,
+                FacePreview.PreviewState.DETECTING)));
+        assertFalse(detecting.sameOverlay(new RenderSnapshot(1, geometry(480, 480, "tip"), 1, 5, 3,
+                FacePreview.PreviewState.DETECTING)));
+    }
+
+    @Test
+    public void concurrentConfigSwitches_neverTear() throws Exception {
+        final AtomicReference<RenderSnapshot> published = new AtomicReference<RenderSnapshot>(snapshotFor(0));
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final int[] reads = new int[1];
+        final Throwable[] failure = new Throwable[1];
+
+        // 按照FacePreview.run()的方式，每帧读取一次快照并多次使用
+        Thread renderThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (running.get()) {
+                        RenderSnapshot snapshot = published.get();
+                        for (int pass = 0;pass < 4;pass++) {
+                            assertConsistent(snapshot);
+                        }
+                        reads[0]++;
+                    }
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        // 摄像头线程同时读取矩形框映射ROI
+        Thread cameraThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int[] roi = new int[4];
+                try {
+                    while (running.get()) {
+                        PreviewGeometry geometry = published.get().geometry;
+                        RoiMapper.map(geometry.surfaceWidth, geometry.surfaceHeight, geometry.rectLeft, geometry.rectTop,
+                                geometry.rectRight, geometry.rectBottom, 640, 480, 90, roi);
+                        assertTrue(roi[0] < roi[2] && roi[1] < roi[3]);
+                    }
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        renderThread.start();
+        cameraThread.start();
+
+        // UI线程不断切换配置以及状态
+        FacePreview.PreviewState[] states = FacePreview.PreviewState.values();
+        for (int i = 0;i < 200000;i++) {
+            RenderSnapshot next = snapshotFor(i);
+            published.set(next);
+            published.set(next.withState(states[i % states.length]));
+        }
+        running.set(false);
+        renderThread.join();
+        cameraThread.join();
+
+        if (failure[0] != null) {
+            throw new AssertionError(failure[0]);
+        }
+        assertTrue(reads[0] > 0);
+    }
+
+    /**
+     * 每个配置的矩形框大小、颜色以及提示文字都由下标决定
+     */
+    private static RenderSnapshot snapshotFor(int index) {
+        int config = index % 97;
+        float size = 200 + config * 4;
+        return new RenderSnapshot(config, geometry(size, size * 1.25f, TIPS[config % TIPS.length]),
+                config, config * 2, config * 3, FacePreview.PreviewState.READY);
+    }
+
+    private static PreviewGeometry geometry(float width, float height, String tipText) {
+        return PreviewGeometry.compute(WIDTH, HEIGHT, width, height, 50, 20, 5, tipText, 50,
+                new PreviewGeometry.TextMeasurer() {
+                    @Override
+                    public float measure(String text, int[] bounds) {
+                        bounds[0] = 0;
+                        bounds[1] = -30;
+                        bounds[2] = text.length() * 20;
+                        bounds[3] = 8;
+                        return text.length() * 20;
+                    }
+                });
+    }
+
+    private static void assertConsistent(RenderSnapshot snapshot) {
+        int config = snapshot.configIndex;
+        float size = 200 + config * 4;
+        PreviewGeometry geometry = snapshot.geometry;
+        assertEquals(size, geometry.rectWidth(), 0.01f);
+        assertEquals(size * 1.25f, geometry.rectHeight(), 0.01f);
+        assertEquals(WIDTH / 2f, geometry.rectCenterX(), 0.01f);
+        assertEquals(config, snapshot.maskColor);
+        assertEquals(config * 2, snapshot.crnColor);
+        assertEquals(config * 3, snapshot.textColor);
+        assertSame(TIPS[config % TIPS.length], geometry.tipText);
+    }
+}
@@ -0,0 +1,106 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * 检测线程与绘制线程通过ResultOverlay交换结果，双方都不会阻塞，也不会读到正在填充的批次
+ */
+public class ResultOverlayTest {
+
+    @Test
+    public void publish_replacesUndrawnBatch() throws Exception {
+        ResultOverlay overlay = new ResultOverlay();
+        ResultBatch first = overlay.obtain();
+        first.addRect(0, 0, 10, 10, 1);
+        assertFalse(overlay.publish(first));
+        ResultBatch second = overlay.obtain();
+        second.addRect(0, 0, 20, 20, 2);
+        assertTrue(overlay.publish(second));
+
+        assertTrue(overlay.swap());
+        assertSame(second, overlay.getFront());
+        assertFalse(overlay.swap());
+        assertEquals(2, overlay.getPublishedCount());
+        assertEquals(1, overlay.getSkippedCount());
+        // 被替换的批次进入空闲槽位
+        assertSame(first, overlay.obtain());
+    }
+
+    @Test
+    public void batch_isBoundedAndReusable() throws Exception {
+        ResultBatch batch = new ResultBatch();
+        for (int i = 0;i < ResultBatch.MAX_RECTS;i++) {
+            assertTrue(batch.addRect(i, i, i + 1, i + 1, 0));
+        }
+        assertFalse(batch.addRect(0, 0, 1, 1, 0));
+        assertFalse(batch.addLabel(0, 0, "", 0));
+        // 左右颠倒的矩形会被规范化
+        batch.clear();
+        batch.addRect(10, 20, 0, 5, 0);
+        assertEquals(0, batch.getRects()[0], 0);
+        assertEquals(5, batch.getRects()[1], 0);
+        assertEquals(10, batch.getRects()[2], 0);
+        assertEquals(20, batch.getRects()[3], 0);
+        batch.clear();
+        assertTrue(batch.isEmpty());
+    }
+
+    @Test
+    public void fastProducer_slowConsumer_neverSeesPartialBatch() throws Exception {
+        final ResultOverlay overlay = new ResultOverlay();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final Set<ResultBatch> instances = Collections.newSetFromMap(new IdentityHashMap<ResultBatch, Boolean>());
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int seq = 0;
+                while (running.get()) {
+                    ResultBatch batch = overlay.obtain();
+                    synchronized (instances) {
+                        instances.add(batch);
+                    }
+                    seq++;
+                    // 每个批次的所有矩形颜色相同，绘制线程读到不同颜色说明批次被并发修改
+                    int count = 1 + seq % ResultBatch.MAX_RECTS;
+                    for (int i = 0;i < count;i++) {
+                        batch.addRect(i, i, i + 10, i + 10, seq);
+                    }
+                    overlay.publish(batch);
+                }
+            }
+        });
+        producer.start();
+
+        int frames = 0;
+        long deadline = System.nanoTime() + 300000000L;
+        while (System.nanoTime() < deadline) {
+            if (overlay.swap()) {
+                ResultBatch front = overlay.getFront();
+                int color = front.getRectColor(0);
+                for (int pass = 0;pass < 10;pass++) {
+                    for (int i = 0;i < front.getRectCount();i++) {
+                        assertEquals(color, front.getRectColor(i));
+                    }
+                }
+                assertTrue(front.getRectCount() <= ResultBatch.MAX_RECTS);
+                frames++;
+            }
+            Thread.sleep(1);
+        }
+        running.set(false);
+        producer.join();
+
+        assertTrue(frames > 0);
+        assertTrue(overlay.getSkippedCount() > 0);
+        // 稳定状态下循环使用四个批次，两个线程同时回收时可能额外分配一两个
+        assertTrue("batches " + instances.size(), instances.size() <= 6);
+    }
+}
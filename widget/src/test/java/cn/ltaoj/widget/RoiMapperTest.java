@@ -0,0 +1,84 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 矩形框从视图坐标到传感器坐标的映射，覆盖四个旋转角度
+ * 视图1080x1920，矩形框(100, 200, 300, 600)
+ */
+public class RoiMapperTest {
+    private static final int VIEW_WIDTH = 1080;
+    private static final int VIEW_HEIGHT = 1920;
+    private final int[] roi = new int[4];
+
+    @Test
+    public void rotation0_scalesOnly() throws Exception {
+        RoiMapper.map(VIEW_WIDTH, VIEW_HEIGHT, 100, 200, 300, 600, 540, 960, 0, roi);
+        assertArrayEquals(new int[]{50, 100, 150, 300}, roi);
+    }
+
+    @Test
+    public void rotation90_mapsLandscapeSensor() throws Exception {
+        RoiMapper.map(VIEW_WIDTH, VIEW_HEIGHT, 100, 200, 300, 600, 1920, 1080, 90, roi);
+        assertArrayEquals(new int[]{200, 780, 600, 980}, roi);
+        assertCenterRoundTrips(1920, 1080, 90);
+    }
+
+    @Test
+    public void rotation180_flipsBothAxes() throws Exception {
+        RoiMapper.map(VIEW_WIDTH, VIEW_HEIGHT, 100, 200, 300, 600, 1080, 1920, 180, roi);
+        assertArrayEquals(new int[]{780, 1320, 980, 1720}, roi);
+        assertCenterRoundTrips(1080, 1920, 180);
+    }
+
+    @Test
+    public void rotation270_mapsLandscapeSensor() throws Exception {
+        RoiMapper.map(VIEW_WIDTH, VIEW_HEIGHT, 100, 200, 300, 600, 1920, 1080, 270, roi);
+        assertArrayEquals(new int[]{1320, 100, 1720, 300}, roi);
+        assertCenterRoundTrips(1920, 1080, 270);
+    }
+
+    @Test
+    public void roi_isClampedAndAlignedToEvenCoordinates() throws Exception {
+        RoiMapper.map(VIEW_WIDTH, VIEW_HEIGHT, -10, 201, 1101, 599, 1080, 1920, 0, roi);
+        assertArrayEquals(new int[]{0, 200, 1080, 600}, roi);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedRotation_isRejected() throws Exception {
+        RoiMapper.map(VIEW_WIDTH, VIEW_HEIGHT, 100, 200, 300, 600, 1920, 1080, 45, roi);
+    }
+
+    /**
+     * 把传感器中ROI的中心按顺时针旋转显示到视图上，应该落在矩形框中心
+     */
+    private void assertCenterRoundTrips(int frameWidth, int frameHeight, int rotation) {
+        float sx = (roi[0] + roi[2]) / 2f;
+        float sy = (roi[1] + roi[3]) / 2f;
+        float rx, ry, rotatedWidth, rotatedHeight;
+        switch (rotation) {
+            case 90:
+                rx = frameHeight - sy;
+                ry = sx;
+                rotatedWidth = frameHeight;
+                rotatedHeight = frameWidth;
+                break;
+            case 180:
+                rx = frameWidth - sx;
+                ry = frameHeight - sy;
+                rotatedWidth = frameWidth;
+                rotatedHeight = frameHeight;
+                break;
+            default:
+                rx = sy;
+                ry = frameWidth - sx;
+                rotatedWidth = frameHeight;
+                rotatedHeight = frameWidth;
+                break;
+        }
+        assertEquals(200f, rx * VIEW_WIDTH / rotatedWidth, 1f);
+        assertEquals(400f, ry * VIEW_HEIGHT / rotatedHeight, 1f);
+    }
+}
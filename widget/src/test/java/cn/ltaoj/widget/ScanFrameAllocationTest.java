@@ -0,0 +1,131 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * 扫描帧路径在稳定状态下不能分配内存
+ * 按照FacePreview中 doFrame -> post -> awaitCommands -> PreviewRenderLoop.renderFrame 的顺序执行一帧的Java部分，
+ * Surface以及缓存图层是RasterCanvas
+ */
+public class ScanFrameAllocationTest implements PreviewRenderLoop.Host {
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 600;
+    private static final long FRAME_NANOS = 16666667L;
+    private static final int FRAMES = 20000;
+
+    private final RenderScheduler scheduler = new RenderScheduler();
+    private final ScanTimeline timeline = new ScanTimeline(3000);
+    private final RasterCanvas overlay = new RasterCanvas(WIDTH, HEIGHT, HeadlessPreview.GLYPHS);
+    private final RasterCanvas surface = new RasterCanvas(WIDTH, HEIGHT, HeadlessPreview.GLYPHS);
+    private final RenderSnapshot snapshot = new RenderSnapshot(0,
+            PreviewGeometry.compute(WIDTH, HEIGHT, 300, 300, 20, 4, 5, "tip", 12, HeadlessPreview.GLYPHS),
+            HeadlessPreview.MASK_COLOR, HeadlessPreview.CORNER_COLOR, HeadlessPreview.TEXT_COLOR,
+            FacePreview.PreviewState.DETECTING);
+    private final PreviewRenderLoop loop = new PreviewRenderLoop(this, new PreviewPainter(4, 2, 3),
+            new ConfigTransition(0), new ResultOverlay(), HeadlessPreview.GLYPHS, 5, 10000);
+    private long frameTime = 1000L * FRAME_NANOS;
+    private int frames;
+
+    @Test
+    public void scanFrame_allocatesNothingInSteadyState() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+        surface.setLayer(overlay);
+
+        // 第一帧绘制缓存图层以及整个Surface
+        scheduler.post(RenderScheduler.CMD_DRAW_BACKGROUND);
+        loop.renderFrame(scheduler, scheduler.awaitCommands(), null);
+
+        // 预热，排除类加载以及JIT编译过程中的分配
+        runFrames(FRAMES);
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        long overhead = threadBean.getThreadAllocatedBytes(threadId) - before;
+        before = threadBean.getThreadAllocatedBytes(threadId);
+        runFrames(FRAMES);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        assertTrue("scan frame path allocated " + allocated + " bytes in " + FRAMES + " frames",
+                allocated <= 0);
+        assertEquals(1 + 2 * FRAMES, frames);
+        assertEquals(1, loop.getOverlayPaintCount());
+        // 第一帧已经绘制了扫描线，之后每个扫描帧都记录一次帧间隔
+        assertEquals(2 * FRAMES, loop.getFrameHistogram().getTotalCount());
+    }
+
+    private void runFrames(int count) throws InterruptedException {
+        for (int i = 0;i < count;i++) {
+            frameTime += FRAME_NANOS;
+            scheduler.post(RenderScheduler.CMD_DRAW_SCAN);
+            loop.renderFrame(scheduler, scheduler.awaitCommands(), null);
+        }
+    }
+
+    @Override
+    public RenderSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public boolean isScanning() {
+        return true;
+    }
+
+    @Override
+    public float getScanFraction(long frameTimeNanos) {
+        return timeline.getFraction(frameTimeNanos);
+    }
+
+    @Override
+    public long getFrameTimeNanos() {
+        return frameTime;
+    }
+
+    @Override
+    public long getScanIntervalNanos() {
+        return FRAME_NANOS;
+    }
+
+    @Override
+    public RenderMetrics getMetrics() {
+        return null;
+    }
+
+    @Override
+    public PreviewCanvas beginLayer(int width, int height, int left, int top, int right, int bottom) {
+        overlay.clip(left, top, right, bottom);
+        return overlay;
+    }
+
+    @Override
+    public void endLayer() {
+        overlay.clip(0, 0, WIDTH, HEIGHT);
+    }
+
+    @Override
+    public void render(DirtyRegion dirty, RenderSnapshot snapshot, RenderMetrics metrics) {
+        int left = Math.max(dirty.getLeft(), 0);
+        int top = Math.max(dirty.getTop(), 0);
+        int right = Math.min(dirty.getRight(), WIDTH);
+        int bottom = Math.min(dirty.getBottom(), HEIGHT);
+        surface.clip(left, top, right, bottom);
+        loop.paintRegion(surface, left, top, right, bottom);
+        frames++;
+    }
+
+    @Override
+    public void onLoopRecorded(long nowNanos) {
+    }
+}
@@ -0,0 +1,45 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * ScanTimeline根据垂直同步时间计算扫描线位置
+ */
+public class ScanTimelineTest {
+    private static final long MS = 1000000L;
+
+    @Test
+    public void fraction_followsAccelerateDecelerateCurve() throws Exception {
+        ScanTimeline timeline = new ScanTimeline(3000);
+        long start = 1000 * MS;
+
+        assertEquals(0f, timeline.getFraction(start), 1e-6f);
+        assertEquals(0.5f, timeline.getFraction(start + 1500 * MS), 1e-6f);
+        assertTrue(timeline.getFraction(start + 2999 * MS) > 0.99f);
+        // 每个周期从顶部重新开始
+        assertEquals(0f, timeline.getFraction(start + 3000 * MS), 1e-6f);
+    }
+
+    @Test
+    public void pause_holdsPositionAndResumeContinues() throws Exception {
+        ScanTimeline timeline = new ScanTimeline(3000);
+        long start = 0;
+        timeline.getFraction(start);
+
+        timeline.pause(1000 * MS);
+        float paused = timeline.getFraction(1000 * MS);
+        assertEquals(paused, timeline.getFraction(5000 * MS), 0f);
+
+        timeline.resume(5000 * MS);
+        assertFalse(timeline.isPaused());
+        assertEquals(paused, timeline.getFraction(5000 * MS), 1e-6f);
+        assertEquals(0.5f, timeline.getFraction(5500 * MS), 1e-6f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveDuration_isRejected() throws Exception {
+        new ScanTimeline(0);
+    }
+}
@@ -0,0 +1,80 @@
+package cn.ltaoj.widget;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 按照移动距离以及角度判断手势意图，并统计移动事件数
+ */
+public class SwipeGestureArbiterTest {
+    private static final int TOUCH_SLOP = 24;
+
+    private SwipeGestureArbiter arbiter;
+
+    @Before
+    public void setUp() throws Exception {
+        arbiter = new SwipeGestureArbiter();
+        arbiter.setTouchSlop(TOUCH_SLOP);
+        arbiter.down(400, 60);
+    }
+
+    @Test
+    public void withinSlop_staysUndecided() throws Exception {
+        assertEquals(SwipeGestureArbiter.INTENT_UNDECIDED, arbiter.move(390, 70, true, true));
+        assertEquals(SwipeGestureArbiter.INTENT_UNDECIDED, arbiter.move(420, 52, true, true));
+        assertEquals(2, arbiter.getPassedEventCount());
+        assertEquals(0, arbiter.getSwipeEventCount());
+    }
+
+    @Test
+    public void horizontal_swipes() throws Exception {
+        assertEquals(SwipeGestureArbiter.INTENT_SWIPE, arbiter.move(370, 70, true, true));
+        // 确认之后不再改变，即使之后纵向移动
+        assertEquals(SwipeGestureArbiter.INTENT_SWIPE, arbiter.move(360, 200, true, true));
+        assertEquals(2, arbiter.getSwipeEventCount());
+    }
+
+    @Test
+    public void vertical_passesImmediately() throws Exception {
+        assertEquals(SwipeGestureArbiter.INTENT_PASS, arbiter.move(402, 90, true, true));
+        assertEquals(SwipeGestureArbiter.INTENT_PASS, arbiter.move(300, 92, true, true));
+        assertEquals(0, arbiter.getSwipeEventCount());
+        assertEquals(2, arbiter.getPassedEventCount());
+    }
+
+    @Test
+    public void diagonal_usesMaxAngle() throws Exception {
+        // 与水平方向约40度，默认30度时交给父View
+        assertEquals(SwipeGestureArbiter.INTENT_PASS, arbiter.move(370, 85, true, true));
+
+        arbiter.setMaxAngle(45);
+        arbiter.down(400, 60);
+        assertEquals(SwipeGestureArbiter.INTENT_SWIPE, arbiter.move(370, 85, true, true));
+    }
+
+    @Test
+    public void noRoomInDirection_passes() throws Exception {
+        // 只有右边菜单并且已经关闭时，向右拖动交给父View
+        assertEquals(SwipeGestureArbiter.INTENT_PASS, arbiter.move(440, 60, true, false));
+        arbiter.down(400, 60);
+        assertEquals(SwipeGestureArbiter.INTENT_SWIPE, arbiter.move(360, 60, true, false));
+    }
+
+    @Test
+    public void reset_startsNextGestureUndecided() throws Exception {
+        arbiter.move(300, 60, true, true);
+        arbiter.reset();
+        assertEquals(SwipeGestureArbiter.INTENT_UNDECIDED, arbiter.getIntent());
+
+        arbiter.resetEventCounts();
+        assertEquals(0, arbiter.getSwipeEventCount());
+        assertEquals(0, arbiter.getPassedEventCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMaxAngle_rejectsRightAngle() throws Exception {
+        arbiter.setMaxAngle(90);
+    }
+}
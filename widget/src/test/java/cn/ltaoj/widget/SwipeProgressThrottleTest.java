@@ -0,0 +1,55 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 各个策略下拖动进度的回调
+ */
+public class SwipeProgressThrottleTest {
+
+    @Test
+    public void everyFrame_deliversEachCheckedFrame() throws Exception {
+        SwipeProgressThrottle throttle = new SwipeProgressThrottle();
+        throttle.setPolicy(SwipeLayout.ProgressPolicy.EVERY_FRAME);
+        assertTrue(throttle.shouldDeliver(0.1f, SwipeStateTracker.STATE_SWIPING));
+        assertTrue(throttle.shouldDeliver(0.101f, SwipeStateTracker.STATE_SWIPING));
+    }
+
+    @Test
+    public void onChange_skipsSmallChangesButReachesEnds() throws Exception {
+        SwipeProgressThrottle throttle = new SwipeProgressThrottle();
+        throttle.setPolicy(SwipeLayout.ProgressPolicy.ON_CHANGE);
+        throttle.setEpsilon(0.05f);
+
+        assertTrue(throttle.shouldDeliver(0.5f, SwipeStateTracker.STATE_SWIPING));
+        assertFalse(throttle.shouldDeliver(0.52f, SwipeStateTracker.STATE_SWIPING));
+        assertTrue(throttle.shouldDeliver(0.56f, SwipeStateTracker.STATE_SWIPING));
+        assertTrue(throttle.shouldDeliver(0.98f, SwipeStateTracker.STATE_SWIPING));
+        // 相差小于epsilon，但是已经完全打开
+        assertTrue(throttle.shouldDeliver(1f, SwipeStateTracker.STATE_OPEN));
+        assertFalse(throttle.shouldDeliver(1f, SwipeStateTracker.STATE_OPEN));
+    }
+
+    @Test
+    public void stateOnly_deliversStateChanges() throws Exception {
+        SwipeProgressThrottle throttle = new SwipeProgressThrottle();
+        throttle.setPolicy(SwipeLayout.ProgressPolicy.STATE_ONLY);
+
+        assertTrue(throttle.shouldDeliver(0.1f, SwipeStateTracker.STATE_SWIPING));
+        assertFalse(throttle.shouldDeliver(0.6f, SwipeStateTracker.STATE_SWIPING));
+        assertTrue(throttle.shouldDeliver(1f, SwipeStateTracker.STATE_OPEN));
+        assertTrue(throttle.shouldDeliver(0.9f, SwipeStateTracker.STATE_SWIPING));
+        assertTrue(throttle.shouldDeliver(0f, SwipeStateTracker.STATE_CLOSE));
+    }
+
+    @Test
+    public void setPolicy_resetsLastDelivery() throws Exception {
+        SwipeProgressThrottle throttle = new SwipeProgressThrottle();
+        throttle.setPolicy(SwipeLayout.ProgressPolicy.STATE_ONLY);
+        assertTrue(throttle.shouldDeliver(0f, SwipeStateTracker.STATE_CLOSE));
+        throttle.setPolicy(SwipeLayout.ProgressPolicy.STATE_ONLY);
+        assertTrue(throttle.shouldDeliver(0f, SwipeStateTracker.STATE_CLOSE));
+    }
+}
@@ -0,0 +1,93 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 松手时的位置以及速度决定最终状态
+ * 手势按照每16ms一个触摸点给出，速度取最后两个点之间的平均速度
+ */
+public class SwipeSettlePolicyTest {
+    private static final int RANGE = 300;
+    // 后边菜单有两个按钮
+    private static final int THRESHOLD = RANGE / 3;
+    private static final float MIN_FLING = 1000;
+    private static final long FRAME_MILLIS = 16;
+
+    @Test
+    public void shortQuickFlick_opens() throws Exception {
+        assertEquals(SwipeLayout.SwipeState.OPEN, release(0, -20, -40, -60));
+    }
+
+    @Test
+    public void shortSlowDrag_closes() throws Exception {
+        assertEquals(SwipeLayout.SwipeState.CLOSE, release(0, -10, -20, -30, -40, -40, -40));
+    }
+
+    @Test
+    public void longSlowDrag_opens() throws Exception {
+        assertEquals(SwipeLayout.SwipeState.OPEN, release(0, -50, -100, -110, -120, -125, -125));
+    }
+
+    @Test
+    public void flickBack_closesFromOpenPosition() throws Exception {
+        assertEquals(SwipeLayout.SwipeState.CLOSE, release(-RANGE, -290, -270, -250));
+    }
+
+    @Test
+    public void flickAgainstPosition_followsVelocity() throws Exception {
+        // 已经超过阈值，但是向右快速滑动
+        assertEquals(SwipeLayout.SwipeState.CLOSE, release(0, -100, -200, -180));
+        // 位置不够，但是向左快速滑动
+        assertEquals(SwipeLayout.SwipeState.OPEN, release(-RANGE, -250, -200, -90, -70, -90));
+    }
+
+    @Test
+    public void velocityBelowMinimum_usesPosition() throws Exception {
+        assertEquals(0, SwipeSettlePolicy.resolveFrontLeft(-50, RANGE, THRESHOLD, -999, MIN_FLING));
+        assertEquals(-RANGE, SwipeSettlePolicy.resolveFrontLeft(-50, RANGE, THRESHOLD, -MIN_FLING, MIN_FLING));
+        assertEquals(-RANGE, SwipeSettlePolicy.resolveFrontLeft(-THRESHOLD - 1, RANGE, THRESHOLD, 0, MIN_FLING));
+        assertEquals(0, SwipeSettlePolicy.resolveFrontLeft(-THRESHOLD, RANGE, THRESHOLD, 0, 0));
+    }
+
+    @Test
+    public void dualMenu_usesThresholdOfShownSide() throws Exception {
+        int leftRange = 200;
+        // 左边菜单只有一个按钮
+        int leftThreshold = leftRange / 2;
+        assertEquals(leftRange, SwipeSettlePolicy.resolveFrontLeft(leftThreshold + 1, leftRange, RANGE,
+                leftThreshold, THRESHOLD, 0, MIN_FLING));
+        assertEquals(0, SwipeSettlePolicy.resolveFrontLeft(leftThreshold, leftRange, RANGE,
+                leftThreshold, THRESHOLD, 0, MIN_FLING));
+        assertEquals(-RANGE, SwipeSettlePolicy.resolveFrontLeft(-THRESHOLD - 1, leftRange, RANGE,
+                leftThreshold, THRESHOLD, 0, MIN_FLING));
+    }
+
+    @Test
+    public void dualMenu_flingClosesShownSideInsteadOfCrossing() throws Exception {
+        int leftRange = 200;
+        // 显示左边菜单时向左快速滑动只关闭，不会越过关闭位置打开右边菜单
+        assertEquals(0, SwipeSettlePolicy.resolveFrontLeft(150, leftRange, RANGE,
+                leftRange / 2, THRESHOLD, -MIN_FLING, MIN_FLING));
+        assertEquals(leftRange, SwipeSettlePolicy.resolveFrontLeft(20, leftRange, RANGE,
+                leftRange / 2, THRESHOLD, MIN_FLING, MIN_FLING));
+        // 停在关闭位置时按照速度方向打开
+        assertEquals(leftRange, SwipeSettlePolicy.resolveFrontLeft(0, leftRange, RANGE,
+                leftRange / 2, THRESHOLD, MIN_FLING, MIN_FLING));
+        assertEquals(-RANGE, SwipeSettlePolicy.resolveFrontLeft(0, leftRange, RANGE,
+                leftRange / 2, THRESHOLD, -MIN_FLING, MIN_FLING));
+    }
+
+    @Test
+    public void missingLeftMenu_neverOpensLeft() throws Exception {
+        assertEquals(0, SwipeSettlePolicy.resolveFrontLeft(0, RANGE, THRESHOLD, MIN_FLING, MIN_FLING));
+    }
+
+    private static SwipeLayout.SwipeState release(int... lefts) {
+        int last = lefts.length - 1;
+        float xvel = (lefts[last] - lefts[last - 1]) * 1000f / FRAME_MILLIS;
+        int finalLeft = SwipeSettlePolicy.resolveFrontLeft(lefts[last], RANGE, THRESHOLD, xvel, MIN_FLING);
+        return SwipeLayout.SwipeState.values()[SwipeStateTracker.resolveState(finalLeft, RANGE)];
+    }
+}
@@ -0,0 +1,124 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * SwipeStateStore的读写、按位置保存时的偏移以及内存占用
+ */
+public class SwipeStateStoreTest {
+    private static final int OPEN = SwipeStateTracker.STATE_OPEN;
+    private static final int CLOSE = SwipeStateTracker.STATE_CLOSE;
+
+    @Test
+    public void putGetRemove_keepsKeysSorted() throws Exception {
+        SwipeStateStore store = new SwipeStateStore();
+        store.put(900000000000L, OPEN);
+        store.put(3, OPEN);
+        store.put(-7, OPEN);
+        store.put(42, OPEN);
+        store.put(3, 5);
+
+        assertEquals(4, store.size());
+        assertEquals(-7, store.keyAt(0));
+        assertEquals(3, store.keyAt(1));
+        assertEquals(5, store.valueAt(1));
+        assertEquals(42, store.keyAt(2));
+        assertEquals(OPEN, store.get(900000000000L, CLOSE));
+        assertEquals(CLOSE, store.get(4, CLOSE));
+
+        store.remove(3);
+        store.remove(4);
+        assertEquals(3, store.size());
+        assertEquals(CLOSE, store.get(3, CLOSE));
+        assertEquals(42, store.keyAt(1));
+    }
+
+    @Test
+    public void offsetAndRemoveRange_followListChanges() throws Exception {
+        SwipeStateStore store = new SwipeStateStore();
+        store.put(2, OPEN);
+        store.put(5, OPEN);
+        store.put(9, OPEN);
+
+        // 在位置3插入两个条目
+        store.offsetKeys(3, Long.MAX_VALUE, 2);
+        assertKeys(store, 2, 7, 11);
+
+        // 删除位置6到7的两个条目
+        store.removeRange(6, 8);
+        store.offsetKeys(8, Long.MAX_VALUE, -2);
+        assertKeys(store, 2, 9);
+
+        // 位置2移动到位置9之后
+        store.remove(2);
+        store.offsetKeys(3, 11, -1);
+        store.put(10, OPEN);
+        assertKeys(store, 8, 10);
+    }
+
+    @Test
+    public void memory_scalesWithOpenItems() throws Exception {
+        SwipeStateStore store = new SwipeStateStore();
+        // 预热
+        scroll(store, 1000);
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+            long threadId = Thread.currentThread().getId();
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            long overhead = threadBean.getThreadAllocatedBytes(threadId) - before;
+            before = threadBean.getThreadAllocatedBytes(threadId);
+            scroll(store, 100000);
+            long allocated = threadBean.getThreadAllocatedBytes(threadId) - before - overhead;
+            assertTrue("store allocated " + allocated + " bytes", allocated <= 0);
+        } else {
+            scroll(store, 100000);
+        }
+        assertEquals(1, store.size());
+        assertEquals(99999, store.keyAt(0));
+    }
+
+    /**
+     * 依次打开列表中的每个条目，打开一个条目时关闭上一个
+     */
+    private static void scroll(SwipeStateStore store, int itemCount) {
+        for (int position = 0;position < itemCount;position++) {
+            store.remove(position - 1);
+            store.put(position, OPEN);
+            if (store.get(position, CLOSE) != OPEN) {
+                fail();
+            }
+        }
+        store.clear();
+        store.put(itemCount - 1, OPEN);
+    }
+
+    @Test
+    public void copyAndSetTo_areIndependent() throws Exception {
+        SwipeStateStore store = new SwipeStateStore();
+        store.put(1, OPEN);
+        SwipeStateStore copy = store.copy();
+        store.put(2, OPEN);
+        assertEquals(1, copy.size());
+
+        copy.put(8, OPEN);
+        store.setTo(copy);
+        assertKeys(store, 1, 8);
+        copy.clear();
+        assertEquals(2, store.size());
+    }
+
+    private static void assertKeys(SwipeStateStore store, long... keys) {
+        assertEquals(keys.length, store.size());
+        for (int i = 0;i < keys.length;i++) {
+            assertEquals(keys[i], store.keyAt(i));
+        }
+    }
+}
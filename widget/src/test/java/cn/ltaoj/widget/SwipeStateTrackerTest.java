@@ -0,0 +1,82 @@
+package cn.ltaoj.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 拖动过程中的状态以及分发的事件
+ */
+public class SwipeStateTrackerTest {
+    private static final int RANGE = 300;
+
+    @Test
+    public void open_thenClose_dispatchesEachEventOnce() throws Exception {
+        SwipeStateTracker tracker = new SwipeStateTracker();
+        assertEquals(SwipeStateTracker.STATE_CLOSE, tracker.getState());
+
+        assertEquals(SwipeStateTracker.EVENT_START_OPEN, tracker.update(-10, RANGE));
+        assertEquals(SwipeStateTracker.STATE_SWIPING, tracker.getState());
+        assertEquals(SwipeStateTracker.EVENT_NONE, tracker.update(-150, RANGE));
+        assertEquals(SwipeStateTracker.EVENT_OPEN, tracker.update(-RANGE, RANGE));
+        assertEquals(SwipeStateTracker.STATE_OPEN, tracker.getState());
+        assertEquals(SwipeStateTracker.EVENT_NONE, tracker.update(-RANGE, RANGE));
+
+        assertEquals(SwipeStateTracker.EVENT_START_CLOSE, tracker.update(-290, RANGE));
+        assertEquals(SwipeStateTracker.EVENT_NONE, tracker.update(-10, RANGE));
+        assertEquals(SwipeStateTracker.EVENT_CLOSE, tracker.update(0, RANGE));
+        assertEquals(SwipeStateTracker.STATE_CLOSE, tracker.getState());
+    }
+
+    @Test
+    public void jump_betweenEnds_skipsSwipingEvents() throws Exception {
+        SwipeStateTracker tracker = new SwipeStateTracker();
+        assertEquals(SwipeStateTracker.EVENT_OPEN, tracker.update(-RANGE, RANGE));
+        assertEquals(SwipeStateTracker.EVENT_CLOSE, tracker.update(0, RANGE));
+    }
+
+    @Test
+    public void dualMenu_tracksOpenSide() throws Exception {
+        SwipeStateTracker tracker = new SwipeStateTracker();
+        int leftRange = 200;
+        assertEquals(SwipeStateTracker.EVENT_START_OPEN, tracker.update(10, leftRange, RANGE));
+        assertEquals(SwipeStateTracker.EVENT_OPEN, tracker.update(leftRange, leftRange, RANGE));
+        assertEquals(SwipeStateTracker.STATE_OPEN_LEFT, tracker.getState());
+        assertEquals(SwipeStateTracker.EVENT_START_CLOSE, tracker.update(150, leftRange, RANGE));
+
+        // 直接从左边切换到右边
+        assertEquals(SwipeStateTracker.EVENT_OPEN, tracker.update(-RANGE, leftRange, RANGE));
+        assertEquals(SwipeStateTracker.STATE_OPEN, tracker.getState());
+        assertEquals(SwipeStateTracker.EVENT_CLOSE, tracker.update(0, leftRange, RANGE));
+    }
+
+    @Test
+    public void missingMenu_neverOpensThatSide() throws Exception {
+        // 没有测量的菜单宽度为0，关闭位置不会被当作打开
+        assertEquals(SwipeStateTracker.STATE_CLOSE, SwipeStateTracker.resolveState(0, 0, 0));
+        assertEquals(SwipeStateTracker.STATE_CLOSE, SwipeStateTracker.resolveState(0, 200, 0));
+        assertEquals(SwipeStateTracker.STATE_OPEN_LEFT, SwipeStateTracker.resolveState(200, 200, 0));
+    }
+
+    @Test
+    public void openFraction_followsShownSide() throws Exception {
+        assertEquals(0f, SwipeStateTracker.resolveOpenFraction(0, 200, RANGE), 0f);
+        assertEquals(0.5f, SwipeStateTracker.resolveOpenFraction(-RANGE / 2, 200, RANGE), 1e-6f);
+        assertEquals(1f, SwipeStateTracker.resolveOpenFraction(200, 200, RANGE), 0f);
+        // 没有对应一边的菜单时保持关闭
+        assertEquals(0f, SwipeStateTracker.resolveOpenFraction(50, 0, RANGE), 0f);
+    }
+
+    @Test
+    public void states_mapToSwipeStatesBothWays() throws Exception {
+        int[] states = {SwipeStateTracker.STATE_CLOSE, SwipeStateTracker.STATE_SWIPING,
+                SwipeStateTracker.STATE_OPEN, SwipeStateTracker.STATE_OPEN_LEFT};
+        SwipeLayout.SwipeState[] swipStates = {SwipeLayout.SwipeState.CLOSE, SwipeLayout.SwipeState.SWIPING,
+                SwipeLayout.SwipeState.OPEN, SwipeLayout.SwipeState.OPEN_LEFT};
+        for (int i = 0;i < states.length;i++) {
+            assertEquals(swipStates[i], SwipeLayout.toSwipeState(states[i]));
+            assertEquals(states[i], SwipeLayout.toTrackerState(swipStates[i]));
+        }
+        assertEquals(SwipeLayout.SwipeState.values().length, states.length);
+    }
+}